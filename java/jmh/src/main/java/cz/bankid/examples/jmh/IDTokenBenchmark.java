@@ -0,0 +1,59 @@
+package cz.bankid.examples.jmh;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jwt.JWTParser;
+import com.nimbusds.jwt.proc.BadJWTException;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.openid.connect.sdk.claims.IDTokenClaimsSet;
+import cz.bankid.examples.auth.DiscoveryCache;
+import cz.bankid.examples.auth.IDTokenVerifier;
+import cz.bankid.examples.auth.JWKSCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation of the id_token from the token response
+ *
+ * Every operation parses the serialized id_token (PS512, RSA 2048) and validates it with the cached signing keys,
+ * as {@code TokenExchange} does for every login.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IDTokenBenchmark {
+
+    private String idToken;
+
+    private IDTokenVerifier verifier;
+
+    @Setup
+    public void setUp() throws JOSEException {
+        SimulatedBankID bankID = new SimulatedBankID(0);
+        DiscoveryCache discovery = new DiscoveryCache(new Issuer(SimulatedBankID.ISSUER), bankID);
+        JWKSCache keys = new JWKSCache(discovery, bankID);
+
+        idToken = bankID.idToken();
+        verifier = new IDTokenVerifier(discovery, keys, SimulatedBankID.CLIENT_ID);
+    }
+
+    @Benchmark
+    public IDTokenClaimsSet parseAndVerify() throws java.text.ParseException, BadJWTException, JOSEException,
+            IOException, ParseException {
+        return verifier.verify(JWTParser.parse(idToken), null);
+    }
+}
@@ -0,0 +1,63 @@
+package cz.bankid.examples.jmh;
+
+import com.nimbusds.oauth2.sdk.ParseException;
+import cz.bankid.examples.entities.IdentifyAMLVerifiedClaims;
+import cz.bankid.examples.entities.entity.TrustFramework;
+import cz.bankid.examples.json.BankIDJson;
+import cz.bankid.examples.json.LazyProduct;
+import cz.bankid.examples.product.IdentifyAML;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Narrow read of the Profile API response, {@code sub}, {@code family_name} and the trust framework
+ *
+ * {@code fullProduct} reads the whole IdentifyAML from the response bytes, {@code lazyProduct} indexes the bytes and
+ * decodes only the three claims ({@link LazyProduct}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LazyProfileBenchmark {
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        body = SimulatedBankID.resource("profile.json").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void fullProduct(Blackhole blackhole) throws ParseException {
+        IdentifyAML product = BankIDJson.parse(new ByteArrayInputStream(body), IdentifyAML.class);
+        blackhole.consume(product.getSub());
+        blackhole.consume(product.getFamily_name());
+        TrustFramework trustFramework =
+                ((IdentifyAMLVerifiedClaims) product.getVerified_claims()).getVerification().getTrust_framework();
+        blackhole.consume(trustFramework);
+    }
+
+    @Benchmark
+    public void lazyProduct(Blackhole blackhole) throws ParseException {
+        LazyProduct product = LazyProduct.parse(body);
+        blackhole.consume(product.getSub());
+        blackhole.consume(product.getFamily_name());
+        blackhole.consume(product.getTrust_framework());
+    }
+}
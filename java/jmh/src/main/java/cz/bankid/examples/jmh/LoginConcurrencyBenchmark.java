@@ -0,0 +1,94 @@
+package cz.bankid.examples.jmh;
+
+import com.nimbusds.oauth2.sdk.AuthorizationCode;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import cz.bankid.examples.auth.BankIDProducts;
+import cz.bankid.examples.auth.DiscoveryCache;
+import cz.bankid.examples.auth.JWKSCache;
+import cz.bankid.examples.auth.LoginCallback;
+import cz.bankid.examples.auth.LoginExecutors;
+import cz.bankid.examples.auth.TokenExchange;
+import cz.bankid.examples.product.IdentifyAML;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent logins on platform threads versus virtual threads
+ *
+ * One operation is a burst of {@code logins} concurrent callbacks (code exchange, userinfo and profile), each remote
+ * call takes {@code latencyMillis}. On the fixed platform pool the burst takes about
+ * {@code ceil(logins / poolSize) * 3 * latency}, on virtual threads about {@code 3 * latency} regardless of the burst
+ * size. The virtual mode requires Java 21+.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoginConcurrencyBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"100", "1000"})
+    public int logins;
+
+    @Param({"64"})
+    public int poolSize;
+
+    @Param({"20"})
+    public long latencyMillis;
+
+    private ExecutorService executor;
+
+    private LoginCallback callback;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimulatedBankID bankID = new SimulatedBankID(latencyMillis);
+        DiscoveryCache discovery = new DiscoveryCache(new Issuer(SimulatedBankID.ISSUER), bankID);
+        JWKSCache keys = new JWKSCache(discovery, bankID);
+
+        // The whole callback runs on the pipeline thread, the components complete their futures in place
+        TokenExchange tokenExchange = new TokenExchange(SimulatedBankID.CLIENT_ID, new Secret("secret"),
+                URI.create("https://application.my/callback"), discovery, keys, bankID, Runnable::run);
+        BankIDProducts products = new BankIDProducts(discovery, bankID, Runnable::run);
+
+        executor = "virtual".equals(threads) ? LoginExecutors.virtualThreads() : LoginExecutors.platformThreads(poolSize);
+        callback = new LoginCallback(tokenExchange, products, executor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void concurrentLogins(Blackhole blackhole) {
+        CompletableFuture<?>[] burst = new CompletableFuture<?>[logins];
+        for (int i = 0; i < logins; i++) {
+            burst[i] = callback.handle(new AuthorizationCode("code-" + i), null, IdentifyAML.class);
+        }
+        CompletableFuture.allOf(burst).join();
+        blackhole.consume(burst);
+    }
+}
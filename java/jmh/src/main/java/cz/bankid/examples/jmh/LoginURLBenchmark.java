@@ -0,0 +1,67 @@
+package cz.bankid.examples.jmh;
+
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.pkce.CodeVerifier;
+import com.nimbusds.openid.connect.sdk.Nonce;
+import cz.bankid.examples.auth.DiscoveryCache;
+import cz.bankid.examples.auth.LoginURL;
+import cz.bankid.examples.auth.LoginURLTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building of the BankID login URI
+ *
+ * Every operation builds the URI for a new random state and nonce, as for every login. The configuration comes from
+ * the warm discovery cache. The AuthenticationRequest builder of {@code LoginURL.buildLoginURI} is compared with the
+ * precompiled {@link LoginURLTemplate}, also with the PKCE code_challenge of a new code verifier.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoginURLBenchmark {
+
+    private LoginURL loginURL;
+    private LoginURLTemplate template;
+
+    @Setup
+    public void setUp() throws IOException, ParseException {
+        DiscoveryCache discovery = new DiscoveryCache(new Issuer(SimulatedBankID.ISSUER), new SimulatedBankID(0));
+        discovery.get();
+
+        loginURL = new LoginURL(new com.nimbusds.oauth2.sdk.Scope("openid", "profile.name", "profile.email"),
+                SimulatedBankID.CLIENT_ID, URI.create("https://application.my/callback"), discovery);
+        template = loginURL.template();
+    }
+
+    @Benchmark
+    public URI buildLoginURI() throws IOException, ParseException {
+        return loginURL.buildLoginURI(new com.nimbusds.oauth2.sdk.id.State(), new Nonce());
+    }
+
+    @Benchmark
+    public URI templateLoginURI() {
+        return template.buildLoginURI(new com.nimbusds.oauth2.sdk.id.State(), new Nonce());
+    }
+
+    @Benchmark
+    public String templateLoginURLWithPKCE() {
+        return template.buildLoginURL(new com.nimbusds.oauth2.sdk.id.State(), new Nonce(), new CodeVerifier());
+    }
+}
@@ -0,0 +1,92 @@
+package cz.bankid.examples.jmh;
+
+import com.nimbusds.oauth2.sdk.ParseException;
+import cz.bankid.examples.codec.ProfileCodec;
+import cz.bankid.examples.json.BankIDJson;
+import cz.bankid.examples.product.Connect;
+import cz.bankid.examples.product.IProduct;
+import cz.bankid.examples.product.Identify;
+import cz.bankid.examples.product.IdentifyAML;
+import cz.bankid.examples.product.IdentifyPlus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stored product snapshots, the binary format ({@link ProfileCodec}) against the JSON read by the shared Gson
+ *
+ * The size of both forms of the snapshot is printed at the start of every trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProfileCodecBenchmark {
+
+    @Param({"Connect", "Identify", "IdentifyPlus", "IdentifyAML"})
+    public String product;
+
+    private Class<? extends IProduct> productClass;
+
+    private IProduct value;
+
+    private String json;
+
+    private byte[] snapshot;
+
+    @Setup
+    public void setUp() throws ParseException {
+        switch (product) {
+            case "Connect":
+                productClass = Connect.class;
+                break;
+            case "Identify":
+                productClass = Identify.class;
+                break;
+            case "IdentifyPlus":
+                productClass = IdentifyPlus.class;
+                break;
+            default:
+                productClass = IdentifyAML.class;
+        }
+        value = BankIDJson.parse(SimulatedBankID.resource(productClass == Connect.class ? "userinfo.json" : "profile.json"),
+                productClass);
+        json = BankIDJson.gson().toJson(value);
+        snapshot = ProfileCodec.encode(value);
+        System.out.printf("%n%s snapshot: JSON %d bytes, binary %d bytes%n", product,
+                json.getBytes(StandardCharsets.UTF_8).length, snapshot.length);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return ProfileCodec.encode(value);
+    }
+
+    @Benchmark
+    public String encodeJson() {
+        return BankIDJson.gson().toJson(value);
+    }
+
+    @Benchmark
+    public IProduct decodeBinary() throws ParseException {
+        return ProfileCodec.decode(snapshot, productClass);
+    }
+
+    @Benchmark
+    public IProduct decodeJson() throws ParseException {
+        return BankIDJson.parse(json, productClass);
+    }
+}
@@ -0,0 +1,49 @@
+package cz.bankid.examples.jmh;
+
+import com.nimbusds.oauth2.sdk.ParseException;
+import cz.bankid.examples.compact.CompactProfile;
+import cz.bankid.examples.compact.StringPool;
+import cz.bankid.examples.json.BankIDJson;
+import cz.bankid.examples.product.IdentifyAML;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Heap footprint of the cached Identify AML profiles, the parsed product against {@link CompactProfile}
+ *
+ * The profiles differ in the sub and the names, the countries, cities and id card issuers repeat like in a real
+ * population. Every profile is parsed from its own response, so the parsed products hold their own copies of the
+ * repeated values. The footprint is measured by JOL, the compact profiles together with their string pool.
+ *
+ * <pre>
+ * java -Djdk.attach.allowAttachSelf -cp target/benchmarks.jar cz.bankid.examples.jmh.ProfileFootprint [profiles]
+ * </pre>
+ */
+public class ProfileFootprint {
+
+    public static void main(String[] args) throws ParseException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        String template = SimulatedBankID.resource("profile.json");
+
+        IdentifyAML[] parsed = new IdentifyAML[count];
+        for (int i = 0; i < count; i++) {
+            String json = template
+                    .replace("23f1ac00-5d54-4169-a288-794ae2ead0c4", String.format("23f1ac00-5d54-4169-a288-%012d", i))
+                    .replace("Novák", "Novák" + i);
+            parsed[i] = BankIDJson.parse(json, IdentifyAML.class);
+        }
+
+        StringPool pool = new StringPool();
+        CompactProfile[] compact = new CompactProfile[count];
+        for (int i = 0; i < count; i++) {
+            compact[i] = CompactProfile.of(parsed[i], pool);
+        }
+
+        long parsedSize = GraphLayout.parseInstance((Object) parsed).totalSize();
+        long compactSize = GraphLayout.parseInstance(compact, pool).totalSize();
+
+        System.out.printf("%d profiles%n", count);
+        System.out.printf("IdentifyAML     %,12d bytes, %,6d bytes per profile%n", parsedSize, parsedSize / count);
+        System.out.printf("CompactProfile  %,12d bytes, %,6d bytes per profile (%d pooled values)%n", compactSize,
+                compactSize / count, pool.size());
+    }
+}
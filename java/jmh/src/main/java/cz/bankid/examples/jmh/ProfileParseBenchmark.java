@@ -0,0 +1,86 @@
+package cz.bankid.examples.jmh;
+
+import com.google.gson.Gson;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import cz.bankid.examples.auth.BankIDProducts;
+import cz.bankid.examples.product.Connect;
+import cz.bankid.examples.product.IProduct;
+import cz.bankid.examples.product.Identify;
+import cz.bankid.examples.product.IdentifyAML;
+import cz.bankid.examples.product.IdentifyPlus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading of the UserInfo and Profile API responses into the product classes
+ *
+ * {@code jsonObjectRoundTrip} is the original path, the body is parsed into a Nimbus JSONObject, serialized back to
+ * String and read by a new Gson instance. {@code singlePass} reads the body once with the Gson stream reader and the
+ * generated adapters, {@code reflective} reads it once with the reflective adapter of a shared Gson instance. Connect
+ * is read from the UserInfo sample, the identification products from the Profile sample. Run with {@code -prof gc}
+ * to compare the allocated bytes per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProfileParseBenchmark {
+
+    @Param({"Connect", "Identify", "IdentifyPlus", "IdentifyAML"})
+    public String product;
+
+    private final Gson gson = new Gson();
+
+    private Class<? extends IProduct> productClass;
+
+    private HTTPResponse response;
+
+    @Setup
+    public void setUp() {
+        switch (product) {
+            case "Connect":
+                productClass = Connect.class;
+                break;
+            case "Identify":
+                productClass = Identify.class;
+                break;
+            case "IdentifyPlus":
+                productClass = IdentifyPlus.class;
+                break;
+            default:
+                productClass = IdentifyAML.class;
+        }
+        response = new HTTPResponse(HTTPResponse.SC_OK);
+        response.setHeader("Content-Type", "application/json");
+        response.setContent(SimulatedBankID.resource(productClass == Connect.class ? "userinfo.json" : "profile.json"));
+    }
+
+    @Benchmark
+    public IProduct jsonObjectRoundTrip() throws ParseException {
+        return new Gson().fromJson(response.getContentAsJSONObject().toJSONString(), productClass);
+    }
+
+    @Benchmark
+    public IProduct singlePass() throws ParseException {
+        return BankIDProducts.readProduct(response.getContent(), productClass);
+    }
+
+    @Benchmark
+    public IProduct reflective() {
+        return gson.fromJson(response.getContent(), productClass);
+    }
+}
@@ -0,0 +1,63 @@
+package cz.bankid.examples.jmh;
+
+import com.nimbusds.oauth2.sdk.id.State;
+import com.nimbusds.oauth2.sdk.pkce.CodeVerifier;
+import com.nimbusds.openid.connect.sdk.Nonce;
+import cz.bankid.examples.auth.BatchedRandomValues;
+import cz.bankid.examples.auth.RandomValues;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random values of a login generated by concurrent threads
+ *
+ * Every operation creates the state, the nonce and the PKCE code verifier of one login. The default Nimbus
+ * constructors and {@link RandomValues#secureRandom()} share one {@code SecureRandom}, {@link BatchedRandomValues}
+ * takes the bytes from the batches of its stripes. Run with {@code -t} to change the number of the threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class RandomValuesBenchmark {
+
+    private final RandomValues secureRandom = RandomValues.secureRandom();
+
+    private final RandomValues batched = BatchedRandomValues.shared();
+
+    @Benchmark
+    public void nimbusDefaults(Blackhole blackhole) {
+        blackhole.consume(new State());
+        blackhole.consume(new Nonce());
+        blackhole.consume(new CodeVerifier());
+    }
+
+    @Benchmark
+    public void sharedSecureRandom(Blackhole blackhole) {
+        login(secureRandom, blackhole);
+    }
+
+    @Benchmark
+    public void batched(Blackhole blackhole) {
+        login(batched, blackhole);
+    }
+
+    private static void login(RandomValues random, Blackhole blackhole) {
+        blackhole.consume(random.state());
+        blackhole.consume(random.nonce());
+        blackhole.consume(random.codeVerifier());
+    }
+}
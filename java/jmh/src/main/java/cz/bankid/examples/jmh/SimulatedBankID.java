@@ -0,0 +1,133 @@
+package cz.bankid.examples.jmh;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import cz.bankid.examples.transport.BankIDTransport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory BankID Sandbox for the benchmarks
+ *
+ * Answers the discovery, jwks, token, userinfo and profile calls with the sample data. Each call blocks the calling
+ * thread for the configured latency to simulate the network round trip.
+ */
+public class SimulatedBankID implements BankIDTransport {
+
+    public static final String ISSUER = "https://oidc.sandbox.bankid.cz/";
+
+    public static final ClientID CLIENT_ID = new ClientID("b7a8ac4d-bc25-4c0b-8ebf-2ec3eb7fb0b5");
+
+    // Sample responses
+    private static final String CONFIGURATION = resource("openid-configuration.json");
+    private static final String USERINFO = resource("userinfo.json");
+    private static final String PROFILE = resource("profile.json");
+
+    private final long latencyMillis;
+    private final RSAKey signingKey;
+    private final String jwks;
+    private final String tokenResponse;
+
+    public SimulatedBankID(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        try {
+            this.signingKey = new RSAKeyGenerator(2048).keyID("rp-signing-1").generate();
+            this.jwks = new JWKSet(signingKey.toPublicJWK()).toString();
+            this.tokenResponse = "{\"access_token\":\"sandbox-access-token\",\"token_type\":\"Bearer\",\"expires_in\":3600,"
+                    + "\"refresh_token\":\"sandbox-refresh-token\",\"id_token\":\"" + idToken() + "\"}";
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Signed id_token valid for one day, shared by all simulated logins
+     */
+    public String idToken() throws JOSEException {
+        Date now = new Date();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(ISSUER)
+                .subject("23f1ac00-5d54-4169-a288-794ae2ead0c4")
+                .audience(CLIENT_ID.getValue())
+                .issueTime(now)
+                .expirationTime(new Date(now.getTime() + TimeUnit.DAYS.toMillis(1)))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.PS512).keyID(signingKey.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(signingKey));
+        return jwt.serialize();
+    }
+
+    public RSAKey getSigningKey() {
+        return signingKey;
+    }
+
+    @Override
+    public HTTPResponse send(HTTPRequest request) throws IOException {
+        String path = request.getURL().getPath();
+        if (path.endsWith("/openid-configuration")) {
+            return json(CONFIGURATION);
+        }
+        if (path.endsWith("/jwks")) {
+            return json(jwks);
+        }
+
+        // Remote calls of the login flow
+        simulateLatency();
+        if (path.endsWith("/token")) {
+            return json(tokenResponse);
+        }
+        if (path.endsWith("/userinfo")) {
+            return json(USERINFO);
+        }
+        if (path.endsWith("/profile")) {
+            return json(PROFILE);
+        }
+        return new HTTPResponse(HTTPResponse.SC_NOT_FOUND);
+    }
+
+    private void simulateLatency() throws InterruptedIOException {
+        if (latencyMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static HTTPResponse json(String content) {
+        HTTPResponse response = new HTTPResponse(HTTPResponse.SC_OK);
+        response.setHeader("Content-Type", "application/json; charset=UTF-8");
+        response.setContent(content);
+        return response;
+    }
+
+    /**
+     * Sample data from the classpath (io/*.json)
+     */
+    public static String resource(String fileName) {
+        try (InputStream in = SimulatedBankID.class.getResourceAsStream("/io/" + fileName)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
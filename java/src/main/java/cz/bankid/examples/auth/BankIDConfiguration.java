@@ -1,11 +1,10 @@
 package cz.bankid.examples.auth;
 
 import com.nimbusds.oauth2.sdk.ParseException;
-import com.nimbusds.oauth2.sdk.http.HTTPRequest;
-import com.nimbusds.oauth2.sdk.http.HTTPResponse;
 import com.nimbusds.oauth2.sdk.id.Issuer;
-import com.nimbusds.openid.connect.sdk.op.OIDCProviderConfigurationRequest;
 import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import cz.bankid.examples.metrics.Endpoint;
+import cz.bankid.examples.metrics.MetricsRegistry;
 
 import java.io.IOException;
 import java.net.URI;
@@ -20,33 +19,52 @@ import java.net.URI;
  *   - list of supported scopes and claims
  *   - list of supported grants and functions
  *
+ * The configuration is kept in a shared {@link DiscoveryCache}, so the discovery endpoint is not called on every login.
  */
 public class BankIDConfiguration {
 
     // The BankID Sandbox issuer uri
-    private String bankIDIssuerURI = "https://oidc.sandbox.bankid.cz/";
+    private static final String BANKID_ISSUER_URI = "https://oidc.sandbox.bankid.cz/";
 
+    // Configuration cache shared by all examples
+    private static final DiscoveryCache SANDBOX = new DiscoveryCache(new Issuer(BANKID_ISSUER_URI));
 
-    private void getConfiguration() {
+    // Signing keys cache shared by all examples
+    private static final JWKSCache SANDBOX_KEYS = new JWKSCache(SANDBOX);
 
-        // Create new issuer
-        Issuer issuer = new Issuer(bankIDIssuerURI);
+    /**
+     * Cached configuration of the BankID Sandbox
+     */
+    public static DiscoveryCache sandbox() {
+        return SANDBOX;
+    }
 
-        // Request for configuration
-        OIDCProviderConfigurationRequest request = new OIDCProviderConfigurationRequest(issuer);
+    /**
+     * Cached signing keys of the BankID Sandbox
+     */
+    public static JWKSCache sandboxKeys() {
+        return SANDBOX_KEYS;
+    }
 
-        try {
-            HTTPRequest httpRequest = request.toHTTPRequest();
+    /**
+     * Timing and outcomes of the BankID calls of all examples
+     */
+    public static MetricsRegistry metrics() {
+        return MetricsRegistry.global();
+    }
 
-            // Call for configuration
-            HTTPResponse httpResponse = httpRequest.send();
+    private void getConfiguration() {
 
-            // Parsing BankID Configuration
-            OIDCProviderMetadata opMetadata = OIDCProviderMetadata.parse(httpResponse.getContentAsJSONObject());
+        try {
+            // Obtain the configuration, the discovery endpoint is called only when the cached copy expires
+            OIDCProviderMetadata opMetadata = SANDBOX.get();
 
             // Obtain the auth endpoint URI
             URI auth = opMetadata.getAuthorizationEndpointURI();
 
+            // The 99th percentile of the discovery calls in nanoseconds
+            long p99 = metrics().get(Endpoint.DISCOVERY).getLatency().getValueAtPercentile(99);
+
         } catch (IOException e) {
             // TODO processing the error
         } catch (ParseException e) {
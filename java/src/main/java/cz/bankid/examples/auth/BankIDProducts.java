@@ -1,15 +1,34 @@
 package cz.bankid.examples.auth;
 
 import com.google.gson.Gson;
+import com.nimbusds.common.contenttype.ContentType;
+import com.nimbusds.oauth2.sdk.ErrorObject;
+import com.nimbusds.oauth2.sdk.GeneralException;
 import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
 import com.nimbusds.oauth2.sdk.http.HTTPResponse;
 import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import com.nimbusds.openid.connect.sdk.UserInfoErrorResponse;
 import com.nimbusds.openid.connect.sdk.UserInfoRequest;
+import cz.bankid.examples.entities.IdentifyClaims;
+import cz.bankid.examples.entities.entity.Tokens;
+import cz.bankid.examples.json.BankIDJson;
+import cz.bankid.examples.metrics.BankIDMetrics;
+import cz.bankid.examples.metrics.Endpoint;
+import cz.bankid.examples.metrics.MetricsRegistry;
+import cz.bankid.examples.product.Connect;
+import cz.bankid.examples.product.IProduct;
 import cz.bankid.examples.product.IdentifyAML;
+import cz.bankid.examples.transport.BankIDTransport;
+import cz.bankid.examples.transport.HttpClientTransport;
+import cz.bankid.examples.transport.MeteredTransport;
 
-import java.io.IOException;
 import java.net.URI;
-import java.net.URISyntaxException;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Example of obtaining specific BankID products
@@ -23,45 +42,246 @@ import java.net.URISyntaxException;
  * As object classes of BankID products for this example, it is possible to use examples of java classes
  * in the public BankID repository here. The structure of all essential BankID products
  * (Connect, Identify, Identify Plus and Identify AML) is available in the repository.
+ *
+ * The data are fetched asynchronously, {@link #fetchProfile(BearerAccessToken, Class)} returns immediately and the
+ * product is delivered by the returned future. Parsing runs on the configured executor.
+ *
+ * With a {@link ProfileCache} the repeated calls with the same access_token are served from the cache. Concurrent
+ * calls for the same access_token and product share one request ({@link SingleFlight}).
  */
 public class BankIDProducts {
 
-    // Set the right data API url (for example UserInfo)
-    private String profileURL = "https://oidc.sandbox.bankid.cz/profile";
+    // BankID configuration (from discovery endpoint)
+    private final DiscoveryCache discovery;
+
+    // Pooled HTTP client shared by all BankID calls, measured per endpoint
+    private final BankIDTransport userInfoTransport;
+    private final BankIDTransport profileTransport;
+
+    // Executor for parsing of the responses
+    private final Executor executor;
+
+    // Cached data of the recently used access tokens, null when not cached
+    private final ProfileCache cache;
+
+    // Running requests by access_token and product
+    private final SingleFlight<String, IProduct> requests = new SingleFlight<>();
+
+    public BankIDProducts() {
+        this(BankIDConfiguration.sandbox(), HttpClientTransport.shared(), ForkJoinPool.commonPool());
+    }
+
+    public BankIDProducts(DiscoveryCache discovery, BankIDTransport transport, Executor executor) {
+        this(discovery, transport, executor, null);
+    }
+
+    public BankIDProducts(DiscoveryCache discovery, BankIDTransport transport, Executor executor, ProfileCache cache) {
+        this(discovery, transport, executor, cache, MetricsRegistry.global());
+    }
+
+    /**
+     * @param metrics receiver of the timing of the UserInfo and Profile API calls
+     */
+    public BankIDProducts(DiscoveryCache discovery, BankIDTransport transport, Executor executor, ProfileCache cache,
+                          BankIDMetrics metrics) {
+        this.discovery = discovery;
+        this.userInfoTransport = new MeteredTransport(transport, Endpoint.USERINFO, metrics);
+        this.profileTransport = new MeteredTransport(transport, Endpoint.PROFILE, metrics);
+        this.executor = executor;
+        this.cache = cache;
+    }
+
+    /**
+     * Fetches the product data, {@link Connect} from the UserInfo endpoint, identification products (Identify,
+     * Identify Plus and Identify AML) from the Profile API
+     *
+     * The future fails with {@link GeneralException} when BankID returns an error (for example an expired token)
+     * and with {@link java.io.IOException} when the call fails.
+     *
+     * @param token valid access_token
+     * @param product class of the requested product
+     */
+    public <T extends IProduct> CompletableFuture<T> fetchProfile(BearerAccessToken token, Class<T> product) {
+        return fetchProfile(token, null, product);
+    }
+
+    /**
+     * Fetches the product with the access_token of the session tokens, see {@link #fetchProfile(BearerAccessToken, Class)}
+     *
+     * The cached data are not used after the access_token expires ({@code expires_at}), also when the token was
+     * issued long before the call.
+     *
+     * @param tokens tokens with a valid access_token, for example from {@link TokenManager#tokens(String)}
+     * @param product class of the requested product
+     */
+    public <T extends IProduct> CompletableFuture<T> fetchProfile(Tokens tokens, Class<T> product) {
+        Instant expiresAt = tokens.getExpires_at() > 0 ? Instant.ofEpochSecond(tokens.getExpires_at()) : null;
+        return fetchProfile(new BearerAccessToken(tokens.getAccess_token()), expiresAt, product);
+    }
+
+    private <T extends IProduct> CompletableFuture<T> fetchProfile(BearerAccessToken token, Instant expiresAt,
+                                                                  Class<T> product) {
+        if (cache != null) {
+            // Data of this token already obtained
+            T cached = cache.get(token, product);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+
+        // The same data requested meanwhile by another thread are obtained only once
+        return requests.execute(product.getName() + ' ' + token.getValue(), () -> fetch(token, expiresAt, product))
+                .thenApply(product::cast);
+    }
+
+    private <T extends IProduct> CompletableFuture<T> fetch(BearerAccessToken token, Instant expiresAt,
+                                                           Class<T> product) {
+        BankIDTransport transport = Connect.class.isAssignableFrom(product) ? userInfoTransport : profileTransport;
+        // Invalidation of the token during the request is detected by the cache
+        long stamp = cache == null ? 0 : cache.stamp();
+        CompletableFuture<T> data = CompletableFuture
+                .supplyAsync(() -> Futures.call(() -> dataRequest(token, product)), executor)
+                .thenCompose(request -> transport.sendAsync(request, executor))
+                .thenApplyAsync(response -> Futures.call(() -> parse(response, product)), executor);
+        if (cache == null) {
+            return data;
+        }
+        return data.thenApply(result -> {
+            if (expiresAt != null) {
+                cache.put(token, product, result, stamp, expiresAt);
+            } else {
+                cache.put(token, product, result, stamp);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Fetches the product from the Profile API together with the Connect data from the UserInfo endpoint
+     *
+     * Both calls are sent at once, so the latency is the slower of the two calls rather than their sum. The claims
+     * missing in the profile (for example an email without the profile.email scope on the Profile API) are filled
+     * from the UserInfo data. The future fails as soon as one of the calls fails.
+     *
+     * The claims are filled in a copy of the profile, the product cached or shared with the concurrent calls of
+     * {@link #fetchProfile(BearerAccessToken, Class)} is not changed.
+     *
+     * @param token valid access_token
+     * @param product class of the requested product
+     */
+    public <T extends IProduct> CompletableFuture<T> fetchProfileWithUserInfo(BearerAccessToken token, Class<T> product) {
+        if (Connect.class.isAssignableFrom(product)) {
+            // Connect is the UserInfo itself
+            return fetchProfile(token, product);
+        }
+
+        CompletableFuture<Connect> userInfo = fetchProfile(token, Connect.class);
+        CompletableFuture<T> profile = fetchProfile(token, product);
+
+        return Futures.combineFailFast(profile, userInfo, (data, connect) -> Futures.call(() -> merge(data, connect, product)));
+    }
+
+    /**
+     * Fills the claims missing in the profile from the UserInfo data of the same user
+     *
+     * @return a copy of the profile with the filled claims, the profile itself is not changed
+     */
+    static <T extends IProduct> T merge(T profile, Connect userInfo, Class<T> product) throws GeneralException {
+        if (profile.getSub() != null && userInfo.getSub() != null && !profile.getSub().equals(userInfo.getSub())) {
+            throw new GeneralException("The UserInfo and Profile data belong to different users");
+        }
+        if (!(profile instanceof IdentifyClaims)) {
+            return profile;
+        }
+
+        Gson gson = BankIDJson.gson();
+        T merged = gson.fromJson(gson.toJsonTree(profile), product);
+        IdentifyClaims claims = (IdentifyClaims) merged;
+        if (claims.getGiven_name() == null) {
+            claims.setGiven_name(userInfo.getGiven_name());
+        }
+        if (claims.getFamily_name() == null) {
+            claims.setFamily_name(userInfo.getFamily_name());
+        }
+        if (claims.getMiddle_name() == null) {
+            claims.setMiddle_name(userInfo.getMiddle_name());
+        }
+        if (claims.getEmail() == null) {
+            claims.setEmail(userInfo.getEmail());
+        }
+        if (claims.getPhone_number() == null) {
+            claims.setPhone_number(userInfo.getPhone_number());
+        }
+        if (claims.getGender() == null) {
+            claims.setGender(userInfo.getGender());
+        }
+        if (claims.getBirthdate() == null) {
+            claims.setBirthdate(userInfo.getBirthdate());
+        }
+        if (claims.getUpdated_at() < userInfo.getUpdated_at()) {
+            claims.setUpdated_at(userInfo.getUpdated_at());
+        }
+        return merged;
+    }
+
+    private HTTPRequest dataRequest(BearerAccessToken token, Class<? extends IProduct> product) throws Exception {
+        // Set the right data API url, UserInfo for Connect, Profile for the identification products
+        URI endpoint = Connect.class.isAssignableFrom(product)
+                ? discovery.get().getUserInfoEndpointURI()
+                : discovery.getProfileEndpointURI();
+
+        return new UserInfoRequest(endpoint, token).toHTTPRequest();
+    }
+
+    private static <T extends IProduct> T parse(HTTPResponse response, Class<T> product) throws GeneralException {
+        if (response.getStatusCode() != HTTPResponse.SC_OK) {
+            ErrorObject error = UserInfoErrorResponse.parse(response).getErrorObject();
+            if (error == null) {
+                error = new ErrorObject(null, null, response.getStatusCode());
+            }
+            // Without the WWW-Authenticate error only the HTTP status is known
+            String code = error.getCode() != null ? error.getCode() : "HTTP " + response.getStatusCode();
+            throw new GeneralException("Data request failed: " + code, error);
+        }
+        response.ensureEntityContentType(ContentType.APPLICATION_JSON);
+
+        return readProduct(response.getContent(), product);
+    }
+
+    /**
+     * Reads the product straight from the response body
+     *
+     * The body is read in a single pass by the Gson stream reader, without the intermediate Nimbus JSONObject and
+     * its serialization back to String. The products are read by the shared parser ({@link BankIDJson}).
+     *
+     * @param json UserInfo or Profile API response body
+     * @param product class of the product
+     */
+    public static <T extends IProduct> T readProduct(String json, Class<T> product) throws ParseException {
+        // Convert json to product (from BankID repository)
+        return BankIDJson.parse(json, product);
+    }
 
     private void getData() {
 
         try {
-            URI profileEndpoint = new URI(profileURL);
             // You must have a valid access_token
             BearerAccessToken token = BearerAccessToken.parse("Bearer .... my access token ...");
 
-            // And call the Profile API
-            HTTPResponse profileResponse = new UserInfoRequest(profileEndpoint, token)
-                    .toHTTPRequest()
-                    .send();
+            // And call the Profile API, the calling thread is free until the data are needed
+            CompletableFuture<IdentifyAML> profile = fetchProfile(token, IdentifyAML.class);
 
-            // Use Gson for transformation
-            Gson gson = new Gson();
-            if (profileResponse.getStatusCode() != 200) {
+            // IdentifyAML product (from BankID repository)
+            IdentifyAML amlProduct = profile.join();
 
-                // Convert json to IdentifyAML product (from BankID repository)
-                IdentifyAML amlProduct = gson.fromJson(
-                        profileResponse.getContentAsJSONObject().toJSONString(),
-                        IdentifyAML.class
-                );
+            // Get name from users data
+            String userName = amlProduct.getFamily_name();
 
-                // Get name from users data
-                String userName = amlProduct.getFamily_name();
-
-            }
-
-        } catch (URISyntaxException e) {
-            // TODO processing the error
         } catch (ParseException e) {
             // TODO processing the error
-        } catch (IOException e) {
-            // TODO processing the error
+        } catch (CompletionException e) {
+            // TODO processing the error (GeneralException, ParseException, IOException)
+            Throwable cause = Futures.unwrap(e);
         }
 
     }
@@ -0,0 +1,149 @@
+package cz.bankid.examples.auth;
+
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Random values from pre-generated batches of random bytes
+ *
+ * A shared {@link SecureRandom} is called for every value and the concurrent logins wait for each other on its lock.
+ * Here the random bytes are generated in batches by several independent DRBG generators (NIST SP 800-90A, seeded once
+ * from the system entropy, never blocking afterwards). The values are encoded to Base64URL directly from the batch.
+ *
+ * A thread takes the generator of its stripe, chosen by the thread id. When the stripe is busy, the next stripes are
+ * tried before waiting, so the threads rarely wait for each other. The stripes are used instead of thread locals,
+ * which would give every virtual thread its own generator and buffer.
+ */
+public class BatchedRandomValues implements RandomValues {
+
+    private static final BatchedRandomValues SHARED = new BatchedRandomValues(
+            2 * Runtime.getRuntime().availableProcessors(), 1024);
+
+    private static final char[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    private final Stripe[] stripes;
+
+    /**
+     * @param stripes number of the generators, rounded up to a power of two
+     * @param batchSize number of the random bytes generated at once by every generator
+     */
+    public BatchedRandomValues(int stripes, int batchSize) {
+        if (stripes < 1 || batchSize < BYTE_LENGTH) {
+            throw new IllegalArgumentException("Unsupported stripes or batch size");
+        }
+        int count = Integer.highestOneBit(stripes);
+        this.stripes = new Stripe[count < stripes ? count << 1 : count];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe(batchSize);
+        }
+    }
+
+    /**
+     * Generator shared by all logins, two stripes per processor
+     */
+    public static BatchedRandomValues shared() {
+        return SHARED;
+    }
+
+    @Override
+    public String nextValue(int byteLength) {
+        if (byteLength < 1 || byteLength > stripes[0].batch.length) {
+            throw new IllegalArgumentException("Unsupported length " + byteLength);
+        }
+        Stripe stripe = acquire();
+        try {
+            return stripe.nextValue(byteLength);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private Stripe acquire() {
+        long id = Thread.currentThread().getId();
+        int mask = stripes.length - 1;
+        int first = (int) (id ^ (id >>> 32)) & mask;
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe stripe = stripes[(first + i) & mask];
+            if (stripe.lock.tryLock()) {
+                return stripe;
+            }
+        }
+        // All stripes are busy, wait for the own one
+        Stripe stripe = stripes[first];
+        stripe.lock.lock();
+        return stripe;
+    }
+
+    /**
+     * One generator with its batch of random bytes
+     */
+    private static final class Stripe {
+
+        final ReentrantLock lock = new ReentrantLock();
+        final SecureRandom random;
+        final byte[] batch;
+
+        // Next unused byte of the batch
+        int position;
+
+        // Encoded value before it is copied to the string
+        final char[] encoded;
+
+        Stripe(int batchSize) {
+            try {
+                random = SecureRandom.getInstance("DRBG",
+                        DrbgParameters.instantiation(256, DrbgParameters.Capability.RESEED_ONLY, null));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("DRBG is not supported", e);
+            }
+            batch = new byte[batchSize];
+            position = batchSize;
+            encoded = new char[(batchSize * 4 + 2) / 3];
+        }
+
+        String nextValue(int byteLength) {
+            if (position + byteLength > batch.length) {
+                random.nextBytes(batch);
+                position = 0;
+            }
+            int length = encode(batch, position, byteLength, encoded);
+            // The used bytes are cleared, a value is never handed out twice
+            Arrays.fill(batch, position, position + byteLength, (byte) 0);
+            position += byteLength;
+            return new String(encoded, 0, length);
+        }
+    }
+
+    /**
+     * Base64URL without padding, returns the number of the written characters
+     */
+    static int encode(byte[] bytes, int offset, int length, char[] out) {
+        int end = offset + length;
+        int i = offset;
+        int o = 0;
+        while (i + 3 <= end) {
+            int bits = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8 | bytes[i + 2] & 0xff;
+            out[o++] = ALPHABET[bits >>> 18];
+            out[o++] = ALPHABET[bits >>> 12 & 0x3f];
+            out[o++] = ALPHABET[bits >>> 6 & 0x3f];
+            out[o++] = ALPHABET[bits & 0x3f];
+            i += 3;
+        }
+        int remaining = end - i;
+        if (remaining == 1) {
+            int bits = (bytes[i] & 0xff) << 16;
+            out[o++] = ALPHABET[bits >>> 18];
+            out[o++] = ALPHABET[bits >>> 12 & 0x3f];
+        } else if (remaining == 2) {
+            int bits = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8;
+            out[o++] = ALPHABET[bits >>> 18];
+            out[o++] = ALPHABET[bits >>> 12 & 0x3f];
+            out[o++] = ALPHABET[bits >>> 6 & 0x3f];
+        }
+        return o;
+    }
+}
@@ -0,0 +1,295 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderConfigurationRequest;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import cz.bankid.examples.metrics.BankIDMetrics;
+import cz.bankid.examples.metrics.Endpoint;
+import cz.bankid.examples.metrics.MetricsRegistry;
+import cz.bankid.examples.transport.BankIDTransport;
+import cz.bankid.examples.transport.HttpClientTransport;
+import cz.bankid.examples.transport.MeteredTransport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.time.Clock;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cached BankID OpenID Connect configuration
+ *
+ * The configuration obtained from the discovery endpoint changes rarely, so it is kept in memory and shared by all
+ * logins. The lifetime of the cached copy is taken from the HTTP cache headers of the discovery response
+ * (Cache-Control max-age, Expires). Shortly before the copy expires it is refreshed in the background while the
+ * current copy is still served (stale-while-revalidate). Concurrent refreshes are collapsed into one request.
+ */
+public class DiscoveryCache {
+
+    // Lifetime used when the discovery response has no usable cache headers
+    static final long DEFAULT_TTL_MILLIS = 60 * 60 * 1000L;
+
+    // Bounds for the lifetime taken from the cache headers
+    static final long MIN_TTL_MILLIS = 60 * 1000L;
+    static final long MAX_TTL_MILLIS = 24 * 60 * 60 * 1000L;
+
+    // Part of the lifetime after which the background refresh starts
+    static final double REFRESH_AHEAD_RATIO = 0.8;
+
+    // How long an expired copy may still be served while it is being revalidated
+    static final long DEFAULT_STALE_MILLIS = 5 * 60 * 1000L;
+
+    // Delay before the next attempt when a background refresh fails
+    static final long RETRY_DELAY_MILLIS = 10 * 1000L;
+
+    private final Issuer issuer;
+    private final BankIDTransport transport;
+    private final Executor refreshExecutor;
+    private final Clock clock;
+
+    private volatile Entry entry;
+    private final AtomicReference<CompletableFuture<Entry>> refreshing = new AtomicReference<>();
+
+    public DiscoveryCache(Issuer issuer) {
+        this(issuer, HttpClientTransport.shared());
+    }
+
+    public DiscoveryCache(Issuer issuer, BankIDTransport transport) {
+        this(issuer, transport, MetricsRegistry.global());
+    }
+
+    /**
+     * @param metrics receiver of the timing of the discovery calls
+     */
+    public DiscoveryCache(Issuer issuer, BankIDTransport transport, BankIDMetrics metrics) {
+        this(issuer, new MeteredTransport(transport, Endpoint.DISCOVERY, metrics), defaultExecutor(), Clock.systemUTC());
+    }
+
+    DiscoveryCache(Issuer issuer, BankIDTransport transport, Executor refreshExecutor, Clock clock) {
+        this.issuer = issuer;
+        this.transport = transport;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+    }
+
+    public Issuer getIssuer() {
+        return issuer;
+    }
+
+    /**
+     * Returns the BankID configuration. The discovery endpoint is called only when there is no usable cached copy,
+     * otherwise the cached copy is returned and refreshed in the background when it is close to expiry.
+     */
+    public OIDCProviderMetadata get() throws IOException, ParseException {
+        Entry current = entry;
+        long now = clock.millis();
+
+        if (current == null || now >= current.staleUntil) {
+            // Nothing usable in memory, wait for the shared request
+            return await(refresh()).metadata;
+        }
+        if (now >= current.refreshAt) {
+            // Serve the cached copy and revalidate it in the background
+            refresh();
+        }
+        return current.metadata;
+    }
+
+    /**
+     * Profile API endpoint, BankID publishes it as the custom "profile_endpoint" discovery parameter
+     */
+    public URI getProfileEndpointURI() throws IOException, ParseException {
+        Object profileEndpoint = get().getCustomParameter("profile_endpoint");
+        if (profileEndpoint != null) {
+            return URI.create(profileEndpoint.toString());
+        }
+        return URI.create(issuer.getValue().replaceAll("/+$", "") + "/profile");
+    }
+
+    /**
+     * Starts a refresh of the cached copy unless one is already running
+     */
+    CompletableFuture<Entry> refresh() {
+        while (true) {
+            CompletableFuture<Entry> pending = refreshing.get();
+            if (pending != null) {
+                return pending;
+            }
+            CompletableFuture<Entry> created = new CompletableFuture<>();
+            if (refreshing.compareAndSet(null, created)) {
+                refreshExecutor.execute(() -> load(created));
+                return created;
+            }
+        }
+    }
+
+    private void load(CompletableFuture<Entry> result) {
+        try {
+            // Request for configuration
+            HTTPRequest httpRequest = new OIDCProviderConfigurationRequest(issuer).toHTTPRequest();
+            HTTPResponse httpResponse = transport.send(httpRequest);
+            httpResponse.ensureStatusCode(HTTPResponse.SC_OK);
+
+            // Parsing BankID Configuration
+            OIDCProviderMetadata metadata = OIDCProviderMetadata.parse(httpResponse.getContentAsJSONObject());
+
+            Entry loaded = Entry.of(metadata, clock.millis(), httpResponse);
+            entry = loaded;
+            refreshing.set(null);
+            result.complete(loaded);
+
+        } catch (Throwable e) {
+            // Keep serving the current copy and try again a bit later
+            Entry current = entry;
+            if (current != null) {
+                entry = current.retryAfter(clock.millis() + RETRY_DELAY_MILLIS);
+            }
+            refreshing.set(null);
+            result.completeExceptionally(e);
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> future) throws IOException, ParseException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the BankID configuration");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof ParseException) {
+                throw (ParseException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static Executor defaultExecutor() {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bankid-discovery-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Lifetime in milliseconds of the discovery response according to its cache headers
+     */
+    static long ttlMillis(HTTPResponse response, long now) {
+        String cacheControl = response.getCacheControl();
+        if (cacheControl != null) {
+            String lower = cacheControl.toLowerCase();
+            if (lower.contains("no-store") || lower.contains("no-cache")) {
+                return MIN_TTL_MILLIS;
+            }
+            long maxAge = directive(lower, "max-age");
+            if (maxAge >= 0) {
+                long age = parseLong(response.getHeaderValue("Age"));
+                return clamp((maxAge - Math.max(age, 0)) * 1000);
+            }
+        }
+
+        long expires = parseDate(response.getHeaderValue("Expires"));
+        if (expires >= 0) {
+            long date = parseDate(response.getHeaderValue("Date"));
+            return clamp(expires - (date >= 0 ? date : now));
+        }
+
+        return DEFAULT_TTL_MILLIS;
+    }
+
+    /**
+     * How long the expired response may be served while revalidating (Cache-Control stale-while-revalidate)
+     */
+    static long staleMillis(HTTPResponse response) {
+        String cacheControl = response.getCacheControl();
+        if (cacheControl != null) {
+            long stale = directive(cacheControl.toLowerCase(), "stale-while-revalidate");
+            if (stale >= 0) {
+                return stale * 1000;
+            }
+        }
+        return DEFAULT_STALE_MILLIS;
+    }
+
+    private static long directive(String cacheControl, String name) {
+        for (String part : cacheControl.split(",")) {
+            String[] pair = part.trim().split("=", 2);
+            if (pair.length == 2 && pair[0].trim().equals(name)) {
+                return parseLong(pair[1].trim().replace("\"", ""));
+            }
+        }
+        return -1;
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long parseDate(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    private static long clamp(long ttl) {
+        return Math.max(MIN_TTL_MILLIS, Math.min(MAX_TTL_MILLIS, ttl));
+    }
+
+    /**
+     * Cached configuration with its refresh and expiry times
+     */
+    static final class Entry {
+
+        final OIDCProviderMetadata metadata;
+        final long refreshAt;
+        final long expiresAt;
+        final long staleUntil;
+
+        private Entry(OIDCProviderMetadata metadata, long refreshAt, long expiresAt, long staleUntil) {
+            this.metadata = metadata;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+            this.staleUntil = staleUntil;
+        }
+
+        static Entry of(OIDCProviderMetadata metadata, long now, HTTPResponse response) {
+            long ttl = ttlMillis(response, now);
+            long expiresAt = now + ttl;
+            return new Entry(metadata, now + (long) (ttl * REFRESH_AHEAD_RATIO), expiresAt,
+                    expiresAt + staleMillis(response));
+        }
+
+        Entry retryAfter(long retryAt) {
+            return new Entry(metadata, Math.min(retryAt, staleUntil), expiresAt, staleUntil);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package cz.bankid.examples.auth;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiFunction;
+
+/**
+ * Helpers for the asynchronous BankID calls
+ */
+final class Futures {
+
+    /**
+     * Step of an asynchronous flow which may throw a checked exception (IOException, ParseException, ...)
+     */
+    @FunctionalInterface
+    interface Step<T> {
+        T call() throws Exception;
+    }
+
+    private Futures() {
+    }
+
+    /**
+     * Runs the step, a checked exception is passed to the future as {@link CompletionException}
+     */
+    static <T> T call(Step<T> step) {
+        try {
+            return step.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Combines two running futures, unlike {@link CompletableFuture#thenCombine} the result fails as soon as one of
+     * them fails and the other one is cancelled
+     */
+    static <A, B, R> CompletableFuture<R> combineFailFast(CompletableFuture<A> first, CompletableFuture<B> second,
+                                                         BiFunction<? super A, ? super B, ? extends R> combiner) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        first.whenComplete((value, e) -> {
+            if (e != null && result.completeExceptionally(unwrap(e))) {
+                second.cancel(false);
+            }
+        });
+        second.whenComplete((value, e) -> {
+            if (e != null && result.completeExceptionally(unwrap(e))) {
+                first.cancel(false);
+            }
+        });
+        first.thenCombine(second, combiner).whenComplete((value, e) -> {
+            if (e != null) {
+                result.completeExceptionally(unwrap(e));
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns the original cause of a failed future
+     */
+    static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+}
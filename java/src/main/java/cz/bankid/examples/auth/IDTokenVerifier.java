@@ -0,0 +1,120 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jwt.JWT;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.BadJWTException;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.openid.connect.sdk.Nonce;
+import com.nimbusds.openid.connect.sdk.claims.IDTokenClaimsSet;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Validation of the id_token obtained from the token endpoint
+ *
+ * Checks the signature against the cached BankID signing keys ({@link JWKSCache}) and the standard claims: issuer,
+ * audience, expiration and optionally the nonce sent in the authorization request. In the common case the check
+ * does not need any network call.
+ */
+public class IDTokenVerifier {
+
+    // Tolerated clock difference between BankID and the application
+    static final long MAX_CLOCK_SKEW_MILLIS = 60 * 1000L;
+
+    private final DiscoveryCache discovery;
+    private final JWKSCache keys;
+    private final ClientID clientId;
+    private final Clock clock;
+
+    public IDTokenVerifier(DiscoveryCache discovery, JWKSCache keys, ClientID clientId) {
+        this(discovery, keys, clientId, Clock.systemUTC());
+    }
+
+    IDTokenVerifier(DiscoveryCache discovery, JWKSCache keys, ClientID clientId, Clock clock) {
+        this.discovery = discovery;
+        this.keys = keys;
+        this.clientId = clientId;
+        this.clock = clock;
+    }
+
+    /**
+     * Verifies the id_token and returns its claims
+     *
+     * @param idToken the id_token from the token response
+     * @param expectedNonce the nonce sent in the authorization request, null to skip the nonce check
+     * @throws BadJWTException when the token is not valid
+     */
+    public IDTokenClaimsSet verify(JWT idToken, Nonce expectedNonce)
+            throws BadJWTException, JOSEException, IOException, ParseException {
+
+        if (!(idToken instanceof SignedJWT)) {
+            throw new BadJWTException("The id_token is not signed");
+        }
+        SignedJWT signedJWT = (SignedJWT) idToken;
+        OIDCProviderMetadata metadata = discovery.get();
+
+        // The algorithm must be one of those BankID announces
+        JWSAlgorithm alg = signedJWT.getHeader().getAlgorithm();
+        List<JWSAlgorithm> supported = metadata.getIDTokenJWSAlgs();
+        if (supported != null && !supported.contains(alg)) {
+            throw new BadJWTException("Unexpected id_token algorithm " + alg);
+        }
+
+        // Check the signature with the cached key
+        JWSVerifier verifier = keys.getVerifier(signedJWT.getHeader().getKeyID());
+        if (verifier == null) {
+            throw new BadJWTException("Unknown id_token signing key " + signedJWT.getHeader().getKeyID());
+        }
+        if (!signedJWT.verify(verifier)) {
+            throw new BadJWTException("Invalid id_token signature");
+        }
+
+        JWTClaimsSet claims;
+        try {
+            claims = signedJWT.getJWTClaimsSet();
+        } catch (java.text.ParseException e) {
+            throw new BadJWTException("Invalid id_token claims", e);
+        }
+
+        // Issuer and audience
+        if (!metadata.getIssuer().getValue().equals(claims.getIssuer())) {
+            throw new BadJWTException("Unexpected id_token issuer " + claims.getIssuer());
+        }
+        if (claims.getAudience() == null || !claims.getAudience().contains(clientId.getValue())) {
+            throw new BadJWTException("The id_token was not issued for this client");
+        }
+
+        // Expiration
+        Date now = new Date(clock.millis());
+        if (claims.getExpirationTime() == null
+                || claims.getExpirationTime().getTime() + MAX_CLOCK_SKEW_MILLIS < now.getTime()) {
+            throw new BadJWTException("Expired id_token");
+        }
+        if (claims.getIssueTime() != null && claims.getIssueTime().getTime() - MAX_CLOCK_SKEW_MILLIS > now.getTime()) {
+            throw new BadJWTException("The id_token was issued in the future");
+        }
+
+        // Nonce from the authorization request
+        if (expectedNonce != null) {
+            Object nonce = claims.getClaim("nonce");
+            if (nonce == null || !expectedNonce.getValue().equals(nonce.toString())) {
+                throw new BadJWTException("Unexpected id_token nonce");
+            }
+        }
+
+        try {
+            return new IDTokenClaimsSet(claims);
+        } catch (ParseException e) {
+            throw new BadJWTException("Invalid id_token claims", e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import cz.bankid.examples.metrics.BankIDMetrics;
+import cz.bankid.examples.metrics.Endpoint;
+import cz.bankid.examples.metrics.MetricsRegistry;
+import cz.bankid.examples.transport.BankIDTransport;
+import cz.bankid.examples.transport.HttpClientTransport;
+import cz.bankid.examples.transport.MeteredTransport;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of BankID signing keys
+ *
+ * The keys published on the jwks_uri of the BankID configuration are downloaded once and kept as ready to use
+ * {@link JWSVerifier} instances indexed by the key ID (kid), so the signature check of an id_token needs no network
+ * call. The key set is downloaded again only when a token refers to an unknown kid (key rotation), and at most once
+ * per {@link #MIN_REFETCH_INTERVAL_MILLIS}. A failed download is tried again after the shorter
+ * {@link #FAILED_FETCH_BACKOFF_MILLIS}, until then its error is thrown without calling BankID.
+ */
+public class JWKSCache {
+
+    // Minimal time between two downloads of the key set
+    static final long MIN_REFETCH_INTERVAL_MILLIS = 30 * 1000L;
+
+    // Minimal time between a failed download and the next one
+    static final long FAILED_FETCH_BACKOFF_MILLIS = 1000L;
+
+    // Key under which a key without kid is stored
+    private static final String NO_KID = "";
+
+    private final DiscoveryCache discovery;
+    private final BankIDTransport transport;
+    private final Clock clock;
+
+    // Guards the download, a lock instead of synchronized does not pin virtual threads during the call
+    private final ReentrantLock fetchLock = new ReentrantLock();
+
+    private volatile Map<String, JWSVerifier> verifiers = Collections.emptyMap();
+    private long lastFetch;
+
+    // Error of the last download, null when it succeeded
+    private Exception fetchError;
+    private long lastFailure;
+
+    public JWKSCache(DiscoveryCache discovery) {
+        this(discovery, HttpClientTransport.shared());
+    }
+
+    public JWKSCache(DiscoveryCache discovery, BankIDTransport transport) {
+        this(discovery, transport, MetricsRegistry.global());
+    }
+
+    /**
+     * @param metrics receiver of the timing of the key set calls
+     */
+    public JWKSCache(DiscoveryCache discovery, BankIDTransport transport, BankIDMetrics metrics) {
+        this(discovery, new MeteredTransport(transport, Endpoint.JWKS, metrics), Clock.systemUTC());
+    }
+
+    JWKSCache(DiscoveryCache discovery, BankIDTransport transport, Clock clock) {
+        this.discovery = discovery;
+        this.transport = transport;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the verifier for the given key ID, or null when BankID does not publish such key
+     *
+     * @throws IOException when the key set cannot be downloaded
+     */
+    public JWSVerifier getVerifier(String kid) throws IOException, ParseException {
+        String key = kid != null ? kid : NO_KID;
+
+        JWSVerifier verifier = find(verifiers, key);
+        if (verifier != null) {
+            return verifier;
+        }
+
+        fetchLock.lock();
+        try {
+            // Another thread may have downloaded the keys in the meantime
+            verifier = find(verifiers, key);
+            if (verifier != null) {
+                return verifier;
+            }
+            long now = clock.millis();
+            if (fetchError != null) {
+                if (now - lastFailure < FAILED_FETCH_BACKOFF_MILLIS) {
+                    throw new IOException("BankID key set not available: " + fetchError.getMessage(), fetchError);
+                }
+            } else if (lastFetch != 0 && now - lastFetch < MIN_REFETCH_INTERVAL_MILLIS) {
+                return null;
+            }
+
+            try {
+                verifiers = fetch();
+            } catch (IOException | ParseException e) {
+                // Not an unknown key, the error is reported to the callers until the next attempt
+                fetchError = e;
+                lastFailure = now;
+                throw e;
+            }
+            fetchError = null;
+            lastFetch = now;
+            return find(verifiers, key);
+        } finally {
+            fetchLock.unlock();
+        }
+    }
+
+    private static JWSVerifier find(Map<String, JWSVerifier> verifiers, String kid) {
+        JWSVerifier verifier = verifiers.get(kid);
+        if (verifier == null && kid.equals(NO_KID) && verifiers.size() == 1) {
+            // Token without kid can be checked only when there is exactly one key
+            verifier = verifiers.values().iterator().next();
+        }
+        return verifier;
+    }
+
+    private Map<String, JWSVerifier> fetch() throws IOException, ParseException {
+        // Call for the key set
+        HTTPRequest request = new HTTPRequest(HTTPRequest.Method.GET, discovery.get().getJWKSetURI());
+        HTTPResponse response = transport.send(request);
+        response.ensureStatusCode(HTTPResponse.SC_OK);
+
+        JWKSet jwkSet;
+        try {
+            jwkSet = JWKSet.parse(response.getContent());
+        } catch (java.text.ParseException e) {
+            throw new ParseException("Invalid BankID key set: " + e.getMessage(), e);
+        }
+
+        // Prepare a verifier for every signing key
+        Map<String, JWSVerifier> loaded = new HashMap<>();
+        for (JWK jwk : jwkSet.getKeys()) {
+            if (jwk.getKeyUse() != null && !KeyUse.SIGNATURE.equals(jwk.getKeyUse())) {
+                continue;
+            }
+            JWSVerifier verifier = toVerifier(jwk);
+            if (verifier != null) {
+                loaded.put(jwk.getKeyID() != null ? jwk.getKeyID() : NO_KID, verifier);
+            }
+        }
+        return Collections.unmodifiableMap(loaded);
+    }
+
+    private static JWSVerifier toVerifier(JWK jwk) throws ParseException {
+        try {
+            if (jwk instanceof RSAKey) {
+                return new RSASSAVerifier((RSAKey) jwk);
+            }
+            if (jwk instanceof ECKey) {
+                return new ECDSAVerifier((ECKey) jwk);
+            }
+            return null;
+        } catch (JOSEException e) {
+            throw new ParseException("Invalid BankID signing key " + jwk.getKeyID() + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.oauth2.sdk.AuthorizationCode;
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import com.nimbusds.openid.connect.sdk.Nonce;
+import com.nimbusds.openid.connect.sdk.token.OIDCTokens;
+import cz.bankid.examples.product.IProduct;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Login callback pipeline
+ *
+ * Handles the callback on the redirect URI: exchanges the code for tokens ({@link TokenExchange}), then obtains the
+ * requested product from the Profile API merged with the Connect data from the UserInfo endpoint
+ * ({@link BankIDProducts#fetchProfileWithUserInfo}). The two data calls are sent at once.
+ *
+ * Every callback runs as one sequential task on the executor given to the constructor. With the default pool of
+ * platform threads the number of concurrent logins is capped by the pool size. With
+ * {@link LoginExecutors#virtualThreads()} every callback gets its own virtual thread.
+ *
+ * The task only waits for the calls, the calls themselves and the parsing and validation of the responses run on the
+ * executors of the {@link TokenExchange} and {@link BankIDProducts} (the common pool by default). The bounded pool of
+ * platform threads must not be given to them, the waiting callbacks would take all its threads and the responses
+ * would never be parsed. An unbounded virtual thread executor can be shared, so the whole callback runs on virtual
+ * threads.
+ */
+public class LoginCallback {
+
+    private final TokenExchange tokenExchange;
+    private final BankIDProducts products;
+    private final ExecutorService executor;
+
+    public LoginCallback(TokenExchange tokenExchange, BankIDProducts products, ExecutorService executor) {
+        this.tokenExchange = tokenExchange;
+        this.products = products;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts the callback flow on the pipeline executor
+     *
+     * @param code code from callback on redirect URI
+     * @param nonce nonce sent in the authorization request, null to skip the nonce check
+     * @param product class of the requested product
+     */
+    public <T extends IProduct> CompletableFuture<Result<T>> handle(AuthorizationCode code, Nonce nonce, Class<T> product) {
+        return CompletableFuture.supplyAsync(() -> login(code, nonce, product), executor);
+    }
+
+    /**
+     * The callback flow, blocks the current thread until all calls are done
+     *
+     * @throws java.util.concurrent.CompletionException when the exchange or a data call fails
+     */
+    public <T extends IProduct> Result<T> login(AuthorizationCode code, Nonce nonce, Class<T> product) {
+
+        // Exchange the code for tokens
+        OIDCTokens tokens = tokenExchange.exchangeCode(code, nonce).join();
+
+        // BankID issues bearer access tokens
+        BearerAccessToken accessToken = (BearerAccessToken) tokens.getAccessToken();
+
+        // The requested product merged with the UserInfo data, both calls run in parallel
+        T profile = products.fetchProfileWithUserInfo(accessToken, product).join();
+
+        return new Result<>(tokens, profile);
+    }
+
+    /**
+     * Outcome of a successful login
+     */
+    public static class Result<T extends IProduct> {
+
+        private final OIDCTokens tokens;
+        private final T product;
+
+        Result(OIDCTokens tokens, T product) {
+            this.tokens = tokens;
+            this.product = product;
+        }
+
+        public OIDCTokens getTokens() {
+            return tokens;
+        }
+
+        public T getProduct() {
+            return product;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package cz.bankid.examples.auth;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the login callback pipeline ({@link LoginCallback})
+ *
+ * By default the callbacks run on a fixed pool of platform threads, so the number of concurrent logins is capped by
+ * the pool size. Virtual threads (Java 21+) are opt-in, either explicitly with {@link #virtualThreads()} or with the
+ * system property {@value #VIRTUAL_THREADS_PROPERTY}=true. The examples are compiled for Java 11, so the virtual
+ * thread executor is looked up at runtime.
+ */
+public final class LoginExecutors {
+
+    // System property enabling virtual threads for the login callbacks
+    public static final String VIRTUAL_THREADS_PROPERTY = "bankid.login.virtualThreads";
+
+    // Executors.newVirtualThreadPerTaskExecutor() when running on Java 21+
+    private static final MethodHandle NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+    private LoginExecutors() {
+    }
+
+    /**
+     * True when the JVM supports virtual threads
+     */
+    public static boolean virtualThreadsSupported() {
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Executor starting a new virtual thread for every callback
+     *
+     * @throws UnsupportedOperationException when the JVM does not support virtual threads
+     */
+    public static ExecutorService virtualThreads() {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer, running on "
+                    + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot create the virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Fixed pool of platform threads
+     */
+    public static ExecutorService platformThreads(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "bankid-login-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Virtual threads when enabled by the system property {@value #VIRTUAL_THREADS_PROPERTY}, otherwise a fixed pool
+     * of platform threads
+     */
+    public static ExecutorService fromSystemProperties(int platformThreads) {
+        if (Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY)) {
+            return virtualThreads();
+        }
+        return platformThreads(platformThreads);
+    }
+
+    private static MethodHandle findVirtualThreadExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -1,15 +1,19 @@
 package cz.bankid.examples.auth;
 
+import com.nimbusds.oauth2.sdk.AuthorizationCode;
+import com.nimbusds.oauth2.sdk.ParseException;
 import com.nimbusds.oauth2.sdk.ResponseType;
 import com.nimbusds.oauth2.sdk.Scope;
 import com.nimbusds.oauth2.sdk.id.ClientID;
 import com.nimbusds.oauth2.sdk.id.State;
+import com.nimbusds.oauth2.sdk.pkce.CodeVerifier;
 import com.nimbusds.openid.connect.sdk.AuthenticationRequest;
 import com.nimbusds.openid.connect.sdk.Nonce;
 import com.nimbusds.openid.connect.sdk.Prompt;
 
+import java.io.IOException;
 import java.net.URI;
-import java.net.URISyntaxException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Example of building a BankID Login URI
@@ -21,45 +25,109 @@ import java.net.URISyntaxException;
 public class LoginURL {
 
     // Application configuration from BankID dev. portal
-    private String[] scopes = {"openid", "profile.titles", "profile.name", "profile.email", "offline_access"};
-    private ClientID clientId = new ClientID(" ... application client_id ...");
-    private String redirectURI = "https://application.my/callback";
+    private final Scope scope;
+    private final ClientID clientId;
+    private final URI redirectURI;
 
     // BankID configuration (from discovery endpoint)
-    private String authorizationEndpoint = "https://oidc.sandbox.bankid.cz/auth";
+    private final DiscoveryCache discovery;
 
+    // Template compiled for the current authorization endpoint
+    private volatile LoginURLTemplate template;
 
-    public void getLoginURI() {
+    public LoginURL() {
+        this(new Scope("openid", "profile.titles", "profile.name", "profile.email", "offline_access"),
+                new ClientID(" ... application client_id ..."),
+                URI.create("https://application.my/callback"),
+                BankIDConfiguration.sandbox());
+    }
 
-        // Creating the required scopes
-        Scope scope = new Scope(scopes);
+    public LoginURL(Scope scope, ClientID clientId, URI redirectURI, DiscoveryCache discovery) {
+        this.scope = scope;
+        this.clientId = clientId;
+        this.redirectURI = redirectURI;
+        this.discovery = discovery;
+    }
 
-        try {
-            // Construct the AuthenticationRequest Builder with scope, client_id and redirect_uri parameters
-            AuthenticationRequest.Builder authBuilder = new AuthenticationRequest.Builder(
-            // We are generating a URL for code_grant
-                    new ResponseType("code"),
-                    scope,
-                    clientId,
-                    new URI(redirectURI)
-            );
+    /**
+     * Builds the login URI with the state and nonce of the authorization
+     *
+     * @param state state to be returned in the callback
+     * @param nonce nonce to be returned in the id_token
+     */
+    public URI buildLoginURI(State state, Nonce nonce) throws IOException, ParseException {
+
+        // Construct the AuthenticationRequest Builder with scope, client_id and redirect_uri parameters
+        AuthenticationRequest.Builder authBuilder = new AuthenticationRequest.Builder(
+        // We are generating a URL for code_grant
+                new ResponseType("code"),
+                scope,
+                clientId,
+                redirectURI
+        );
+
+        // Set the auth endpoint URI
+        authBuilder.endpointURI(discovery.get().getAuthorizationEndpointURI());
+
+        // Set the state
+        authBuilder.state(state);
+
+        // Set the nonce
+        authBuilder.nonce(nonce);
+
+        // Set prompt=consent
+        authBuilder.prompt(new Prompt("consent"));
+
+        // ... and build the auth login URI
+        AuthenticationRequest request = authBuilder.build();
+        return request.toURI();
+    }
 
-            // Set the auth endpoint URI
-            authBuilder.endpointURI(new URI(authorizationEndpoint));
+    /**
+     * Precompiled login URI for the current authorization endpoint, for the high-volume logins
+     *
+     * The template is compiled once and again only when the endpoint in the BankID configuration changes.
+     */
+    public LoginURLTemplate template() throws IOException, ParseException {
+        URI endpoint = discovery.get().getAuthorizationEndpointURI();
+        LoginURLTemplate current = template;
+        if (current == null || !current.getAuthorizationEndpointURI().equals(endpoint)) {
+            current = new LoginURLTemplate(scope, clientId, redirectURI, endpoint);
+            template = current;
+        }
+        return current;
+    }
 
-            // Set random (default constructor) state
-            authBuilder.state(new State());
+    /**
+     * Builds the login URI for a new authorization with PKCE, the authorization waits for its callback in the store
+     *
+     * @param pending store of the authorizations checked by {@link TokenExchange#exchangeCode(AuthorizationCode,
+     *                State, PendingAuthorizations)}
+     * @throws RejectedExecutionException when too many logins are pending, the login should be retried later
+     */
+    public URI buildLoginURI(PendingAuthorizations pending) throws IOException, ParseException {
+        PendingAuthorizations.Authorization authorization = pending.create();
+        if (authorization == null) {
+            throw new RejectedExecutionException("Too many pending logins");
+        }
+        return template().buildLoginURI(authorization.getState(), authorization.getNonce(),
+                authorization.getCodeVerifier());
+    }
 
-            // Set random (default constructor) nonce
-            authBuilder.nonce(new Nonce());
+    public void getLoginURI() {
 
-            // Set prompt=consent
-            authBuilder.prompt(new Prompt("consent"));
+        try {
+            // Set random (default constructor) state and nonce
+            URI loginURI = buildLoginURI(new State(), new Nonce());
 
-            // ... and build the auth login URI
-            AuthenticationRequest request = authBuilder.build();
+            // The same from the precompiled template, with PKCE (keep the verifier for the code exchange)
+            RandomValues random = BatchedRandomValues.shared();
+            CodeVerifier codeVerifier = random.codeVerifier();
+            URI templateURI = template().buildLoginURI(random.state(), random.nonce(), codeVerifier);
 
-        } catch (URISyntaxException e) {
+        } catch (ParseException e) {
+            // TODO processing the error
+        } catch (IOException e) {
             // TODO processing the error
         }
 
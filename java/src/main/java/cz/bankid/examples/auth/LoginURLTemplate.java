@@ -0,0 +1,119 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.oauth2.sdk.Scope;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.State;
+import com.nimbusds.oauth2.sdk.pkce.CodeChallenge;
+import com.nimbusds.oauth2.sdk.pkce.CodeChallengeMethod;
+import com.nimbusds.oauth2.sdk.pkce.CodeVerifier;
+import com.nimbusds.openid.connect.sdk.Nonce;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Precompiled BankID login URI of one application
+ *
+ * The {@link com.nimbusds.openid.connect.sdk.AuthenticationRequest.Builder} parses and serializes all parameters on
+ * every login, though only the state, the nonce and the PKCE code_challenge differ between the logins. The template
+ * encodes the authorization endpoint, response_type, client_id, redirect_uri, scope and prompt once, a login only
+ * appends its own values. The resulting URI has the same parameters as the one of {@link LoginURL#buildLoginURI}.
+ *
+ * The template is bound to the authorization endpoint it was compiled for, {@link LoginURL#template()} compiles a new
+ * one when the endpoint in the BankID configuration changes. The template is immutable and shared by all threads.
+ */
+public final class LoginURLTemplate {
+
+    private final URI authorizationEndpoint;
+
+    // Endpoint with the static parameters, ends before "&state="
+    private final String prefix;
+
+    /**
+     * @param scope requested scopes
+     * @param clientId application client_id
+     * @param redirectURI application redirect URI
+     * @param authorizationEndpoint authorization endpoint from the BankID configuration
+     */
+    public LoginURLTemplate(Scope scope, ClientID clientId, URI redirectURI, URI authorizationEndpoint) {
+        this.authorizationEndpoint = authorizationEndpoint;
+
+        String endpoint = authorizationEndpoint.toString();
+        StringBuilder prefix = new StringBuilder(endpoint.length() + 256).append(endpoint);
+        prefix.append(authorizationEndpoint.getRawQuery() == null ? '?' : '&');
+        prefix.append("response_type=code");
+        prefix.append("&client_id=").append(encode(clientId.getValue()));
+        prefix.append("&redirect_uri=").append(encode(redirectURI.toString()));
+        prefix.append("&scope=").append(encode(scope.toString()));
+        prefix.append("&prompt=consent");
+        this.prefix = prefix.toString();
+    }
+
+    /**
+     * The endpoint the template was compiled for
+     */
+    public URI getAuthorizationEndpointURI() {
+        return authorizationEndpoint;
+    }
+
+    /**
+     * Builds the login URI with the state and nonce of the authorization
+     */
+    public URI buildLoginURI(State state, Nonce nonce) {
+        return URI.create(buildLoginURL(state, nonce, null));
+    }
+
+    /**
+     * Builds the login URI with the state, nonce and the S256 code_challenge of the PKCE code verifier
+     *
+     * The same verifier has to be sent with the code, {@code TokenExchange.exchangeCode(code, nonce, codeVerifier)}.
+     */
+    public URI buildLoginURI(State state, Nonce nonce, CodeVerifier codeVerifier) {
+        return URI.create(buildLoginURL(state, nonce, codeVerifier));
+    }
+
+    /**
+     * The login URI as a string, for example for the Location header of the redirect
+     *
+     * @param codeVerifier PKCE code verifier, null without PKCE
+     */
+    public String buildLoginURL(State state, Nonce nonce, CodeVerifier codeVerifier) {
+        String challenge = codeVerifier == null
+                ? null : CodeChallenge.compute(CodeChallengeMethod.S256, codeVerifier).getValue();
+
+        StringBuilder url = new StringBuilder(prefix.length() + 160).append(prefix);
+        appendParameter(url, "&state=", state.getValue());
+        appendParameter(url, "&nonce=", nonce.getValue());
+        if (challenge != null) {
+            appendParameter(url, "&code_challenge=", challenge);
+            url.append("&code_challenge_method=S256");
+        }
+        return url.toString();
+    }
+
+    private static void appendParameter(StringBuilder url, String name, String value) {
+        url.append(name);
+        // The generated values are Base64URL and need no encoding
+        if (isUnreserved(value)) {
+            url.append(value);
+        } else {
+            url.append(encode(value));
+        }
+    }
+
+    private static boolean isUnreserved(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                    || c == '-' || c == '_' || c == '.' || c == '~')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
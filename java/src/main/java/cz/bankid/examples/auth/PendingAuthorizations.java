@@ -0,0 +1,262 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.oauth2.sdk.id.State;
+import com.nimbusds.oauth2.sdk.pkce.CodeVerifier;
+import com.nimbusds.openid.connect.sdk.Nonce;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Authorizations waiting for their callback, keyed by the state
+ *
+ * The login stores the state, the nonce and the PKCE code verifier it sent to BankID, the callback takes them back by
+ * the returned state. An authorization can be taken only once and only before it expires, so a replayed or late
+ * callback is rejected.
+ *
+ * The store is split into stripes by the hash of the state, every stripe has its own lock, map and expiry, so the
+ * logins running at once rarely wait for each other. The expiry is a time wheel per stripe: the authorizations are
+ * linked into the bucket of the tick in which they expire and every operation on the stripe drops the buckets of the
+ * passed ticks. There is no timer or background thread per authorization.
+ *
+ * The number of the pending authorizations is limited, every stripe takes its share of the capacity. When a stripe is
+ * full, {@link #add(Authorization)} returns false and the login should be refused (for example with 503) instead of
+ * growing the memory during a login storm.
+ */
+public class PendingAuthorizations {
+
+    static final int DEFAULT_STRIPES = 16;
+
+    // Resolution of the expiry
+    static final long TICK_MILLIS = 1000;
+
+    private final long ttlMillis;
+    private final RandomValues randomValues;
+    private final Clock clock;
+    private final Stripe[] stripes;
+
+    /**
+     * @param ttl how long the login may take, from the redirect to BankID to the callback
+     * @param capacity maximum number of the pending authorizations
+     */
+    public PendingAuthorizations(Duration ttl, int capacity) {
+        this(ttl, capacity, BatchedRandomValues.shared());
+    }
+
+    /**
+     * @param randomValues source of the state, nonce and code verifier of {@link #create()}
+     */
+    public PendingAuthorizations(Duration ttl, int capacity, RandomValues randomValues) {
+        this(ttl, capacity, randomValues, DEFAULT_STRIPES, Clock.systemUTC());
+    }
+
+    PendingAuthorizations(Duration ttl, int capacity, RandomValues randomValues, int stripeCount, Clock clock) {
+        if (ttl.toMillis() < TICK_MILLIS || capacity < stripeCount || Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("Unsupported ttl, capacity or stripe count");
+        }
+        this.ttlMillis = ttl.toMillis();
+        this.randomValues = randomValues;
+        this.clock = clock;
+
+        // Expiry ticks of the pending authorizations span ttl plus the tick being filled
+        int buckets = (int) (ttlMillis / TICK_MILLIS) + 2;
+        long tick = clock.millis() / TICK_MILLIS;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(capacity / stripeCount, buckets, tick);
+        }
+    }
+
+    /**
+     * Creates the authorization with a new random state, nonce and PKCE code verifier and stores it
+     *
+     * @return the authorization to send to BankID, null when the store is full
+     */
+    public Authorization create() {
+        Authorization authorization = new Authorization(randomValues.state(), randomValues.nonce(),
+                randomValues.codeVerifier());
+        return add(authorization) ? authorization : null;
+    }
+
+    /**
+     * Stores the authorization until its callback
+     *
+     * @return false when the store is full or the state is already pending
+     */
+    public boolean add(Authorization authorization) {
+        long now = clock.millis();
+        String key = authorization.getState().getValue();
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            stripe.expire(now);
+            if (stripe.entries.size() >= stripe.capacity || stripe.entries.containsKey(key)) {
+                return false;
+            }
+            Entry entry = new Entry(authorization, now + ttlMillis);
+            stripe.entries.put(key, entry);
+            stripe.link(entry);
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the authorization of the callback, the same state is unknown afterwards
+     *
+     * @param state state from the callback
+     * @return the pending authorization, null when the state is unknown, expired or already used
+     */
+    public Authorization consume(State state) {
+        long now = clock.millis();
+        String key = state.getValue();
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            stripe.expire(now);
+            Entry entry = stripe.entries.remove(key);
+            if (entry == null) {
+                return null;
+            }
+            stripe.unlink(entry);
+            // The wheel expires by whole ticks, the exact time is checked here
+            return now < entry.expiresAt ? entry.authorization : null;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Number of the pending authorizations, including the expired ones not dropped yet
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.entries.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripe(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * One part of the store with its own lock
+     */
+    private static final class Stripe {
+
+        final ReentrantLock lock = new ReentrantLock();
+        final HashMap<String, Entry> entries = new HashMap<>();
+        final int capacity;
+
+        // Time wheel, the authorizations expiring in a tick are linked in the bucket of the tick
+        final Entry[] buckets;
+        long expiredTick;
+
+        Stripe(int capacity, int buckets, long tick) {
+            this.capacity = capacity;
+            this.buckets = new Entry[buckets];
+            this.expiredTick = tick;
+        }
+
+        /**
+         * Drops the authorizations of the ticks that have passed
+         */
+        void expire(long now) {
+            long tick = now / TICK_MILLIS;
+            if (tick - expiredTick >= buckets.length) {
+                // Idle longer than the wheel, every bucket has expired
+                expiredTick = tick - buckets.length;
+            }
+            while (expiredTick < tick) {
+                expiredTick++;
+                int bucket = bucket(expiredTick);
+                for (Entry entry = buckets[bucket]; entry != null; entry = entry.next) {
+                    entries.remove(entry.authorization.getState().getValue());
+                }
+                buckets[bucket] = null;
+            }
+        }
+
+        void link(Entry entry) {
+            // Rounded up, the entry is dropped only after it has expired
+            entry.bucket = bucket((entry.expiresAt + TICK_MILLIS - 1) / TICK_MILLIS);
+            entry.next = buckets[entry.bucket];
+            if (entry.next != null) {
+                entry.next.prev = entry;
+            }
+            buckets[entry.bucket] = entry;
+        }
+
+        void unlink(Entry entry) {
+            if (entry.prev == null) {
+                buckets[entry.bucket] = entry.next;
+            } else {
+                entry.prev.next = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.prev = entry.prev;
+            }
+        }
+
+        private int bucket(long tick) {
+            return (int) (tick % buckets.length);
+        }
+    }
+
+    private static final class Entry {
+
+        final Authorization authorization;
+        final long expiresAt;
+
+        int bucket;
+        Entry prev;
+        Entry next;
+
+        Entry(Authorization authorization, long expiresAt) {
+            this.authorization = authorization;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Values of one login sent to BankID and checked in its callback
+     */
+    public static final class Authorization {
+
+        private final State state;
+        private final Nonce nonce;
+        private final CodeVerifier codeVerifier;
+
+        /**
+         * @param codeVerifier PKCE code verifier, null without PKCE
+         */
+        public Authorization(State state, Nonce nonce, CodeVerifier codeVerifier) {
+            this.state = state;
+            this.nonce = nonce;
+            this.codeVerifier = codeVerifier;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public Nonce getNonce() {
+            return nonce;
+        }
+
+        public CodeVerifier getCodeVerifier() {
+            return codeVerifier;
+        }
+    }
+}
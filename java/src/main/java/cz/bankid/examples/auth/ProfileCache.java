@@ -0,0 +1,262 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.oauth2.sdk.token.AccessToken;
+import cz.bankid.examples.product.IProduct;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of the UserInfo and Profile data keyed by the access_token
+ *
+ * Reloading a page during a session asks for the same data with the same access_token again. The cache keeps the
+ * parsed products of the recently used tokens, so these calls do not go to BankID. The tokens themselves are not
+ * stored, the entries are keyed by the SHA-256 hash of the token.
+ *
+ * The number of tokens is bounded, the least recently used token is evicted first. An entry lives at most for the
+ * configured time and never after the token expires. The expiration of the token is passed to
+ * {@link #put(AccessToken, Class, IProduct, long, Instant)} (for example the {@code expires_at} of the session
+ * tokens), otherwise the lifetime of the token ({@code expires_in}) is counted from the time the data were cached,
+ * which fits only a token issued just now. The entries of a token should be removed on logout with
+ * {@link #invalidate(AccessToken)}.
+ *
+ * A fetch running during the invalidation must not store the data of the invalidated token afterwards. The fetch
+ * takes the {@link #stamp()} before it starts and passes it to {@link #put(AccessToken, Class, IProduct, long)}, the
+ * data are not stored when the token was invalidated since then.
+ *
+ * The cached products are shared by all callers and must be treated as read-only.
+ */
+public class ProfileCache {
+
+    private final int maximumTokens;
+    private final long maximumLifetimeMillis;
+    private final Clock clock;
+
+    // Products by token hash, in access order
+    private final LinkedHashMap<String, Map<Class<?>, Entry>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Invalidation stamps by token hash, in invalidation order, at most maximumTokens of them
+    private final LinkedHashMap<String, Long> invalidated = new LinkedHashMap<>();
+
+    // Number of invalidations, the newest stamp dropped from invalidated
+    private long invalidations;
+    private long droppedStamp;
+
+    // Guards entries and the invalidation stamps, also the reads change the access order
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumTokens maximum number of access tokens with cached data
+     * @param maximumLifetime maximum lifetime of an entry
+     */
+    public ProfileCache(int maximumTokens, Duration maximumLifetime) {
+        this(maximumTokens, maximumLifetime, Clock.systemUTC());
+    }
+
+    ProfileCache(int maximumTokens, Duration maximumLifetime, Clock clock) {
+        if (maximumTokens < 1) {
+            throw new IllegalArgumentException("The maximum number of tokens must be positive");
+        }
+        this.maximumTokens = maximumTokens;
+        this.maximumLifetimeMillis = maximumLifetime.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the cached product, null when the product of the token is not cached or has expired
+     */
+    public <T extends IProduct> T get(AccessToken token, Class<T> product) {
+        String tokenHash = hash(token);
+        long now = clock.millis();
+
+        lock.lock();
+        try {
+            Map<Class<?>, Entry> products = entries.get(tokenHash);
+            Entry entry = products == null ? null : products.get(product);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (entry.expiresAt <= now) {
+                products.remove(product);
+                if (products.isEmpty()) {
+                    entries.remove(tokenHash);
+                }
+                evictions.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return product.cast(entry.data);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Caches the product obtained with the token
+     */
+    public <T extends IProduct> void put(AccessToken token, Class<T> product, T data) {
+        put(token, product, data, Long.MAX_VALUE);
+    }
+
+    /**
+     * Caches the product obtained with the token unless the token was invalidated since the stamp was taken
+     *
+     * The lifetime of the token is counted from now.
+     *
+     * @param stamp {@link #stamp()} taken before the product was requested
+     */
+    public <T extends IProduct> void put(AccessToken token, Class<T> product, T data, long stamp) {
+        Instant expiresAt = token.getLifetime() > 0 ? clock.instant().plusSeconds(token.getLifetime()) : null;
+        put(token, product, data, stamp, expiresAt);
+    }
+
+    /**
+     * Caches the product obtained with the token until the token expires, unless the token was invalidated since the
+     * stamp was taken
+     *
+     * @param stamp {@link #stamp()} taken before the product was requested
+     * @param expiresAt expiration of the token, null when unknown
+     */
+    public <T extends IProduct> void put(AccessToken token, Class<T> product, T data, long stamp, Instant expiresAt) {
+        long now = clock.millis();
+        long entryExpiresAt = now + maximumLifetimeMillis;
+        if (expiresAt != null) {
+            entryExpiresAt = Math.min(entryExpiresAt, expiresAt.toEpochMilli());
+        }
+        if (entryExpiresAt <= now) {
+            return;
+        }
+        String tokenHash = hash(token);
+        Entry entry = new Entry(data, entryExpiresAt);
+
+        lock.lock();
+        try {
+            if (droppedStamp > stamp || invalidated.getOrDefault(tokenHash, 0L) > stamp) {
+                return;
+            }
+            entries.computeIfAbsent(tokenHash, key -> new HashMap<>(4)).put(product, entry);
+            evictEldest();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stamp of the invalidations so far, to be taken before the data are requested
+     */
+    public long stamp() {
+        lock.lock();
+        try {
+            return invalidations;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all cached data of the token, for example on logout
+     */
+    public void invalidate(AccessToken token) {
+        String tokenHash = hash(token);
+        lock.lock();
+        try {
+            entries.remove(tokenHash);
+            invalidated.remove(tokenHash);
+            invalidated.put(tokenHash, ++invalidations);
+            if (invalidated.size() > maximumTokens) {
+                // The fetches older than the dropped stamp are not cached at all
+                Iterator<Long> eldest = invalidated.values().iterator();
+                droppedStamp = eldest.next();
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all cached data
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            entries.clear();
+            invalidated.clear();
+            droppedStamp = ++invalidations;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of access tokens with cached data
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of products removed because of the size limit or the expiration
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private void evictEldest() {
+        Iterator<Map<Class<?>, Entry>> eldest = entries.values().iterator();
+        while (entries.size() > maximumTokens) {
+            evictions.add(eldest.next().size());
+            eldest.remove();
+        }
+    }
+
+    static String hash(AccessToken token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64URL.encode(digest.digest(token.getValue().getBytes(StandardCharsets.UTF_8))).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static class Entry {
+
+        final IProduct data;
+        final long expiresAt;
+
+        Entry(IProduct data, long expiresAt) {
+            this.data = data;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
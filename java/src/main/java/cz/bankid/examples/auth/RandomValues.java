@@ -0,0 +1,53 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.oauth2.sdk.id.State;
+import com.nimbusds.oauth2.sdk.pkce.CodeVerifier;
+import com.nimbusds.openid.connect.sdk.Nonce;
+
+import java.security.SecureRandom;
+
+/**
+ * Source of the random state, nonce and PKCE code verifier of the logins
+ *
+ * The values have 32 random bytes encoded as Base64URL without padding, like the values of the default Nimbus
+ * constructors. {@link BatchedRandomValues#shared()} is used by default, {@link #secureRandom()} keeps the Nimbus
+ * behavior of one shared {@link SecureRandom}.
+ */
+@FunctionalInterface
+public interface RandomValues {
+
+    /**
+     * Number of the random bytes of every value
+     */
+    int BYTE_LENGTH = 32;
+
+    /**
+     * New random value, the Base64URL encoding of {@code byteLength} random bytes
+     */
+    String nextValue(int byteLength);
+
+    default State state() {
+        return new State(nextValue(BYTE_LENGTH));
+    }
+
+    default Nonce nonce() {
+        return new Nonce(nextValue(BYTE_LENGTH));
+    }
+
+    default CodeVerifier codeVerifier() {
+        return new CodeVerifier(nextValue(BYTE_LENGTH));
+    }
+
+    /**
+     * Values drawn from one shared {@link SecureRandom}, every value with a call of the generator
+     */
+    static RandomValues secureRandom() {
+        SecureRandom random = new SecureRandom();
+        return byteLength -> {
+            byte[] bytes = new byte[byteLength];
+            random.nextBytes(bytes);
+            return Base64URL.encode(bytes).toString();
+        };
+    }
+}
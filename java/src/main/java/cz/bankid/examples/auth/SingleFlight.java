@@ -0,0 +1,59 @@
+package cz.bankid.examples.auth;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Deduplication of concurrent calls with the same key
+ *
+ * The first caller starts the call, the callers coming while it runs get its result instead of making the same
+ * call again. The key is released when the call completes, the next caller starts a new call. Every caller gets its
+ * own copy of the shared future, so cancelling it does not affect the others.
+ *
+ * @param <K> key of the call, for example the session or the token
+ * @param <V> result of the call
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Starts the call unless a call with the same key is running, then joins it
+     */
+    public CompletableFuture<V> execute(K key, Supplier<? extends CompletionStage<? extends V>> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+
+        // Registered before the call starts, a call completing right away releases the key at once, which would be
+        // a recursive update inside computeIfAbsent
+        CompletableFuture<V> pending = inFlight.putIfAbsent(key, flight);
+        if (pending != null) {
+            return pending.copy();
+        }
+
+        CompletionStage<? extends V> stage;
+        try {
+            stage = call.get();
+        } catch (RuntimeException e) {
+            stage = CompletableFuture.failedFuture(e);
+        }
+        stage.whenComplete((value, error) -> {
+            // Released before completing, so a caller reacting to the result starts a new call
+            inFlight.remove(key, flight);
+            if (error != null) {
+                flight.completeExceptionally(error);
+            } else {
+                flight.complete(value);
+            }
+        });
+        return flight.copy();
+    }
+
+    /**
+     * Number of the running calls
+     */
+    public int size() {
+        return inFlight.size();
+    }
+}
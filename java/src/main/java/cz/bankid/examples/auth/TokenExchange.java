@@ -5,14 +5,30 @@ import com.nimbusds.oauth2.sdk.*;
 import com.nimbusds.oauth2.sdk.auth.ClientAuthentication;
 import com.nimbusds.oauth2.sdk.auth.ClientSecretPost;
 import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
 import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.State;
+import com.nimbusds.oauth2.sdk.pkce.CodeVerifier;
 import com.nimbusds.oauth2.sdk.token.AccessToken;
 import com.nimbusds.oauth2.sdk.token.RefreshToken;
+import com.nimbusds.oauth2.sdk.token.Tokens;
+import com.nimbusds.openid.connect.sdk.Nonce;
+import com.nimbusds.openid.connect.sdk.OIDCTokenResponse;
 import com.nimbusds.openid.connect.sdk.OIDCTokenResponseParser;
+import com.nimbusds.openid.connect.sdk.token.OIDCTokens;
+import cz.bankid.examples.metrics.BankIDMetrics;
+import cz.bankid.examples.metrics.Endpoint;
+import cz.bankid.examples.metrics.MetricsRegistry;
+import cz.bankid.examples.transport.BankIDTransport;
+import cz.bankid.examples.transport.HttpClientTransport;
+import cz.bankid.examples.transport.MeteredTransport;
 
-import java.io.IOException;
 import java.net.URI;
-import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Token exchange example
@@ -22,67 +38,205 @@ import java.net.URISyntaxException;
  * The issuance of a `refresh_token` is conditional on the registration of a refresh token grant at the Developer Portal for
  * application and the use of the scope `offline_access` in the /auth request. The example assumes that the application
  * already has `code` obtained from a callback call to a redirect URI.
+ *
+ * The exchange is asynchronous, {@link #exchangeCode(AuthorizationCode, Nonce)} returns immediately and the tokens
+ * are delivered by the returned future. Parsing and validation of the response run on the configured executor.
  */
 public class TokenExchange {
 
     // Application configuration from BankID dev. portal
-    private ClientID clientId = new ClientID(" ... application client_id ...");
+    private final ClientID clientId;
 
-    // Application redirect URI ()
-    private String redirectURI = "https://application.my/callback";
+    // Application redirect URI
+    private final URI redirectURI;
 
     // Client secret value
-    private String clintSecretStr = "... application client secret ...";
+    private final Secret clientSecret;
 
-    // BankID token endpoint (from discovery endpoint)
-    private String tokenEndpoint = "https://oidc.sandbox.bankid.cz/token";
+    // BankID configuration (from discovery endpoint)
+    private final DiscoveryCache discovery;
 
-    // Code from callback on redirect URI
-    private String code = "... code ...";
+    // id_token validation against the cached BankID signing keys
+    private final IDTokenVerifier idTokenVerifier;
 
-    private void getToken() {
+    // Pooled HTTP client shared by all BankID calls
+    private final BankIDTransport transport;
 
-        try {
-            // Set the code object
-            AuthorizationCode authorizationCode = new AuthorizationCode(code);
+    // Executor for parsing and validation of the responses
+    private final Executor executor;
 
-            // Set the redirectURI and create code grant object
-            URI callbackURI =  new URI(redirectURI);
-            AuthorizationGrant codeGrant = new AuthorizationCodeGrant(authorizationCode, callbackURI);
+    // Running refreshes by refresh_token
+    private final SingleFlight<String, Tokens> refreshes = new SingleFlight<>();
 
-            // Set the client_secret value and create client authentication
-            Secret clientSecret = new Secret(clintSecretStr);
-            ClientAuthentication clientAuth = new ClientSecretPost(clientId, clientSecret);
-
-            // Create token endpoint URI and make the token request
-            URI tokenEndpointURI = new URI(tokenEndpoint);
-            TokenRequest request = new TokenRequest(tokenEndpointURI, clientAuth, codeGrant);
+    public TokenExchange() {
+        this(new ClientID(" ... application client_id ..."),
+                new Secret("... application client secret ..."),
+                URI.create("https://application.my/callback"),
+                BankIDConfiguration.sandbox(),
+                BankIDConfiguration.sandboxKeys(),
+                HttpClientTransport.shared(),
+                ForkJoinPool.commonPool());
+    }
 
-            // Get the token response
-            TokenResponse tokenResponse = OIDCTokenResponseParser.parse(request.toHTTPRequest().send());
-            if (tokenResponse.indicatesSuccess()) {
+    public TokenExchange(ClientID clientId, Secret clientSecret, URI redirectURI, DiscoveryCache discovery,
+                         JWKSCache keys, BankIDTransport transport, Executor executor) {
+        this(clientId, clientSecret, redirectURI, discovery, keys, transport, executor, MetricsRegistry.global());
+    }
 
-                // Get success response
-                AccessTokenResponse successResponse = tokenResponse.toSuccessResponse();
+    /**
+     * @param metrics receiver of the timing of the token calls
+     */
+    public TokenExchange(ClientID clientId, Secret clientSecret, URI redirectURI, DiscoveryCache discovery,
+                         JWKSCache keys, BankIDTransport transport, Executor executor, BankIDMetrics metrics) {
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.redirectURI = redirectURI;
+        this.discovery = discovery;
+        this.idTokenVerifier = new IDTokenVerifier(discovery, keys, clientId);
+        this.transport = new MeteredTransport(transport, Endpoint.TOKEN, metrics);
+        this.executor = executor;
+    }
 
-                // Obtaining an access_token
-                AccessToken accessToken = successResponse.getTokens().getAccessToken();
+    /**
+     * Exchanges the code for tokens without checking the nonce
+     */
+    public CompletableFuture<OIDCTokens> exchangeCode(AuthorizationCode code) {
+        return exchangeCode(code, null);
+    }
 
-                // and also obtaining an refresh_token (if can)
-                RefreshToken refreshToken = successResponse.getTokens().getRefreshToken();
+    /**
+     * Exchanges the code from the callback for tokens, the id_token is validated before the future completes
+     *
+     * The future fails with {@link GeneralException} when BankID returns an error, with
+     * {@link com.nimbusds.jwt.proc.BadJWTException} when the id_token is not valid and with
+     * {@link java.io.IOException} when the call fails.
+     *
+     * @param code code from callback on redirect URI
+     * @param expectedNonce nonce sent in the authorization request, null to skip the nonce check
+     */
+    public CompletableFuture<OIDCTokens> exchangeCode(AuthorizationCode code, Nonce expectedNonce) {
+        return exchangeCode(code, expectedNonce, null);
+    }
 
-                // and and finally obtaining an id_token
-                JWT idToken = successResponse.getTokens().toOIDCTokens().getIDToken();
+    /**
+     * Exchanges the code of a login started by {@link LoginURL#buildLoginURI(PendingAuthorizations)}
+     *
+     * The authorization is taken from the store by the state of the callback and its nonce and code verifier are
+     * checked. The future fails with {@link GeneralException} when the state is unknown, expired or already used.
+     *
+     * @param code code from callback on redirect URI
+     * @param state state from callback on redirect URI
+     * @param pending store of the pending authorizations
+     */
+    public CompletableFuture<OIDCTokens> exchangeCode(AuthorizationCode code, State state,
+                                                     PendingAuthorizations pending) {
+        PendingAuthorizations.Authorization authorization = state == null ? null : pending.consume(state);
+        if (authorization == null) {
+            return CompletableFuture.failedFuture(
+                    new GeneralException("The state of the callback is unknown, expired or already used"));
+        }
+        return exchangeCode(code, authorization.getNonce(), authorization.getCodeVerifier());
+    }
 
-            } else {
-                // TODO processing the error
+    /**
+     * Exchanges the code of a login with PKCE ({@link LoginURLTemplate#buildLoginURI(State, Nonce, CodeVerifier)})
+     *
+     * @param code code from callback on redirect URI
+     * @param expectedNonce nonce sent in the authorization request, null to skip the nonce check
+     * @param codeVerifier PKCE code verifier of the login, null without PKCE
+     */
+    public CompletableFuture<OIDCTokens> exchangeCode(AuthorizationCode code, Nonce expectedNonce,
+                                                     CodeVerifier codeVerifier) {
+
+        // Set the redirectURI and create code grant object
+        AuthorizationGrant codeGrant = new AuthorizationCodeGrant(code, redirectURI, codeVerifier);
+
+        return requestTokens(codeGrant).thenApplyAsync(response -> Futures.call(() -> {
+            if (!(response instanceof OIDCTokenResponse)) {
+                throw new GeneralException("The token response does not contain id_token");
             }
-        } catch (URISyntaxException e) {
-            // TODO processing the error
-        } catch (ParseException e) {
-            // TODO processing the error
-        } catch (IOException e) {
-            // TODO processing the error
+            OIDCTokens tokens = ((OIDCTokenResponse) response).getOIDCTokens();
+
+            // Validate the id_token before trusting it (signature, issuer, audience, expiration and nonce)
+            idTokenVerifier.verify(tokens.getIDToken(), expectedNonce);
+            return tokens;
+        }), executor);
+    }
+
+    /**
+     * Exchanges the refresh_token for new tokens
+     *
+     * BankID may rotate the refresh_token, the new one is then in the returned tokens. When the response contains
+     * an id_token, it is validated like the one from the code exchange, except for the nonce. Concurrent refreshes
+     * with the same refresh_token share one request, parallel requests could invalidate each other when BankID
+     * rotates the refresh_token.
+     *
+     * @param refreshToken refresh_token issued with the offline_access scope
+     */
+    public CompletableFuture<Tokens> refresh(RefreshToken refreshToken) {
+        return refreshes.execute(refreshToken.getValue(), () -> requestTokens(new RefreshTokenGrant(refreshToken))
+                .thenApplyAsync(response -> Futures.call(() -> {
+                    if (response instanceof OIDCTokenResponse) {
+                        JWT idToken = ((OIDCTokenResponse) response).getOIDCTokens().getIDToken();
+                        if (idToken != null) {
+                            idTokenVerifier.verify(idToken, null);
+                        }
+                    }
+                    return response.getTokens();
+                }), executor));
+    }
+
+    private CompletableFuture<AccessTokenResponse> requestTokens(AuthorizationGrant grant) {
+        return CompletableFuture
+                .supplyAsync(() -> Futures.call(() -> tokenRequest(grant)), executor)
+                .thenCompose(request -> transport.sendAsync(request, executor))
+                .thenApplyAsync(response -> Futures.call(() -> parseTokenResponse(response)), executor);
+    }
+
+    private HTTPRequest tokenRequest(AuthorizationGrant grant) throws Exception {
+        // Set the client_secret value and create client authentication
+        ClientAuthentication clientAuth = new ClientSecretPost(clientId, clientSecret);
+
+        // Obtain token endpoint URI and make the token request
+        URI tokenEndpointURI = discovery.get().getTokenEndpointURI();
+        return new TokenRequest(tokenEndpointURI, clientAuth, grant).toHTTPRequest();
+    }
+
+    private static AccessTokenResponse parseTokenResponse(HTTPResponse httpResponse) throws GeneralException {
+        // Get the token response
+        TokenResponse tokenResponse = OIDCTokenResponseParser.parse(httpResponse);
+        if (!tokenResponse.indicatesSuccess()) {
+            ErrorObject error = tokenResponse.toErrorResponse().getErrorObject();
+            throw new GeneralException("Token request failed: " + error.getCode(), error);
+        }
+
+        // Get success response
+        return tokenResponse.toSuccessResponse();
+    }
+
+    private void getToken() {
+
+        // Code from callback on redirect URI
+        String code = "... code ...";
+
+        try {
+            // Exchange the code, the calling thread is free until the tokens are needed
+            CompletableFuture<OIDCTokens> exchange = exchangeCode(new AuthorizationCode(code));
+
+            OIDCTokens tokens = exchange.join();
+
+            // Obtaining an access_token
+            AccessToken accessToken = tokens.getAccessToken();
+
+            // and also obtaining an refresh_token (if can)
+            RefreshToken refreshToken = tokens.getRefreshToken();
+
+            // and and finally obtaining an already validated id_token
+            JWT idToken = tokens.getIDToken();
+
+        } catch (CompletionException e) {
+            // TODO processing the error (GeneralException, ParseException, BadJWTException, IOException)
+            Throwable cause = Futures.unwrap(e);
         }
 
     }
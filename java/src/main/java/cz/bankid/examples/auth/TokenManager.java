@@ -0,0 +1,321 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.oauth2.sdk.GeneralException;
+import com.nimbusds.oauth2.sdk.Scope;
+import com.nimbusds.oauth2.sdk.token.AccessToken;
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import com.nimbusds.oauth2.sdk.token.RefreshToken;
+import com.nimbusds.openid.connect.sdk.token.OIDCTokens;
+import cz.bankid.examples.entities.entity.Tokens;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tokens of the user sessions, refreshed before they expire
+ *
+ * The tokens from the code exchange are registered with the id of the application session. When the session has
+ * a refresh_token (offline_access scope), the access_token is refreshed in the background the configured margin
+ * before it expires. The refresh time of every session is moved earlier by a random jitter, so the sessions
+ * started together do not refresh at the same moment. For the short-lived tokens the margin is at most half and the
+ * jitter at most a quarter of the token lifetime, and a refresh is never scheduled sooner than
+ * {@value #MIN_REFRESH_DELAY_MILLIS} ms, so a session never calls the token endpoint in a loop.
+ *
+ * Only one refresh runs for a session at a time, a refresh requested meanwhile gets the pending one. The request
+ * threads never wait for the token endpoint, {@link #tokens(String)} returns a future that is already completed
+ * while the access_token is valid. The session must be removed on logout ({@link #remove(String)}), otherwise its
+ * tokens are refreshed until the refresh_token is rejected. A session with the rejected refresh_token fails at once
+ * without calling the token endpoint until its tokens are registered again.
+ */
+public class TokenManager {
+
+    // Default time before the expiration when the access_token is refreshed
+    public static final Duration DEFAULT_REFRESH_MARGIN = Duration.ofSeconds(60);
+
+    // Default maximum random shift of the refresh
+    public static final Duration DEFAULT_JITTER = Duration.ofSeconds(15);
+
+    // The shortest delay of a scheduled refresh
+    static final long MIN_REFRESH_DELAY_MILLIS = 1000L;
+
+    // Delay of the next attempt after a failed call of the token endpoint
+    static final long RETRY_DELAY_MILLIS = 10 * 1000L;
+
+    private final TokenExchange tokenExchange;
+    private final ScheduledExecutorService scheduler;
+    private final long refreshMarginMillis;
+    private final long jitterMillis;
+    private final Clock clock;
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+    public TokenManager(TokenExchange tokenExchange) {
+        this(tokenExchange, defaultScheduler(), DEFAULT_REFRESH_MARGIN, DEFAULT_JITTER);
+    }
+
+    /**
+     * @param scheduler scheduler of the refreshes, the refresh itself runs on the executor of the token exchange
+     * @param refreshMargin time before the expiration when the access_token is refreshed
+     * @param jitter maximum random shift of the refresh to an earlier time
+     */
+    public TokenManager(TokenExchange tokenExchange, ScheduledExecutorService scheduler, Duration refreshMargin,
+                        Duration jitter) {
+        this(tokenExchange, scheduler, refreshMargin, jitter, Clock.systemUTC());
+    }
+
+    TokenManager(TokenExchange tokenExchange, ScheduledExecutorService scheduler, Duration refreshMargin,
+                 Duration jitter, Clock clock) {
+        this.tokenExchange = tokenExchange;
+        this.scheduler = scheduler;
+        this.refreshMarginMillis = refreshMargin.toMillis();
+        this.jitterMillis = jitter.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Stores the tokens of the session and schedules their refresh, replaces the previous tokens of the session
+     *
+     * @param sessionId id of the application session
+     * @param issued tokens from the code exchange
+     */
+    public Tokens register(String sessionId, com.nimbusds.oauth2.sdk.token.Tokens issued) {
+        Session session = new Session(sessionId, toTokens(issued, null, clock.millis()));
+        Session previous = sessions.put(sessionId, session);
+        if (previous != null) {
+            previous.cancel();
+        }
+        schedule(session, refreshDelay(session.tokens));
+        return session.tokens;
+    }
+
+    /**
+     * The current tokens of the session, null for an unknown session
+     *
+     * The access_token may be expired when its refresh failed, {@link #tokens(String)} refreshes it.
+     */
+    public Tokens getTokens(String sessionId) {
+        Session session = sessions.get(sessionId);
+        return session == null ? null : session.tokens;
+    }
+
+    /**
+     * The tokens of the session with a valid access_token
+     *
+     * The future is completed while the access_token is valid, otherwise it completes with the refresh. It fails
+     * with {@link GeneralException} when the session is unknown or the refresh_token was rejected, the user must
+     * log in again then.
+     */
+    public CompletableFuture<Tokens> tokens(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            return CompletableFuture.failedFuture(new GeneralException("Unknown session"));
+        }
+        Tokens tokens = session.tokens;
+        if (isValid(tokens)) {
+            return CompletableFuture.completedFuture(tokens);
+        }
+        return refresh(session);
+    }
+
+    /**
+     * The valid access_token of the session with its remaining lifetime, see {@link #tokens(String)}
+     */
+    public CompletableFuture<BearerAccessToken> accessToken(String sessionId) {
+        return tokens(sessionId).thenApply(this::toAccessToken);
+    }
+
+    /**
+     * Refreshes the tokens of the session now, joins the pending refresh if there is one
+     */
+    public CompletableFuture<Tokens> refresh(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            return CompletableFuture.failedFuture(new GeneralException("Unknown session"));
+        }
+        return refresh(session);
+    }
+
+    /**
+     * Removes the session and stops refreshing its tokens, for example on logout
+     */
+    public void remove(String sessionId) {
+        Session session = sessions.remove(sessionId);
+        if (session != null) {
+            session.cancel();
+        }
+    }
+
+    /**
+     * Number of the registered sessions
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    private CompletableFuture<Tokens> refresh(Session session) {
+        GeneralException rejected = session.rejected;
+        if (rejected != null) {
+            return CompletableFuture.failedFuture(rejected);
+        }
+        while (true) {
+            CompletableFuture<Tokens> pending = session.refreshing.get();
+            if (pending != null) {
+                return pending;
+            }
+            CompletableFuture<Tokens> refresh = new CompletableFuture<>();
+            if (session.refreshing.compareAndSet(null, refresh)) {
+                start(session, refresh);
+                return refresh;
+            }
+        }
+    }
+
+    private void start(Session session, CompletableFuture<Tokens> refresh) {
+        Tokens current = session.tokens;
+        if (current.getRefresh_token() == null) {
+            session.refreshing.set(null);
+            refresh.completeExceptionally(new GeneralException("The session has no refresh_token"));
+            return;
+        }
+
+        tokenExchange.refresh(new RefreshToken(current.getRefresh_token())).whenComplete((issued, error) -> {
+            Tokens tokens = null;
+            Throwable cause = null;
+            if (error == null) {
+                tokens = toTokens(issued, current, clock.millis());
+                session.tokens = tokens;
+                schedule(session, refreshDelay(tokens));
+            } else {
+                cause = Futures.unwrap(error);
+                // The rejected refresh_token is not tried again, the user must log in again
+                if (cause instanceof GeneralException) {
+                    session.rejected = (GeneralException) cause;
+                } else {
+                    schedule(session, RETRY_DELAY_MILLIS);
+                }
+            }
+
+            // Done before completing, so a refresh requested by the callers starts a new call
+            session.refreshing.set(null);
+            if (cause == null) {
+                refresh.complete(tokens);
+            } else {
+                refresh.completeExceptionally(cause);
+            }
+        });
+    }
+
+    private void schedule(Session session, long delayMillis) {
+        if (delayMillis < 0 || sessions.get(session.id) != session) {
+            return;
+        }
+        ScheduledFuture<?> previous = session.scheduled;
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        Runnable task = () -> refresh(session);
+        session.scheduled = scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Delay of the refresh of the tokens, -1 when the tokens cannot be refreshed or do not expire
+     */
+    long refreshDelay(Tokens tokens) {
+        if (tokens.getRefresh_token() == null || tokens.getExpires_at() == 0) {
+            return -1;
+        }
+        // A margin longer than the token lifetime would refresh every new token at once
+        long lifetimeMillis = tokens.getExpires_in() * 1000;
+        long margin = Math.min(refreshMarginMillis, lifetimeMillis / 2);
+        long maxJitter = Math.min(jitterMillis, lifetimeMillis / 4);
+        long jitter = maxJitter > 0 ? ThreadLocalRandom.current().nextLong(maxJitter + 1) : 0;
+        long refreshAt = tokens.getExpires_at() * 1000 - margin - jitter;
+        return Math.max(MIN_REFRESH_DELAY_MILLIS, refreshAt - clock.millis());
+    }
+
+    private boolean isValid(Tokens tokens) {
+        // Unknown lifetime, valid until BankID rejects the token
+        return tokens.getExpires_at() == 0 || tokens.getExpires_at() * 1000 > clock.millis();
+    }
+
+    private BearerAccessToken toAccessToken(Tokens tokens) {
+        long lifetime = 0;
+        if (tokens.getExpires_at() > 0) {
+            lifetime = Math.max(1, tokens.getExpires_at() - clock.millis() / 1000);
+        }
+        return new BearerAccessToken(tokens.getAccess_token(), lifetime, Scope.parse(tokens.getScope()));
+    }
+
+    /**
+     * Tokens entity from the token response, the values not sent by BankID are kept from the previous tokens
+     */
+    static Tokens toTokens(com.nimbusds.oauth2.sdk.token.Tokens issued, Tokens previous, long now) {
+        AccessToken accessToken = issued.getAccessToken();
+
+        Tokens tokens = new Tokens();
+        tokens.setAccess_token(accessToken.getValue());
+        tokens.setToken_type(accessToken.getType().getValue());
+        tokens.setExpires_in(accessToken.getLifetime());
+        tokens.setExpires_at(accessToken.getLifetime() > 0 ? now / 1000 + accessToken.getLifetime() : 0);
+        if (accessToken.getScope() != null) {
+            tokens.setScope(accessToken.getScope().toString());
+        } else if (previous != null) {
+            tokens.setScope(previous.getScope());
+        }
+
+        // BankID may rotate the refresh_token
+        if (issued.getRefreshToken() != null) {
+            tokens.setRefresh_token(issued.getRefreshToken().getValue());
+        } else if (previous != null) {
+            tokens.setRefresh_token(previous.getRefresh_token());
+        }
+
+        if (issued instanceof OIDCTokens && ((OIDCTokens) issued).getIDTokenString() != null) {
+            tokens.setId_token(((OIDCTokens) issued).getIDTokenString());
+        } else if (previous != null) {
+            tokens.setId_token(previous.getId_token());
+        }
+        return tokens;
+    }
+
+    private static ScheduledExecutorService defaultScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bankid-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static class Session {
+
+        final String id;
+        volatile Tokens tokens;
+        volatile ScheduledFuture<?> scheduled;
+
+        // The error of the rejected refresh_token, the session is not refreshed anymore
+        volatile GeneralException rejected;
+
+        // The pending refresh, null when none runs
+        final AtomicReference<CompletableFuture<Tokens>> refreshing = new AtomicReference<>();
+
+        Session(String id, Tokens tokens) {
+            this.id = id;
+            this.tokens = tokens;
+        }
+
+        void cancel() {
+            ScheduledFuture<?> current = scheduled;
+            if (current != null) {
+                current.cancel(false);
+            }
+        }
+    }
+}
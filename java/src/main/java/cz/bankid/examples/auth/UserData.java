@@ -4,10 +4,14 @@ import com.nimbusds.oauth2.sdk.ParseException;
 import com.nimbusds.oauth2.sdk.http.HTTPResponse;
 import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
 import com.nimbusds.openid.connect.sdk.UserInfoRequest;
+import cz.bankid.examples.metrics.Endpoint;
+import cz.bankid.examples.metrics.MetricsRegistry;
+import cz.bankid.examples.transport.BankIDTransport;
+import cz.bankid.examples.transport.HttpClientTransport;
+import cz.bankid.examples.transport.MeteredTransport;
 
 import java.io.IOException;
 import java.net.URI;
-import java.net.URISyntaxException;
 
 /**
  * UserInfo or Profile Call example
@@ -18,27 +22,28 @@ import java.net.URISyntaxException;
  */
 public class UserData {
 
-    // Set the right data API url (for example UserInfo)
-    private String userInfoURL = "https://oidc.sandbox.bankid.cz/userinfo";
+    // BankID configuration (from discovery endpoint)
+    private DiscoveryCache discovery = BankIDConfiguration.sandbox();
+
+    // Pooled HTTP client shared by all BankID calls, the calls are measured in the shared metrics
+    private BankIDTransport transport = new MeteredTransport(HttpClientTransport.shared(), Endpoint.USERINFO,
+            MetricsRegistry.global());
 
     private void getData() {
 
         try {
-            URI userInfoEndpoint = new URI(userInfoURL);
+            // Set the right data API url (for example UserInfo)
+            URI userInfoEndpoint = discovery.get().getUserInfoEndpointURI();
 
             // You must have a valid access_token
             BearerAccessToken token = BearerAccessToken.parse("Bearer .... my access token ...");
 
             // And call the API
-            HTTPResponse dataResponse = new UserInfoRequest(userInfoEndpoint, token)
-                    .toHTTPRequest()
-                    .send();
+            HTTPResponse dataResponse = transport.send(new UserInfoRequest(userInfoEndpoint, token).toHTTPRequest());
 
             // Data in JSON format
             String data = dataResponse.getContentAsJSONObject().toJSONString();
 
-        } catch (URISyntaxException e) {
-            // TODO processing the error
         } catch (ParseException e) {
             // TODO processing the error
         } catch (IOException e) {
@@ -0,0 +1,245 @@
+package cz.bankid.examples.batch;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import com.nimbusds.jose.util.Base64URL;
+import cz.bankid.examples.json.BankIDJson;
+import cz.bankid.examples.product.IProduct;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detection of the changed profiles, so the re-verification job processes only the changes
+ *
+ * Every user ({@code sub}) has a snapshot of the last processed profile, its {@code updated_at} and the hash of its
+ * content. A fetched profile with the same {@code updated_at} and the same hash is unchanged and can be skipped
+ * before any mapping, validation or writes. The hash does not depend on the order of the properties and leaves out
+ * the {@code txn} claim, which differs in every response.
+ *
+ * The snapshots are kept by a {@link SnapshotStore}, in memory by default. A job running in several processes or
+ * across restarts keeps them next to the stored profiles. The snapshot should be stored only after the profile was
+ * processed, otherwise a failed write would hide the change from the next run.
+ *
+ * <pre>
+ * results.filter(ProfileBatch.Result::isSuccess)
+ *         .map(result -&gt; detector.detect(result.getProduct()))
+ *         .filter(Objects::nonNull)
+ *         .forEach(change -&gt; { ... process change.getProduct() ...; detector.commit(change); });
+ * </pre>
+ */
+public class ChangeDetector {
+
+    private final SnapshotStore store;
+
+    public ChangeDetector() {
+        this(new InMemorySnapshotStore());
+    }
+
+    public ChangeDetector(SnapshotStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Compares the profile with the last snapshot of its user
+     *
+     * @return the change to process and commit, null when the profile has not changed
+     */
+    public <T extends IProduct> Change<T> detect(T product) {
+        Snapshot snapshot = snapshot(product);
+        Snapshot previous = product.getSub() == null ? null : store.get(product.getSub());
+        if (previous != null && previous.getUpdatedAt() == snapshot.getUpdatedAt()
+                && previous.getHash().equals(snapshot.getHash())) {
+            return null;
+        }
+        return new Change<>(product, snapshot, previous);
+    }
+
+    /**
+     * Stores the snapshot of the processed change, the same profile is then reported as unchanged
+     */
+    public void commit(Change<?> change) {
+        if (change.getSnapshot().getSub() != null) {
+            store.put(change.getSnapshot());
+        }
+    }
+
+    /**
+     * Snapshot of the profile, its {@code updated_at} and the content hash
+     */
+    public static Snapshot snapshot(IProduct product) {
+        return new Snapshot(product.getSub(), product.getUpdated_at(), hash(product));
+    }
+
+    /**
+     * SHA-256 of the profile content without the {@code txn} claim, with the properties sorted by name
+     */
+    static String hash(IProduct product) {
+        JsonObject json = BankIDJson.gson().toJsonTree(product).getAsJsonObject();
+        json.remove("txn");
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+
+        // Written straight to the digest, the canonical JSON is never held as a String
+        Writer writer = new OutputStreamWriter(new DigestOutputStream(OutputStream.nullOutputStream(), digest),
+                StandardCharsets.UTF_8);
+        try (JsonWriter out = new JsonWriter(writer)) {
+            writeSorted(out, json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64URL.encode(digest.digest()).toString();
+    }
+
+    private static void writeSorted(JsonWriter out, JsonElement element) throws IOException {
+        if (element.isJsonObject()) {
+            Map<String, JsonElement> sorted = new TreeMap<>();
+            for (Map.Entry<String, JsonElement> property : element.getAsJsonObject().entrySet()) {
+                sorted.put(property.getKey(), property.getValue());
+            }
+            out.beginObject();
+            for (Map.Entry<String, JsonElement> property : sorted.entrySet()) {
+                out.name(property.getKey());
+                writeSorted(out, property.getValue());
+            }
+            out.endObject();
+        } else if (element.isJsonArray()) {
+            out.beginArray();
+            for (JsonElement item : (JsonArray) element) {
+                writeSorted(out, item);
+            }
+            out.endArray();
+        } else if (element.isJsonNull()) {
+            out.nullValue();
+        } else {
+            out.jsonValue(element.toString());
+        }
+    }
+
+    /**
+     * Storage of the last processed snapshot of every user
+     */
+    public interface SnapshotStore {
+
+        /**
+         * The last snapshot of the user, null when the user has not been processed yet
+         */
+        Snapshot get(String sub);
+
+        /**
+         * Replaces the snapshot of the user
+         */
+        void put(Snapshot snapshot);
+    }
+
+    /**
+     * Snapshots kept in memory, lost on restart
+     */
+    public static class InMemorySnapshotStore implements SnapshotStore {
+
+        private final ConcurrentHashMap<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+        @Override
+        public Snapshot get(String sub) {
+            return snapshots.get(sub);
+        }
+
+        @Override
+        public void put(Snapshot snapshot) {
+            snapshots.put(snapshot.getSub(), snapshot);
+        }
+
+        public int size() {
+            return snapshots.size();
+        }
+    }
+
+    /**
+     * The processed state of one user
+     */
+    public static final class Snapshot {
+
+        private final String sub;
+        private final long updatedAt;
+        private final String hash;
+
+        public Snapshot(String sub, long updatedAt, String hash) {
+            this.sub = sub;
+            this.updatedAt = updatedAt;
+            this.hash = hash;
+        }
+
+        public String getSub() {
+            return sub;
+        }
+
+        /**
+         * The {@code updated_at} claim of the profile
+         */
+        public long getUpdatedAt() {
+            return updatedAt;
+        }
+
+        /**
+         * Base64URL encoded SHA-256 of the profile content
+         */
+        public String getHash() {
+            return hash;
+        }
+    }
+
+    /**
+     * Changed profile with its new snapshot
+     */
+    public static final class Change<T extends IProduct> {
+
+        private final T product;
+        private final Snapshot snapshot;
+        private final Snapshot previous;
+
+        Change(T product, Snapshot snapshot, Snapshot previous) {
+            this.product = product;
+            this.snapshot = snapshot;
+            this.previous = previous;
+        }
+
+        public T getProduct() {
+            return product;
+        }
+
+        /**
+         * Snapshot to store once the change is processed ({@link ChangeDetector#commit(Change)})
+         */
+        public Snapshot getSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * The last processed snapshot, null for a new user
+         */
+        public Snapshot getPrevious() {
+            return previous;
+        }
+
+        public boolean isNew() {
+            return previous == null;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package cz.bankid.examples.batch;
+
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import com.nimbusds.oauth2.sdk.token.RefreshToken;
+import com.nimbusds.oauth2.sdk.token.Tokens;
+import cz.bankid.examples.auth.BankIDProducts;
+import cz.bankid.examples.auth.TokenExchange;
+import cz.bankid.examples.product.IProduct;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Batch refresh of the product data, for example for the scheduled KYC re-verification
+ *
+ * For every stored refresh_token new tokens are obtained and the product is fetched from the Profile API with the
+ * new access_token. The calls are asynchronous and at most {@code maxConcurrency} tokens are processed at once, so
+ * the job needs neither a thread per token nor the whole population in memory.
+ *
+ * The results are a stream that pulls the refresh tokens lazily. A new token is taken only when the consumer takes
+ * a result, a slow consumer (for example writing to the database) slows the calls down (backpressure). The results
+ * come in the order of completion. The rate of the calls per host is limited by the transport of the token exchange
+ * and the products ({@link cz.bankid.examples.transport.RateLimitedTransport}).
+ *
+ * BankID may rotate the refresh_token, the job has to store the new one from {@link Result#getTokens()}.
+ */
+public class ProfileBatch {
+
+    private final TokenExchange tokenExchange;
+    private final BankIDProducts products;
+    private final int maxConcurrency;
+
+    /**
+     * @param tokenExchange token exchange for the refresh
+     * @param products client of the Profile API
+     * @param maxConcurrency maximum number of the tokens processed at once
+     */
+    public ProfileBatch(TokenExchange tokenExchange, BankIDProducts products, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("The concurrency must be positive");
+        }
+        this.tokenExchange = tokenExchange;
+        this.products = products;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Refreshes the tokens and fetches the product for every refresh_token
+     *
+     * The failure of one token does not stop the batch, it is reported by its result. Closing the returned stream
+     * closes the stream of the refresh tokens.
+     *
+     * @param refreshTokens stored refresh tokens, consumed lazily
+     * @param product class of the product
+     */
+    public <T extends IProduct> Stream<Result<T>> refresh(Stream<RefreshToken> refreshTokens, Class<T> product) {
+        Spliterator<Result<T>> results = new Pipeline<>(refreshTokens.iterator(), product);
+        return StreamSupport.stream(results, false).onClose(refreshTokens::close);
+    }
+
+    private <T extends IProduct> void start(RefreshToken refreshToken, Class<T> product, BlockingQueue<Result<T>> done) {
+        tokenExchange.refresh(refreshToken).whenComplete((tokens, refreshError) -> {
+            if (refreshError != null) {
+                done.add(new Result<>(refreshToken, null, null, unwrap(refreshError)));
+                return;
+            }
+            CompletableFuture<T> fetch;
+            try {
+                fetch = products.fetchProfile(accessToken(tokens), product);
+            } catch (RuntimeException e) {
+                fetch = CompletableFuture.failedFuture(e);
+            }
+            // The rotated refresh_token is kept in the result also when the product call fails
+            fetch.whenComplete((data, fetchError) -> done.add(
+                    new Result<>(refreshToken, tokens, data, fetchError == null ? null : unwrap(fetchError))));
+        });
+    }
+
+    private static BearerAccessToken accessToken(Tokens tokens) {
+        return (BearerAccessToken) tokens.getAccessToken();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * Keeps at most maxConcurrency tokens in progress, a new one is started for every result taken
+     */
+    private class Pipeline<T extends IProduct> extends Spliterators.AbstractSpliterator<Result<T>> {
+
+        private final Iterator<RefreshToken> refreshTokens;
+        private final Class<T> product;
+        private final BlockingQueue<Result<T>> done = new LinkedBlockingQueue<>();
+
+        // Tokens started and not yet taken by the consumer, accessed only by the consuming thread
+        private int running;
+
+        Pipeline(Iterator<RefreshToken> refreshTokens, Class<T> product) {
+            super(Long.MAX_VALUE, Spliterator.NONNULL);
+            this.refreshTokens = refreshTokens;
+            this.product = product;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Result<T>> action) {
+            while (running < maxConcurrency && refreshTokens.hasNext()) {
+                start(refreshTokens.next(), product, done);
+                running++;
+            }
+            if (running == 0) {
+                return false;
+            }
+
+            Result<T> result;
+            try {
+                result = done.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            running--;
+            action.accept(result);
+            return true;
+        }
+    }
+
+    /**
+     * Outcome for one refresh_token
+     */
+    public static class Result<T extends IProduct> {
+
+        private final RefreshToken refreshToken;
+        private final Tokens tokens;
+        private final T product;
+        private final Throwable error;
+
+        Result(RefreshToken refreshToken, Tokens tokens, T product, Throwable error) {
+            this.refreshToken = refreshToken;
+            this.tokens = tokens;
+            this.product = product;
+            this.error = error;
+        }
+
+        /**
+         * The refresh_token from the input
+         */
+        public RefreshToken getRefreshToken() {
+            return refreshToken;
+        }
+
+        /**
+         * The new tokens, null only when the refresh failed
+         *
+         * The tokens are present also when the call of the Profile API failed, the rotated refresh_token has to be
+         * stored in both cases.
+         */
+        public Tokens getTokens() {
+            return tokens;
+        }
+
+        /**
+         * The product, null when the refresh or the call of the Profile API failed
+         */
+        public T getProduct() {
+            return product;
+        }
+
+        /**
+         * The failure, {@link com.nimbusds.oauth2.sdk.GeneralException} when BankID rejected the call
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
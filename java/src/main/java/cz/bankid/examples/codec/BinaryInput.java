@@ -0,0 +1,170 @@
+package cz.bankid.examples.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader of the snapshots written by {@link BinaryOutput}
+ *
+ * The fields are read in the order they were written, an absent field is returned as null, false or zero. An enum
+ * ordinal unknown to this version is read as null, like an unknown value in JSON.
+ */
+final class BinaryInput {
+
+    private final byte[] buffer;
+    private final int limit;
+    private int position;
+
+    BinaryInput(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Skips the presence bitmap of the fields, returns its position
+     */
+    int readBits(int fields) throws IOException {
+        int bits = position;
+        require((fields + 7) >>> 3);
+        position += (fields + 7) >>> 3;
+        return bits;
+    }
+
+    boolean has(int bits, int field) {
+        return (buffer[bits + (field >>> 3)] & (1 << (field & 7))) != 0;
+    }
+
+    boolean readBoolean(int bits, int field) {
+        return has(bits, field);
+    }
+
+    int readInt(int bits, int field) throws IOException {
+        if (!has(bits, field)) {
+            return 0;
+        }
+        long value = readVarLong();
+        return (int) ((value >>> 1) ^ -(value & 1));
+    }
+
+    long readLong(int bits, int field) throws IOException {
+        if (!has(bits, field)) {
+            return 0;
+        }
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    String readString(int bits, int field) throws IOException {
+        return has(bits, field) ? readString() : null;
+    }
+
+    <E extends Enum<E>> E readEnum(int bits, int field, E[] constants) throws IOException {
+        if (!has(bits, field)) {
+            return null;
+        }
+        long ordinal = readVarLong();
+        return ordinal >= 0 && ordinal < constants.length ? constants[(int) ordinal] : null;
+    }
+
+    <T> T readObject(int bits, int field, Reader<T> reader) throws IOException {
+        return has(bits, field) ? reader.read(this) : null;
+    }
+
+    <T> List<T> readList(int bits, int field, Reader<T> reader) throws IOException {
+        if (!has(bits, field)) {
+            return null;
+        }
+        int size = readSize();
+        int items = readBits(size);
+        List<T> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readObject(items, i, reader));
+        }
+        return values;
+    }
+
+    List<String> readStringList(int bits, int field) throws IOException {
+        if (!has(bits, field)) {
+            return null;
+        }
+        int size = readSize();
+        int items = readBits(size);
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(items, i));
+        }
+        return values;
+    }
+
+    String[] readStringArray(int bits, int field) throws IOException {
+        if (!has(bits, field)) {
+            return null;
+        }
+        int size = readSize();
+        int items = readBits(size);
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = readString(items, i);
+        }
+        return values;
+    }
+
+    int readByte() throws IOException {
+        require(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    boolean isEnd() {
+        return position == limit;
+    }
+
+    private String readString() throws IOException {
+        long length = readVarLong();
+        if (length < 0 || length > limit - position) {
+            throw new EOFException("Truncated snapshot");
+        }
+        String value = new String(buffer, position, (int) length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    private int readSize() throws IOException {
+        long size = readVarLong();
+        // Every item takes at least its presence bit, a larger size is a corrupted snapshot
+        if (size < 0 || size > (long) (limit - position) * 8) {
+            throw new EOFException("Truncated snapshot");
+        }
+        return (int) size;
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    private void require(int bytes) throws IOException {
+        if (bytes > limit - position) {
+            throw new EOFException("Truncated snapshot");
+        }
+    }
+
+    /**
+     * Reads the fields of one object, starting with its presence bitmap
+     */
+    @FunctionalInterface
+    interface Reader<T> {
+
+        T read(BinaryInput in) throws IOException;
+    }
+}
@@ -0,0 +1,154 @@
+package cz.bankid.examples.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Growable buffer the snapshots are encoded into
+ *
+ * Every object starts with the presence bitmap of its fields. The bitmap is reserved before the fields are written
+ * and the bit of a field is set when the field is written, an absent field takes no space. The booleans are stored
+ * in the bitmap only, the numbers as variable length integers, the strings as the UTF-8 length and bytes and the
+ * enums as their ordinals.
+ */
+final class BinaryOutput {
+
+    private byte[] buffer;
+    private int position;
+
+    BinaryOutput(int initialCapacity) {
+        buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Reserves the presence bitmap of the fields, returns its position
+     */
+    int reserveBits(int fields) {
+        int bits = position;
+        int bytes = (fields + 7) >>> 3;
+        ensure(bytes);
+        // Zero already, the buffer is never reused
+        position += bytes;
+        return bits;
+    }
+
+    private void setBit(int bits, int field) {
+        buffer[bits + (field >>> 3)] |= (byte) (1 << (field & 7));
+    }
+
+    void writeBoolean(int bits, int field, boolean value) {
+        if (value) {
+            setBit(bits, field);
+        }
+    }
+
+    void writeInt(int bits, int field, int value) {
+        if (value != 0) {
+            setBit(bits, field);
+            writeVarLong((value << 1) ^ (value >> 31));
+        }
+    }
+
+    void writeLong(int bits, int field, long value) {
+        if (value != 0) {
+            setBit(bits, field);
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+    }
+
+    void writeString(int bits, int field, String value) {
+        if (value != null) {
+            setBit(bits, field);
+            writeString(value);
+        }
+    }
+
+    void writeEnum(int bits, int field, Enum<?> value) {
+        if (value != null) {
+            setBit(bits, field);
+            writeVarLong(value.ordinal());
+        }
+    }
+
+    <T> void writeObject(int bits, int field, T value, Writer<? super T> writer) {
+        if (value != null) {
+            setBit(bits, field);
+            writer.write(this, value);
+        }
+    }
+
+    <T> void writeList(int bits, int field, List<T> values, Writer<? super T> writer) {
+        if (values != null) {
+            setBit(bits, field);
+            writeVarLong(values.size());
+            int items = reserveBits(values.size());
+            for (int i = 0; i < values.size(); i++) {
+                writeObject(items, i, values.get(i), writer);
+            }
+        }
+    }
+
+    void writeStringList(int bits, int field, List<String> values) {
+        if (values != null) {
+            setBit(bits, field);
+            writeVarLong(values.size());
+            int items = reserveBits(values.size());
+            for (int i = 0; i < values.size(); i++) {
+                writeString(items, i, values.get(i));
+            }
+        }
+    }
+
+    void writeStringArray(int bits, int field, String[] values) {
+        if (values != null) {
+            setBit(bits, field);
+            writeVarLong(values.length);
+            int items = reserveBits(values.length);
+            for (int i = 0; i < values.length; i++) {
+                writeString(items, i, values[i]);
+            }
+        }
+    }
+
+    void writeByte(int value) {
+        ensure(1);
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void ensure(int bytes) {
+        if (position + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+        }
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Writes the fields of one object, starting with its presence bitmap
+     */
+    @FunctionalInterface
+    interface Writer<T> {
+
+        void write(BinaryOutput out, T value);
+    }
+}
@@ -0,0 +1,387 @@
+package cz.bankid.examples.codec;
+
+import cz.bankid.examples.entities.ConnectClaims;
+import cz.bankid.examples.entities.ConnectVerifiedClaims;
+import cz.bankid.examples.entities.IdentifyAMLVerifiedClaims;
+import cz.bankid.examples.entities.IdentifyClaims;
+import cz.bankid.examples.entities.IdentifyPlusClaims;
+import cz.bankid.examples.entities.IdentifyPlusVerifiedClaims;
+import cz.bankid.examples.entities.IdentifyVerifiedClaims;
+import cz.bankid.examples.entities.entity.Address;
+import cz.bankid.examples.entities.entity.AddressType;
+import cz.bankid.examples.entities.entity.Gender;
+import cz.bankid.examples.entities.entity.IDCard;
+import cz.bankid.examples.entities.entity.IDCardType;
+import cz.bankid.examples.entities.entity.MaritalStatus;
+import cz.bankid.examples.entities.entity.TrustFramework;
+import cz.bankid.examples.entities.entity.Verification;
+import cz.bankid.examples.product.Connect;
+import cz.bankid.examples.product.Identify;
+import cz.bankid.examples.product.IdentifyAML;
+import cz.bankid.examples.product.IdentifyPlus;
+
+import java.io.IOException;
+
+/**
+ * Binary layout of the products, claims and entities
+ *
+ * The fields of every class are numbered in the order of the JSON adapters, the number is the bit of the field in
+ * the presence bitmap and the fields are written in this order. The classes of a hierarchy share one bitmap, the
+ * subclass fields follow the fields of the superclass. The layout is part of the stored format: a new field may only
+ * be appended after the existing ones (with a new {@link ProfileCodec#VERSION}) and a new enum constant only after
+ * the existing constants.
+ */
+final class ProductSchema {
+
+    static final int CONNECT_CLAIMS_FIELDS = 15;
+    static final int IDENTIFY_CLAIMS_FIELDS = 14;
+    static final int IDENTIFY_PLUS_CLAIMS_FIELDS = IDENTIFY_CLAIMS_FIELDS + 9;
+
+    // sub, txn and verified_claims before the claims
+    static final int PRODUCT_FIELDS = 3;
+
+    private static final AddressType[] ADDRESS_TYPES = AddressType.values();
+    private static final Gender[] GENDERS = Gender.values();
+    private static final IDCardType[] ID_CARD_TYPES = IDCardType.values();
+    private static final MaritalStatus[] MARITAL_STATUSES = MaritalStatus.values();
+    private static final TrustFramework[] TRUST_FRAMEWORKS = TrustFramework.values();
+
+    private ProductSchema() {
+    }
+
+    // Products
+
+    static void writeConnect(BinaryOutput out, Connect value) {
+        int bits = out.reserveBits(PRODUCT_FIELDS + CONNECT_CLAIMS_FIELDS);
+        out.writeString(bits, 0, value.getSub());
+        out.writeString(bits, 1, value.getTxn());
+        out.writeObject(bits, 2, value.getVerified_claims(), ProductSchema::writeConnectVerifiedClaims);
+        writeConnectClaims(out, bits, PRODUCT_FIELDS, value);
+    }
+
+    static Connect readConnect(BinaryInput in) throws IOException {
+        int bits = in.readBits(PRODUCT_FIELDS + CONNECT_CLAIMS_FIELDS);
+        Connect value = new Connect();
+        value.setSub(in.readString(bits, 0));
+        value.setTxn(in.readString(bits, 1));
+        value.setVerified_claims(in.readObject(bits, 2, ProductSchema::readConnectVerifiedClaims));
+        readConnectClaims(in, bits, PRODUCT_FIELDS, value);
+        return value;
+    }
+
+    static void writeIdentify(BinaryOutput out, Identify value) {
+        int bits = out.reserveBits(PRODUCT_FIELDS + IDENTIFY_CLAIMS_FIELDS);
+        out.writeString(bits, 0, value.getSub());
+        out.writeString(bits, 1, value.getTxn());
+        out.writeObject(bits, 2, (IdentifyVerifiedClaims) value.getVerified_claims(),
+                ProductSchema::writeIdentifyVerifiedClaims);
+        writeIdentifyClaims(out, bits, PRODUCT_FIELDS, value);
+    }
+
+    static Identify readIdentify(BinaryInput in) throws IOException {
+        int bits = in.readBits(PRODUCT_FIELDS + IDENTIFY_CLAIMS_FIELDS);
+        Identify value = new Identify();
+        value.setSub(in.readString(bits, 0));
+        value.setTxn(in.readString(bits, 1));
+        value.setVerified_claims(in.readObject(bits, 2, ProductSchema::readIdentifyVerifiedClaims));
+        readIdentifyClaims(in, bits, PRODUCT_FIELDS, value);
+        return value;
+    }
+
+    static void writeIdentifyPlus(BinaryOutput out, IdentifyPlus value) {
+        int bits = out.reserveBits(PRODUCT_FIELDS + IDENTIFY_PLUS_CLAIMS_FIELDS);
+        out.writeString(bits, 0, value.getSub());
+        out.writeString(bits, 1, value.getTxn());
+        out.writeObject(bits, 2, (IdentifyPlusVerifiedClaims) value.getVerified_claims(),
+                ProductSchema::writeIdentifyPlusVerifiedClaims);
+        writeIdentifyPlusClaims(out, bits, PRODUCT_FIELDS, value);
+    }
+
+    static IdentifyPlus readIdentifyPlus(BinaryInput in) throws IOException {
+        int bits = in.readBits(PRODUCT_FIELDS + IDENTIFY_PLUS_CLAIMS_FIELDS);
+        IdentifyPlus value = new IdentifyPlus();
+        value.setSub(in.readString(bits, 0));
+        value.setTxn(in.readString(bits, 1));
+        value.setVerified_claims(in.readObject(bits, 2, ProductSchema::readIdentifyPlusVerifiedClaims));
+        readIdentifyPlusClaims(in, bits, PRODUCT_FIELDS, value);
+        return value;
+    }
+
+    static void writeIdentifyAML(BinaryOutput out, IdentifyAML value) {
+        int bits = out.reserveBits(PRODUCT_FIELDS + IDENTIFY_PLUS_CLAIMS_FIELDS);
+        out.writeString(bits, 0, value.getSub());
+        out.writeString(bits, 1, value.getTxn());
+        out.writeObject(bits, 2, (IdentifyAMLVerifiedClaims) value.getVerified_claims(),
+                ProductSchema::writeIdentifyAMLVerifiedClaims);
+        writeIdentifyPlusClaims(out, bits, PRODUCT_FIELDS, value);
+    }
+
+    static IdentifyAML readIdentifyAML(BinaryInput in) throws IOException {
+        int bits = in.readBits(PRODUCT_FIELDS + IDENTIFY_PLUS_CLAIMS_FIELDS);
+        IdentifyAML value = new IdentifyAML();
+        value.setSub(in.readString(bits, 0));
+        value.setTxn(in.readString(bits, 1));
+        value.setVerified_claims(in.readObject(bits, 2, ProductSchema::readIdentifyAMLVerifiedClaims));
+        readIdentifyPlusClaims(in, bits, PRODUCT_FIELDS, value);
+        return value;
+    }
+
+    // Claims, the fields start at the given bit of the bitmap of the object
+
+    static void writeConnectClaims(BinaryOutput out, int bits, int first, ConnectClaims value) {
+        out.writeString(bits, first, value.getName());
+        out.writeString(bits, first + 1, value.getGiven_name());
+        out.writeString(bits, first + 2, value.getFamily_name());
+        out.writeString(bits, first + 3, value.getMiddle_name());
+        out.writeString(bits, first + 4, value.getNickname());
+        out.writeString(bits, first + 5, value.getPreferred_username());
+        out.writeString(bits, first + 6, value.getEmail());
+        out.writeBoolean(bits, first + 7, value.isEmail_verified());
+        out.writeEnum(bits, first + 8, value.getGender());
+        out.writeString(bits, first + 9, value.getBirthdate());
+        out.writeString(bits, first + 10, value.getZoneinfo());
+        out.writeString(bits, first + 11, value.getLocale());
+        out.writeString(bits, first + 12, value.getPhone_number());
+        out.writeBoolean(bits, first + 13, value.isPhone_number_verified());
+        out.writeLong(bits, first + 14, value.getUpdated_at());
+    }
+
+    static void readConnectClaims(BinaryInput in, int bits, int first, ConnectClaims value) throws IOException {
+        value.setName(in.readString(bits, first));
+        value.setGiven_name(in.readString(bits, first + 1));
+        value.setFamily_name(in.readString(bits, first + 2));
+        value.setMiddle_name(in.readString(bits, first + 3));
+        value.setNickname(in.readString(bits, first + 4));
+        value.setPreferred_username(in.readString(bits, first + 5));
+        value.setEmail(in.readString(bits, first + 6));
+        value.setEmail_verified(in.readBoolean(bits, first + 7));
+        value.setGender(in.readEnum(bits, first + 8, GENDERS));
+        value.setBirthdate(in.readString(bits, first + 9));
+        value.setZoneinfo(in.readString(bits, first + 10));
+        value.setLocale(in.readString(bits, first + 11));
+        value.setPhone_number(in.readString(bits, first + 12));
+        value.setPhone_number_verified(in.readBoolean(bits, first + 13));
+        value.setUpdated_at(in.readLong(bits, first + 14));
+    }
+
+    static void writeIdentifyClaims(BinaryOutput out, int bits, int first, IdentifyClaims value) {
+        out.writeString(bits, first, value.getTitle_prefix());
+        out.writeString(bits, first + 1, value.getTitle_suffix());
+        out.writeString(bits, first + 2, value.getGiven_name());
+        out.writeString(bits, first + 3, value.getFamily_name());
+        out.writeString(bits, first + 4, value.getMiddle_name());
+        out.writeString(bits, first + 5, value.getPhone_number());
+        out.writeString(bits, first + 6, value.getEmail());
+        out.writeList(bits, first + 7, value.getAddresses(), ProductSchema::writeAddress);
+        out.writeString(bits, first + 8, value.getBirthdate());
+        out.writeInt(bits, first + 9, value.getAge());
+        out.writeString(bits, first + 10, value.getDate_of_death());
+        out.writeEnum(bits, first + 11, value.getGender());
+        out.writeString(bits, first + 12, value.getBirthnumber());
+        out.writeLong(bits, first + 13, value.getUpdated_at());
+    }
+
+    static void readIdentifyClaims(BinaryInput in, int bits, int first, IdentifyClaims value) throws IOException {
+        value.setTitle_prefix(in.readString(bits, first));
+        value.setTitle_suffix(in.readString(bits, first + 1));
+        value.setGiven_name(in.readString(bits, first + 2));
+        value.setFamily_name(in.readString(bits, first + 3));
+        value.setMiddle_name(in.readString(bits, first + 4));
+        value.setPhone_number(in.readString(bits, first + 5));
+        value.setEmail(in.readString(bits, first + 6));
+        value.setAddresses(in.readList(bits, first + 7, ProductSchema::readAddress));
+        value.setBirthdate(in.readString(bits, first + 8));
+        value.setAge(in.readInt(bits, first + 9));
+        value.setDate_of_death(in.readString(bits, first + 10));
+        value.setGender(in.readEnum(bits, first + 11, GENDERS));
+        value.setBirthnumber(in.readString(bits, first + 12));
+        value.setUpdated_at(in.readLong(bits, first + 13));
+    }
+
+    static void writeIdentifyPlusClaims(BinaryOutput out, int bits, int first, IdentifyPlusClaims value) {
+        writeIdentifyClaims(out, bits, first, value);
+        int plus = first + IDENTIFY_CLAIMS_FIELDS;
+        out.writeString(bits, plus, value.getBirthplace());
+        out.writeString(bits, plus + 1, value.getPrimary_nationality());
+        out.writeStringArray(bits, plus + 2, value.getNationalities());
+        out.writeEnum(bits, plus + 3, value.getMaritalstatus());
+        out.writeList(bits, plus + 4, value.getIdcards(), ProductSchema::writeIDCard);
+        out.writeBoolean(bits, plus + 5, value.isMajority());
+        out.writeBoolean(bits, plus + 6, value.isPep());
+        out.writeBoolean(bits, plus + 7, value.isLimited_legal_capacity());
+        out.writeStringList(bits, plus + 8, value.getPaymentAccounts());
+    }
+
+    static void readIdentifyPlusClaims(BinaryInput in, int bits, int first, IdentifyPlusClaims value)
+            throws IOException {
+        readIdentifyClaims(in, bits, first, value);
+        int plus = first + IDENTIFY_CLAIMS_FIELDS;
+        value.setBirthplace(in.readString(bits, plus));
+        value.setPrimary_nationality(in.readString(bits, plus + 1));
+        value.setNationalities(in.readStringArray(bits, plus + 2));
+        value.setMaritalstatus(in.readEnum(bits, plus + 3, MARITAL_STATUSES));
+        value.setIdcards(in.readList(bits, plus + 4, ProductSchema::readIDCard));
+        value.setMajority(in.readBoolean(bits, plus + 5));
+        value.setPep(in.readBoolean(bits, plus + 6));
+        value.setLimited_legal_capacity(in.readBoolean(bits, plus + 7));
+        value.setPaymentAccounts(in.readStringList(bits, plus + 8));
+    }
+
+    // Verified claims
+
+    static void writeConnectVerifiedClaims(BinaryOutput out, ConnectVerifiedClaims value) {
+        int bits = out.reserveBits(1);
+        out.writeObject(bits, 0, value.getClaims(), ProductSchema::writeConnectClaims);
+    }
+
+    static ConnectVerifiedClaims readConnectVerifiedClaims(BinaryInput in) throws IOException {
+        int bits = in.readBits(1);
+        ConnectVerifiedClaims value = new ConnectVerifiedClaims();
+        value.setClaims(in.readObject(bits, 0, ProductSchema::readConnectClaims));
+        return value;
+    }
+
+    static void writeIdentifyVerifiedClaims(BinaryOutput out, IdentifyVerifiedClaims value) {
+        int bits = out.reserveBits(1);
+        out.writeObject(bits, 0, value.getClaims(), ProductSchema::writeIdentifyClaims);
+    }
+
+    static IdentifyVerifiedClaims readIdentifyVerifiedClaims(BinaryInput in) throws IOException {
+        int bits = in.readBits(1);
+        IdentifyVerifiedClaims value = new IdentifyVerifiedClaims();
+        value.setClaims(in.readObject(bits, 0, ProductSchema::readIdentifyClaims));
+        return value;
+    }
+
+    static void writeIdentifyPlusVerifiedClaims(BinaryOutput out, IdentifyPlusVerifiedClaims value) {
+        int bits = out.reserveBits(1);
+        out.writeObject(bits, 0, value.getClaims(), ProductSchema::writeIdentifyPlusClaims);
+    }
+
+    static IdentifyPlusVerifiedClaims readIdentifyPlusVerifiedClaims(BinaryInput in) throws IOException {
+        int bits = in.readBits(1);
+        IdentifyPlusVerifiedClaims value = new IdentifyPlusVerifiedClaims();
+        value.setClaims(in.readObject(bits, 0, ProductSchema::readIdentifyPlusClaims));
+        return value;
+    }
+
+    static void writeIdentifyAMLVerifiedClaims(BinaryOutput out, IdentifyAMLVerifiedClaims value) {
+        int bits = out.reserveBits(2);
+        out.writeObject(bits, 0, value.getVerification(), ProductSchema::writeVerification);
+        out.writeObject(bits, 1, value.getClaims(), ProductSchema::writeIdentifyPlusClaims);
+    }
+
+    static IdentifyAMLVerifiedClaims readIdentifyAMLVerifiedClaims(BinaryInput in) throws IOException {
+        int bits = in.readBits(2);
+        IdentifyAMLVerifiedClaims value = new IdentifyAMLVerifiedClaims();
+        value.setVerification(in.readObject(bits, 0, ProductSchema::readVerification));
+        value.setClaims(in.readObject(bits, 1, ProductSchema::readIdentifyPlusClaims));
+        return value;
+    }
+
+    // Claims as a standalone object with its own bitmap
+
+    private static void writeConnectClaims(BinaryOutput out, ConnectClaims claims) {
+        int bits = out.reserveBits(CONNECT_CLAIMS_FIELDS);
+        writeConnectClaims(out, bits, 0, claims);
+    }
+
+    private static ConnectClaims readConnectClaims(BinaryInput in) throws IOException {
+        int bits = in.readBits(CONNECT_CLAIMS_FIELDS);
+        ConnectClaims claims = new ConnectClaims();
+        readConnectClaims(in, bits, 0, claims);
+        return claims;
+    }
+
+    private static void writeIdentifyClaims(BinaryOutput out, IdentifyClaims claims) {
+        int bits = out.reserveBits(IDENTIFY_CLAIMS_FIELDS);
+        writeIdentifyClaims(out, bits, 0, claims);
+    }
+
+    private static IdentifyClaims readIdentifyClaims(BinaryInput in) throws IOException {
+        int bits = in.readBits(IDENTIFY_CLAIMS_FIELDS);
+        IdentifyClaims claims = new IdentifyClaims();
+        readIdentifyClaims(in, bits, 0, claims);
+        return claims;
+    }
+
+    private static void writeIdentifyPlusClaims(BinaryOutput out, IdentifyPlusClaims claims) {
+        int bits = out.reserveBits(IDENTIFY_PLUS_CLAIMS_FIELDS);
+        writeIdentifyPlusClaims(out, bits, 0, claims);
+    }
+
+    private static IdentifyPlusClaims readIdentifyPlusClaims(BinaryInput in) throws IOException {
+        int bits = in.readBits(IDENTIFY_PLUS_CLAIMS_FIELDS);
+        IdentifyPlusClaims claims = new IdentifyPlusClaims();
+        readIdentifyPlusClaims(in, bits, 0, claims);
+        return claims;
+    }
+
+    // Entities
+
+    static void writeAddress(BinaryOutput out, Address value) {
+        int bits = out.reserveBits(8);
+        out.writeEnum(bits, 0, value.getType());
+        out.writeString(bits, 1, value.getStreet());
+        out.writeString(bits, 2, value.getBuildingapartment());
+        out.writeString(bits, 3, value.getStreetnumber());
+        out.writeString(bits, 4, value.getCity());
+        out.writeString(bits, 5, value.getZipcode());
+        out.writeString(bits, 6, value.getCountry());
+        out.writeString(bits, 7, value.getRuian_reference());
+    }
+
+    static Address readAddress(BinaryInput in) throws IOException {
+        int bits = in.readBits(8);
+        Address value = new Address();
+        value.setType(in.readEnum(bits, 0, ADDRESS_TYPES));
+        value.setStreet(in.readString(bits, 1));
+        value.setBuildingapartment(in.readString(bits, 2));
+        value.setStreetnumber(in.readString(bits, 3));
+        value.setCity(in.readString(bits, 4));
+        value.setZipcode(in.readString(bits, 5));
+        value.setCountry(in.readString(bits, 6));
+        value.setRuian_reference(in.readString(bits, 7));
+        return value;
+    }
+
+    static void writeIDCard(BinaryOutput out, IDCard value) {
+        int bits = out.reserveBits(7);
+        out.writeEnum(bits, 0, value.getType());
+        out.writeString(bits, 1, value.getDescription());
+        out.writeString(bits, 2, value.getCountry());
+        out.writeString(bits, 3, value.getNumber());
+        out.writeString(bits, 4, value.getValid_to());
+        out.writeString(bits, 5, value.getIssuer());
+        out.writeString(bits, 6, value.getIssue_date());
+    }
+
+    static IDCard readIDCard(BinaryInput in) throws IOException {
+        int bits = in.readBits(7);
+        IDCard value = new IDCard();
+        value.setType(in.readEnum(bits, 0, ID_CARD_TYPES));
+        value.setDescription(in.readString(bits, 1));
+        value.setCountry(in.readString(bits, 2));
+        value.setNumber(in.readString(bits, 3));
+        value.setValid_to(in.readString(bits, 4));
+        value.setIssuer(in.readString(bits, 5));
+        value.setIssue_date(in.readString(bits, 6));
+        return value;
+    }
+
+    static void writeVerification(BinaryOutput out, Verification value) {
+        int bits = out.reserveBits(3);
+        out.writeEnum(bits, 0, value.getTrust_framework());
+        out.writeString(bits, 1, value.getTime());
+        out.writeString(bits, 2, value.getVerification_process());
+    }
+
+    static Verification readVerification(BinaryInput in) throws IOException {
+        int bits = in.readBits(3);
+        Verification value = new Verification();
+        value.setTrust_framework(in.readEnum(bits, 0, TRUST_FRAMEWORKS));
+        value.setTime(in.readString(bits, 1));
+        value.setVerification_process(in.readString(bits, 2));
+        return value;
+    }
+}
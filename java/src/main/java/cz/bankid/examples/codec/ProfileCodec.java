@@ -0,0 +1,129 @@
+package cz.bankid.examples.codec;
+
+import com.nimbusds.oauth2.sdk.ParseException;
+import cz.bankid.examples.product.Connect;
+import cz.bankid.examples.product.IProduct;
+import cz.bankid.examples.product.Identify;
+import cz.bankid.examples.product.IdentifyAML;
+import cz.bankid.examples.product.IdentifyPlus;
+
+import java.io.IOException;
+
+/**
+ * Compact binary format of the stored product snapshots
+ *
+ * A snapshot stored as the raw JSON of the Profile API repeats every property name and has to be parsed again on
+ * every read. The binary snapshot starts with the format version and the product, every object then has a bitmap
+ * of its present fields followed by the values of these fields only. The enums are stored as their ordinals, the
+ * strings as their UTF-8 length and bytes, the numbers as variable length integers and the booleans in the bitmap.
+ * The IdentifyAML sample takes about a third of its JSON and is decoded several times faster than by Gson
+ * ({@code ProfileCodecBenchmark}).
+ *
+ * The snapshot holds the same data as the JSON mapping of the product ({@link cz.bankid.examples.json.BankIDJson}),
+ * a decoded product is serialized to the same JSON as the encoded one. Only the snapshots of the current
+ * {@link #VERSION} are decoded, a snapshot of any other version is rejected and has to be stored again.
+ */
+public final class ProfileCodec {
+
+    /**
+     * Version of the format written by this code
+     */
+    public static final int VERSION = 1;
+
+    private static final int CONNECT = 1;
+    private static final int IDENTIFY = 2;
+    private static final int IDENTIFY_PLUS = 3;
+    private static final int IDENTIFY_AML = 4;
+
+    private ProfileCodec() {
+    }
+
+    /**
+     * Encodes the product
+     *
+     * @param product Connect, Identify, IdentifyPlus or IdentifyAML
+     */
+    public static byte[] encode(IProduct product) {
+        BinaryOutput out = new BinaryOutput(512);
+        out.writeByte(VERSION);
+        if (product instanceof IdentifyAML) {
+            out.writeByte(IDENTIFY_AML);
+            ProductSchema.writeIdentifyAML(out, (IdentifyAML) product);
+        } else if (product instanceof IdentifyPlus) {
+            out.writeByte(IDENTIFY_PLUS);
+            ProductSchema.writeIdentifyPlus(out, (IdentifyPlus) product);
+        } else if (product instanceof Identify) {
+            out.writeByte(IDENTIFY);
+            ProductSchema.writeIdentify(out, (Identify) product);
+        } else if (product instanceof Connect) {
+            out.writeByte(CONNECT);
+            ProductSchema.writeConnect(out, (Connect) product);
+        } else {
+            throw new IllegalArgumentException("Unsupported product " + product.getClass().getName());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes the product
+     *
+     * @param snapshot encoded product
+     * @param product class of the product
+     * @throws ParseException when the snapshot is truncated, of a newer version or of another product
+     */
+    public static <T extends IProduct> T decode(byte[] snapshot, Class<T> product) throws ParseException {
+        return decode(snapshot, 0, snapshot.length, product);
+    }
+
+    /**
+     * Decodes the product from a part of the array
+     */
+    public static <T extends IProduct> T decode(byte[] snapshot, int offset, int length, Class<T> product)
+            throws ParseException {
+        BinaryInput in = new BinaryInput(snapshot, offset, length);
+        try {
+            int version = in.readByte();
+            if (version != VERSION) {
+                throw new ParseException("Unsupported snapshot version " + version);
+            }
+            int type = in.readByte();
+            if (type != productType(product)) {
+                throw new ParseException("The snapshot does not contain " + product.getSimpleName());
+            }
+
+            IProduct value;
+            switch (type) {
+                case IDENTIFY_AML:
+                    value = ProductSchema.readIdentifyAML(in);
+                    break;
+                case IDENTIFY_PLUS:
+                    value = ProductSchema.readIdentifyPlus(in);
+                    break;
+                case IDENTIFY:
+                    value = ProductSchema.readIdentify(in);
+                    break;
+                default:
+                    value = ProductSchema.readConnect(in);
+            }
+            if (!in.isEnd()) {
+                throw new ParseException("Unexpected data after the " + product.getSimpleName() + " snapshot");
+            }
+            return product.cast(value);
+        } catch (IOException e) {
+            throw new ParseException("Invalid " + product.getSimpleName() + " snapshot: " + e.getMessage(), e);
+        }
+    }
+
+    private static int productType(Class<? extends IProduct> product) {
+        if (product == IdentifyAML.class) {
+            return IDENTIFY_AML;
+        } else if (product == IdentifyPlus.class) {
+            return IDENTIFY_PLUS;
+        } else if (product == Identify.class) {
+            return IDENTIFY;
+        } else if (product == Connect.class) {
+            return CONNECT;
+        }
+        throw new IllegalArgumentException("Unsupported product " + product.getName());
+    }
+}
@@ -0,0 +1,75 @@
+package cz.bankid.examples.compact;
+
+import cz.bankid.examples.entities.entity.Address;
+import cz.bankid.examples.entities.entity.AddressType;
+
+/**
+ * Immutable address of a cached profile, the city, zip code and country are pooled
+ */
+public final class CompactAddress {
+
+    private final AddressType type;
+    private final String street;
+    private final String buildingapartment;
+    private final String streetnumber;
+    private final String city;
+    private final String zipcode;
+    private final String country;
+    private final String ruian_reference;
+
+    CompactAddress(Address address, StringPool pool) {
+        this.type = address.getType();
+        this.street = address.getStreet();
+        this.buildingapartment = address.getBuildingapartment();
+        this.streetnumber = address.getStreetnumber();
+        this.city = pool.get(address.getCity());
+        this.zipcode = pool.get(address.getZipcode());
+        this.country = pool.get(address.getCountry());
+        this.ruian_reference = address.getRuian_reference();
+    }
+
+    public AddressType getType() {
+        return type;
+    }
+
+    public String getStreet() {
+        return street;
+    }
+
+    public String getBuildingapartment() {
+        return buildingapartment;
+    }
+
+    public String getStreetnumber() {
+        return streetnumber;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public String getZipcode() {
+        return zipcode;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public String getRuian_reference() {
+        return ruian_reference;
+    }
+
+    Address toAddress() {
+        Address address = new Address();
+        address.setType(type);
+        address.setStreet(street);
+        address.setBuildingapartment(buildingapartment);
+        address.setStreetnumber(streetnumber);
+        address.setCity(city);
+        address.setZipcode(zipcode);
+        address.setCountry(country);
+        address.setRuian_reference(ruian_reference);
+        return address;
+    }
+}
@@ -0,0 +1,250 @@
+package cz.bankid.examples.compact;
+
+import cz.bankid.examples.entities.IdentifyPlusClaims;
+import cz.bankid.examples.entities.entity.Address;
+import cz.bankid.examples.entities.entity.Gender;
+import cz.bankid.examples.entities.entity.IDCard;
+import cz.bankid.examples.entities.entity.MaritalStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable Identify Plus claims of a cached profile
+ *
+ * The lists are kept as arrays, an absent list or object is null. The values repeated across the profiles (the
+ * nationalities, the countries and cities of the addresses, the issuers of the id cards) are taken from the
+ * {@link StringPool}. The returned arrays are shared and must not be changed.
+ */
+public class CompactClaims {
+
+    private final String title_prefix;
+    private final String title_suffix;
+    private final String given_name;
+    private final String family_name;
+    private final String middle_name;
+    private final String phone_number;
+    private final String email;
+    private final CompactAddress[] addresses;
+    private final String birthdate;
+    private final int age;
+    private final String date_of_death;
+    private final Gender gender;
+    private final String birthnumber;
+    private final long updated_at;
+
+    private final String birthplace;
+    private final String primary_nationality;
+    private final String[] nationalities;
+    private final MaritalStatus maritalstatus;
+    private final CompactIDCard[] idcards;
+    private final boolean majority;
+    private final boolean pep;
+    private final boolean limited_legal_capacity;
+    private final String[] paymentAccounts;
+
+    CompactClaims(IdentifyPlusClaims claims, StringPool pool) {
+        this.title_prefix = claims.getTitle_prefix();
+        this.title_suffix = claims.getTitle_suffix();
+        this.given_name = claims.getGiven_name();
+        this.family_name = claims.getFamily_name();
+        this.middle_name = claims.getMiddle_name();
+        this.phone_number = claims.getPhone_number();
+        this.email = claims.getEmail();
+        this.addresses = addresses(claims.getAddresses(), pool);
+        this.birthdate = claims.getBirthdate();
+        this.age = claims.getAge();
+        this.date_of_death = claims.getDate_of_death();
+        this.gender = claims.getGender();
+        this.birthnumber = claims.getBirthnumber();
+        this.updated_at = claims.getUpdated_at();
+
+        this.birthplace = pool.get(claims.getBirthplace());
+        this.primary_nationality = pool.get(claims.getPrimary_nationality());
+        this.nationalities = pooled(claims.getNationalities(), pool);
+        this.maritalstatus = claims.getMaritalstatus();
+        this.idcards = idcards(claims.getIdcards(), pool);
+        this.majority = claims.isMajority();
+        this.pep = claims.isPep();
+        this.limited_legal_capacity = claims.isLimited_legal_capacity();
+        this.paymentAccounts = claims.getPaymentAccounts() == null
+                ? null
+                : claims.getPaymentAccounts().toArray(new String[0]);
+    }
+
+    /**
+     * Copies the claims to the mutable claims class
+     */
+    void copyTo(IdentifyPlusClaims claims) {
+        claims.setTitle_prefix(title_prefix);
+        claims.setTitle_suffix(title_suffix);
+        claims.setGiven_name(given_name);
+        claims.setFamily_name(family_name);
+        claims.setMiddle_name(middle_name);
+        claims.setPhone_number(phone_number);
+        claims.setEmail(email);
+        if (addresses != null) {
+            List<Address> list = new ArrayList<>(addresses.length);
+            for (CompactAddress address : addresses) {
+                list.add(address == null ? null : address.toAddress());
+            }
+            claims.setAddresses(list);
+        }
+        claims.setBirthdate(birthdate);
+        claims.setAge(age);
+        claims.setDate_of_death(date_of_death);
+        claims.setGender(gender);
+        claims.setBirthnumber(birthnumber);
+        claims.setUpdated_at(updated_at);
+
+        claims.setBirthplace(birthplace);
+        claims.setPrimary_nationality(primary_nationality);
+        claims.setNationalities(nationalities == null ? null : nationalities.clone());
+        claims.setMaritalstatus(maritalstatus);
+        if (idcards != null) {
+            List<IDCard> list = new ArrayList<>(idcards.length);
+            for (CompactIDCard idCard : idcards) {
+                list.add(idCard == null ? null : idCard.toIDCard());
+            }
+            claims.setIdcards(list);
+        }
+        claims.setMajority(majority);
+        claims.setPep(pep);
+        claims.setLimited_legal_capacity(limited_legal_capacity);
+        claims.setPaymentAccounts(paymentAccounts == null ? null : new ArrayList<>(Arrays.asList(paymentAccounts)));
+    }
+
+    IdentifyPlusClaims toClaims() {
+        IdentifyPlusClaims claims = new IdentifyPlusClaims();
+        copyTo(claims);
+        return claims;
+    }
+
+    private static CompactAddress[] addresses(List<Address> addresses, StringPool pool) {
+        if (addresses == null) {
+            return null;
+        }
+        CompactAddress[] compact = new CompactAddress[addresses.size()];
+        for (int i = 0; i < compact.length; i++) {
+            Address address = addresses.get(i);
+            compact[i] = address == null ? null : new CompactAddress(address, pool);
+        }
+        return compact;
+    }
+
+    private static CompactIDCard[] idcards(List<IDCard> idcards, StringPool pool) {
+        if (idcards == null) {
+            return null;
+        }
+        CompactIDCard[] compact = new CompactIDCard[idcards.size()];
+        for (int i = 0; i < compact.length; i++) {
+            IDCard idCard = idcards.get(i);
+            compact[i] = idCard == null ? null : new CompactIDCard(idCard, pool);
+        }
+        return compact;
+    }
+
+    private static String[] pooled(String[] values, StringPool pool) {
+        if (values == null) {
+            return null;
+        }
+        String[] pooled = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            pooled[i] = pool.get(values[i]);
+        }
+        return pooled;
+    }
+
+    public String getTitle_prefix() {
+        return title_prefix;
+    }
+
+    public String getTitle_suffix() {
+        return title_suffix;
+    }
+
+    public String getGiven_name() {
+        return given_name;
+    }
+
+    public String getFamily_name() {
+        return family_name;
+    }
+
+    public String getMiddle_name() {
+        return middle_name;
+    }
+
+    public String getPhone_number() {
+        return phone_number;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public CompactAddress[] getAddresses() {
+        return addresses;
+    }
+
+    public String getBirthdate() {
+        return birthdate;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public String getDate_of_death() {
+        return date_of_death;
+    }
+
+    public Gender getGender() {
+        return gender;
+    }
+
+    public String getBirthnumber() {
+        return birthnumber;
+    }
+
+    public long getUpdated_at() {
+        return updated_at;
+    }
+
+    public String getBirthplace() {
+        return birthplace;
+    }
+
+    public String getPrimary_nationality() {
+        return primary_nationality;
+    }
+
+    public String[] getNationalities() {
+        return nationalities;
+    }
+
+    public MaritalStatus getMaritalstatus() {
+        return maritalstatus;
+    }
+
+    public CompactIDCard[] getIdcards() {
+        return idcards;
+    }
+
+    public boolean isMajority() {
+        return majority;
+    }
+
+    public boolean isPep() {
+        return pep;
+    }
+
+    public boolean isLimited_legal_capacity() {
+        return limited_legal_capacity;
+    }
+
+    public String[] getPaymentAccounts() {
+        return paymentAccounts;
+    }
+}
@@ -0,0 +1,68 @@
+package cz.bankid.examples.compact;
+
+import cz.bankid.examples.entities.entity.IDCard;
+import cz.bankid.examples.entities.entity.IDCardType;
+
+/**
+ * Immutable id card of a cached profile, the description, country and issuer are pooled
+ */
+public final class CompactIDCard {
+
+    private final IDCardType type;
+    private final String description;
+    private final String country;
+    private final String number;
+    private final String valid_to;
+    private final String issuer;
+    private final String issue_date;
+
+    CompactIDCard(IDCard idCard, StringPool pool) {
+        this.type = idCard.getType();
+        this.description = pool.get(idCard.getDescription());
+        this.country = pool.get(idCard.getCountry());
+        this.number = idCard.getNumber();
+        this.valid_to = idCard.getValid_to();
+        this.issuer = pool.get(idCard.getIssuer());
+        this.issue_date = idCard.getIssue_date();
+    }
+
+    public IDCardType getType() {
+        return type;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public String getNumber() {
+        return number;
+    }
+
+    public String getValid_to() {
+        return valid_to;
+    }
+
+    public String getIssuer() {
+        return issuer;
+    }
+
+    public String getIssue_date() {
+        return issue_date;
+    }
+
+    IDCard toIDCard() {
+        IDCard idCard = new IDCard();
+        idCard.setType(type);
+        idCard.setDescription(description);
+        idCard.setCountry(country);
+        idCard.setNumber(number);
+        idCard.setValid_to(valid_to);
+        idCard.setIssuer(issuer);
+        idCard.setIssue_date(issue_date);
+        return idCard;
+    }
+}
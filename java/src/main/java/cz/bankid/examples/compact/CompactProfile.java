@@ -0,0 +1,132 @@
+package cz.bankid.examples.compact;
+
+import cz.bankid.examples.entities.IdentifyAMLVerifiedClaims;
+import cz.bankid.examples.entities.IdentifyPlusClaims;
+import cz.bankid.examples.entities.IdentifyPlusVerifiedClaims;
+import cz.bankid.examples.entities.VerifiedClaims;
+import cz.bankid.examples.entities.entity.TrustFramework;
+import cz.bankid.examples.entities.entity.Verification;
+import cz.bankid.examples.product.IdentifyAML;
+import cz.bankid.examples.product.IdentifyPlus;
+
+/**
+ * Memory-lean form of the Identify Plus and Identify AML profiles kept in a cache or for the whole session
+ *
+ * The parsed product keeps every list as an {@code ArrayList}, every verification as an object and a separate copy of
+ * every repeated value. The compact profile keeps arrays, the verification fields in the profile itself and takes the
+ * repeated values (countries, cities, id card issuers, the verification process) from a shared {@link StringPool}.
+ * The footprint of both forms is compared by {@code ProfileFootprint} in the jmh module.
+ *
+ * The compact profile is immutable, the product classes are created again with {@link #toIdentifyAML()} or
+ * {@link #toIdentifyPlus()}.
+ */
+public final class CompactProfile extends CompactClaims {
+
+    private final String sub;
+    private final String txn;
+
+    // verified_claims, the verification only in Identify AML
+    private final boolean verified;
+    private final boolean verification;
+    private final TrustFramework trust_framework;
+    private final String verification_time;
+    private final String verification_process;
+    private final CompactClaims verifiedClaims;
+
+    private CompactProfile(String sub, String txn, IdentifyPlusClaims claims, VerifiedClaims verifiedClaims,
+                           Verification verification, StringPool pool) {
+        super(claims, pool);
+        this.sub = sub;
+        this.txn = txn;
+        this.verified = verifiedClaims != null;
+        IdentifyPlusClaims verifiedValues = verifiedClaims == null ? null : (IdentifyPlusClaims) verifiedClaims.getClaims();
+        this.verifiedClaims = verifiedValues == null ? null : new CompactClaims(verifiedValues, pool);
+        this.verification = verification != null;
+        this.trust_framework = verification == null ? null : verification.getTrust_framework();
+        this.verification_time = verification == null ? null : verification.getTime();
+        this.verification_process = verification == null ? null : pool.get(verification.getVerification_process());
+    }
+
+    public static CompactProfile of(IdentifyAML product, StringPool pool) {
+        IdentifyAMLVerifiedClaims verifiedClaims = (IdentifyAMLVerifiedClaims) product.getVerified_claims();
+        return new CompactProfile(product.getSub(), product.getTxn(), product, verifiedClaims,
+                verifiedClaims == null ? null : verifiedClaims.getVerification(), pool);
+    }
+
+    public static CompactProfile of(IdentifyPlus product, StringPool pool) {
+        return new CompactProfile(product.getSub(), product.getTxn(), product, product.getVerified_claims(), null, pool);
+    }
+
+    public String getSub() {
+        return sub;
+    }
+
+    public String getTxn() {
+        return txn;
+    }
+
+    /**
+     * Trust framework of the verification, null without the verified claims
+     */
+    public TrustFramework getTrust_framework() {
+        return trust_framework;
+    }
+
+    public String getVerification_time() {
+        return verification_time;
+    }
+
+    public String getVerification_process() {
+        return verification_process;
+    }
+
+    /**
+     * The verified claims, null when the profile has none
+     */
+    public CompactClaims getVerifiedClaims() {
+        return verifiedClaims;
+    }
+
+    /**
+     * New Identify AML product with the data of the profile
+     */
+    public IdentifyAML toIdentifyAML() {
+        IdentifyAML product = new IdentifyAML();
+        product.setSub(sub);
+        product.setTxn(txn);
+        copyTo(product);
+        if (verified) {
+            IdentifyAMLVerifiedClaims verifiedClaims = new IdentifyAMLVerifiedClaims();
+            if (verification) {
+                Verification verification = new Verification();
+                verification.setTrust_framework(trust_framework);
+                verification.setTime(verification_time);
+                verification.setVerification_process(verification_process);
+                verifiedClaims.setVerification(verification);
+            }
+            if (this.verifiedClaims != null) {
+                verifiedClaims.setClaims(this.verifiedClaims.toClaims());
+            }
+            product.setVerified_claims(verifiedClaims);
+        }
+        return product;
+    }
+
+    /**
+     * New Identify Plus product with the data of the profile
+     */
+    public IdentifyPlus toIdentifyPlus() {
+        IdentifyPlus product = new IdentifyPlus();
+        product.setSub(sub);
+        product.setTxn(txn);
+        copyTo(product);
+        if (verified) {
+            IdentifyPlusVerifiedClaims verifiedClaims = new IdentifyPlusVerifiedClaims();
+            if (this.verifiedClaims != null) {
+                verifiedClaims.setClaims(this.verifiedClaims.toClaims());
+            }
+            product.setVerified_claims(verifiedClaims);
+        }
+        return product;
+    }
+}
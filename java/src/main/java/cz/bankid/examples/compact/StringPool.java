@@ -0,0 +1,56 @@
+package cz.bankid.examples.compact;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pool of the values repeated across the profiles, for example the country codes, the id card issuers or the cities
+ *
+ * All equal values returned by the pool are the same instance, so the cached profiles share one copy of every
+ * value. The number of values is bounded, once the pool is full the values not in the pool are returned as they are.
+ * Unlike {@link String#intern()} the pool can be dropped with the cache and the values coming from the responses
+ * cannot fill the JVM string table.
+ */
+public class StringPool {
+
+    // Enough for the countries, the offices issuing the id cards, the banks and the cities
+    public static final int DEFAULT_MAXIMUM_SIZE = 16 * 1024;
+
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+    private final int maximumSize;
+
+    public StringPool() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * @param maximumSize maximum number of the pooled values
+     */
+    public StringPool(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * The pooled instance equal to the value, the value itself when it is not pooled, null for null
+     */
+    public String get(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = values.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (values.size() >= maximumSize) {
+            return value;
+        }
+        pooled = values.putIfAbsent(value, value);
+        return pooled == null ? value : pooled;
+    }
+
+    /**
+     * Number of the pooled values
+     */
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,61 @@
+package cz.bankid.examples.diff;
+
+import com.google.gson.JsonElement;
+
+/**
+ * One changed field of the profile
+ *
+ * The path uses the JSON names of the claims, the list items are addressed by their index, for example
+ * {@code idcards[0].valid_to} or {@code verified_claims.claims.addresses[1]}. The values are the JSON values of the
+ * field, so the change can be written to the store without mapping the whole profile again.
+ */
+public final class FieldChange {
+
+    public enum Type {
+        // The field was missing or null before
+        ADDED,
+        // The field is missing or null now
+        REMOVED,
+        // The value of the field differs
+        CHANGED
+    }
+
+    private final String path;
+    private final Type type;
+    private final JsonElement oldValue;
+    private final JsonElement newValue;
+
+    FieldChange(String path, Type type, JsonElement oldValue, JsonElement newValue) {
+        this.path = path;
+        this.type = type;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * The previous value, null when the field was added
+     */
+    public JsonElement getOldValue() {
+        return oldValue;
+    }
+
+    /**
+     * The current value, null when the field was removed
+     */
+    public JsonElement getNewValue() {
+        return newValue;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + path;
+    }
+}
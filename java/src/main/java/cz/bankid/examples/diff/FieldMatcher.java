@@ -0,0 +1,81 @@
+package cz.bankid.examples.diff;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Selection of the fields a change of which needs an action, for example the AML review
+ *
+ * The patterns are paths from the root of the profile with {@code []} standing for any list item, for example
+ * {@code pep} or {@code idcards[].valid_to}. A pattern matches the changes of the field itself, of the values
+ * inside it ({@code idcards} matches {@code idcards[0].number}) and of the objects containing it
+ * ({@code idcards[].valid_to} matches the added id card {@code idcards[1]}).
+ */
+public final class FieldMatcher {
+
+    /**
+     * Fields relevant for the AML review
+     */
+    public static final FieldMatcher AML_REVIEW = of("pep", "limited_legal_capacity", "idcards[].valid_to",
+            "verified_claims.claims.idcards[].valid_to", "nationalities", "primary_nationality");
+
+    // Index of a list item in the path
+    private static final Pattern INDEX = Pattern.compile("\\[\\d+]");
+
+    private final String[] patterns;
+
+    private FieldMatcher(String[] patterns) {
+        this.patterns = patterns;
+    }
+
+    public static FieldMatcher of(String... patterns) {
+        return new FieldMatcher(patterns.clone());
+    }
+
+    /**
+     * Whether the change of the path concerns one of the fields
+     */
+    public boolean matches(String path) {
+        String field = INDEX.matcher(path).replaceAll("[]");
+        for (String pattern : patterns) {
+            if (covers(field, pattern) || covers(pattern, field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean matches(FieldChange change) {
+        return matches(change.getPath());
+    }
+
+    /**
+     * Whether one of the changes concerns one of the fields
+     */
+    public boolean matchesAny(List<FieldChange> changes) {
+        for (FieldChange change : changes) {
+            if (matches(change)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(patterns);
+    }
+
+    // Whether the path is the parent path or the path itself
+    private static boolean covers(String path, String parent) {
+        if (!path.startsWith(parent)) {
+            return false;
+        }
+        if (path.length() == parent.length()) {
+            return true;
+        }
+        char next = path.charAt(parent.length());
+        return next == '.' || next == '[';
+    }
+}
@@ -0,0 +1,158 @@
+package cz.bankid.examples.diff;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import cz.bankid.examples.json.BankIDJson;
+import cz.bankid.examples.product.IProduct;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Field level comparison of two snapshots of the same profile
+ *
+ * The products are compared as their JSON trees ({@link BankIDJson}), so the nested addresses, id cards, payment
+ * accounts and verified claims are compared down to the single values. Only the leaves that differ are reported,
+ * a whole object or list is reported only when it was added or removed. The list items are paired by their natural
+ * key, the {@code number} of an id card, the {@code type} of an address and the value of a payment account, so
+ * a removed or reordered item does not change the following ones. The path holds the index of the item in the current
+ * list ({@code idcards[1]}), in the previous list for a removed item. Lists without unique keys are compared by the
+ * index. The {@code txn} claim differs in every response and is not compared.
+ *
+ * <pre>
+ * List&lt;FieldChange&gt; changes = ProfileDiff.diff(stored, fetched);
+ * if (FieldMatcher.AML_REVIEW.matchesAny(changes)) {
+ *     ... trigger the AML review ...
+ * }
+ * </pre>
+ */
+public final class ProfileDiff {
+
+    // Properties identifying a list item, the number of an id card, the type of an address
+    private static final String[] KEY_PROPERTIES = {"number", "type"};
+
+    private ProfileDiff() {
+    }
+
+    /**
+     * Changed fields between the previous and the current profile, empty when they are equal
+     *
+     * @param before the previous snapshot, null for a new profile
+     * @param after the current snapshot
+     */
+    public static <T extends IProduct> List<FieldChange> diff(T before, T after) {
+        if (before != null && before.getClass() != after.getClass()) {
+            throw new IllegalArgumentException("Cannot compare " + before.getClass().getSimpleName() + " with "
+                    + after.getClass().getSimpleName());
+        }
+        List<FieldChange> changes = new ArrayList<>();
+        compareObjects("", tree(before), tree(after), changes);
+        return changes.isEmpty() ? Collections.emptyList() : changes;
+    }
+
+    private static JsonObject tree(IProduct product) {
+        if (product == null) {
+            return new JsonObject();
+        }
+        JsonObject json = BankIDJson.gson().toJsonTree(product).getAsJsonObject();
+        json.remove("txn");
+        return json;
+    }
+
+    private static void compare(String path, JsonElement before, JsonElement after, List<FieldChange> changes) {
+        boolean missingBefore = before == null || before.isJsonNull();
+        boolean missingAfter = after == null || after.isJsonNull();
+        if (missingBefore && missingAfter) {
+            return;
+        }
+        if (missingBefore) {
+            changes.add(new FieldChange(path, FieldChange.Type.ADDED, null, after));
+        } else if (missingAfter) {
+            changes.add(new FieldChange(path, FieldChange.Type.REMOVED, before, null));
+        } else if (before.isJsonObject() && after.isJsonObject()) {
+            compareObjects(path, before.getAsJsonObject(), after.getAsJsonObject(), changes);
+        } else if (before.isJsonArray() && after.isJsonArray()) {
+            compareArrays(path, before.getAsJsonArray(), after.getAsJsonArray(), changes);
+        } else if (!before.equals(after)) {
+            changes.add(new FieldChange(path, FieldChange.Type.CHANGED, before, after));
+        }
+    }
+
+    private static void compareObjects(String path, JsonObject before, JsonObject after, List<FieldChange> changes) {
+        String prefix = path.isEmpty() ? "" : path + '.';
+        for (Map.Entry<String, JsonElement> property : before.entrySet()) {
+            compare(prefix + property.getKey(), property.getValue(), after.get(property.getKey()), changes);
+        }
+        for (Map.Entry<String, JsonElement> property : after.entrySet()) {
+            if (!before.has(property.getKey())) {
+                compare(prefix + property.getKey(), null, property.getValue(), changes);
+            }
+        }
+    }
+
+    private static void compareArrays(String path, JsonArray before, JsonArray after, List<FieldChange> changes) {
+        Map<JsonElement, Integer> beforeKeys = keys(before);
+        Map<JsonElement, Integer> afterKeys = keys(after);
+        if (beforeKeys == null || afterKeys == null) {
+            compareByIndex(path, before, after, changes);
+            return;
+        }
+        for (Map.Entry<JsonElement, Integer> item : beforeKeys.entrySet()) {
+            Integer index = afterKeys.get(item.getKey());
+            JsonElement previous = before.get(item.getValue());
+            if (index == null) {
+                compare(path + '[' + item.getValue() + ']', previous, null, changes);
+            } else {
+                compare(path + '[' + index + ']', previous, after.get(index), changes);
+            }
+        }
+        for (Map.Entry<JsonElement, Integer> item : afterKeys.entrySet()) {
+            if (!beforeKeys.containsKey(item.getKey())) {
+                compare(path + '[' + item.getValue() + ']', null, after.get(item.getValue()), changes);
+            }
+        }
+    }
+
+    private static void compareByIndex(String path, JsonArray before, JsonArray after, List<FieldChange> changes) {
+        int size = Math.max(before.size(), after.size());
+        for (int i = 0; i < size; i++) {
+            JsonElement previous = i < before.size() ? before.get(i) : null;
+            JsonElement current = i < after.size() ? after.get(i) : null;
+            compare(path + '[' + i + ']', previous, current, changes);
+        }
+    }
+
+    /**
+     * Indexes of the list items by their keys, null when an item has no key or the keys are not unique
+     */
+    private static Map<JsonElement, Integer> keys(JsonArray array) {
+        Map<JsonElement, Integer> keys = new LinkedHashMap<>();
+        for (int i = 0; i < array.size(); i++) {
+            JsonElement key = key(array.get(i));
+            if (key == null || keys.put(key, i) != null) {
+                return null;
+            }
+        }
+        return keys;
+    }
+
+    private static JsonElement key(JsonElement item) {
+        if (item.isJsonPrimitive()) {
+            return item;
+        }
+        if (!item.isJsonObject()) {
+            return null;
+        }
+        for (String property : KEY_PROPERTIES) {
+            JsonElement key = item.getAsJsonObject().get(property);
+            if (key != null && key.isJsonPrimitive()) {
+                return key;
+            }
+        }
+        return null;
+    }
+}
@@ -1,4 +1,94 @@
 package cz.bankid.examples.entities.entity;
 
+/**
+ * Tokens issued by the BankID token endpoint for one user session
+ */
 public class Tokens {
+
+    /**
+     * Access token for the UserInfo and Profile API calls.
+     */
+    String access_token;
+    /**
+     * Type of the access token, BankID issues Bearer tokens.
+     */
+    String token_type;
+    /**
+     * Lifetime of the access token in seconds from the time the token response was issued.
+     */
+    long expires_in;
+    /**
+     * Time the access token expires, seconds since 1970-01-01T0:0:0Z. It is not part of the token response, the
+     * application computes it from expires_in when the tokens are received.
+     */
+    long expires_at;
+    /**
+     * Refresh token for obtaining new access tokens. Issued only with the refresh token grant registered at the
+     * Developer Portal and the offline_access scope.
+     */
+    String refresh_token;
+    /**
+     * ID token (JWT) with the authentication claims about the End-User.
+     */
+    String id_token;
+    /**
+     * Space separated scopes granted to the access token.
+     */
+    String scope;
+
+    public String getAccess_token() {
+        return access_token;
+    }
+
+    public void setAccess_token(String access_token) {
+        this.access_token = access_token;
+    }
+
+    public String getToken_type() {
+        return token_type;
+    }
+
+    public void setToken_type(String token_type) {
+        this.token_type = token_type;
+    }
+
+    public long getExpires_in() {
+        return expires_in;
+    }
+
+    public void setExpires_in(long expires_in) {
+        this.expires_in = expires_in;
+    }
+
+    public long getExpires_at() {
+        return expires_at;
+    }
+
+    public void setExpires_at(long expires_at) {
+        this.expires_at = expires_at;
+    }
+
+    public String getRefresh_token() {
+        return refresh_token;
+    }
+
+    public void setRefresh_token(String refresh_token) {
+        this.refresh_token = refresh_token;
+    }
+
+    public String getId_token() {
+        return id_token;
+    }
+
+    public void setId_token(String id_token) {
+        this.id_token = id_token;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
 }
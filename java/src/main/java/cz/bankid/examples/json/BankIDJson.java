@@ -0,0 +1,91 @@
+package cz.bankid.examples.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.nimbusds.oauth2.sdk.ParseException;
+import cz.bankid.examples.entities.entity.AddressType;
+import cz.bankid.examples.entities.entity.Gender;
+import cz.bankid.examples.entities.entity.IDCardType;
+import cz.bankid.examples.entities.entity.MaritalStatus;
+import cz.bankid.examples.entities.entity.TrustFramework;
+import cz.bankid.examples.product.IProduct;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON mapping of the BankID products
+ *
+ * The registry holds one preconfigured Gson instance with the generated adapters of the products, claims and
+ * entities ({@link BankIDTypeAdapterFactory}) and the adapters of the BankID enums. It is set up once per JVM and
+ * shared by all examples. Gson is immutable and thread-safe, an application needing its own settings can derive
+ * a new instance with {@code BankIDJson.gson().newBuilder()}.
+ */
+public final class BankIDJson {
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapterFactory(new BankIDTypeAdapterFactory())
+            .registerTypeAdapter(AddressType.class, EntityAdapters.ADDRESS_TYPE)
+            .registerTypeAdapter(Gender.class, EntityAdapters.GENDER)
+            .registerTypeAdapter(IDCardType.class, EntityAdapters.ID_CARD_TYPE)
+            .registerTypeAdapter(MaritalStatus.class, EntityAdapters.MARITAL_STATUS)
+            .registerTypeAdapter(TrustFramework.class, EntityAdapters.TRUST_FRAMEWORK)
+            .create();
+
+    private BankIDJson() {
+    }
+
+    /**
+     * The shared Gson instance
+     */
+    public static Gson gson() {
+        return GSON;
+    }
+
+    /**
+     * Parses the product from the UserInfo or Profile API response body
+     *
+     * @param json response body
+     * @param product class of the product
+     * @throws ParseException when the body is missing, is not valid JSON or does not match the product
+     */
+    public static <T extends IProduct> T parse(String json, Class<T> product) throws ParseException {
+        if (json == null) {
+            throw new ParseException("Missing data in the response");
+        }
+        return parse(new StringReader(json), product);
+    }
+
+    /**
+     * Parses the product from a UTF-8 encoded response body, the stream is not closed
+     */
+    public static <T extends IProduct> T parse(InputStream json, Class<T> product) throws ParseException {
+        return parse(new InputStreamReader(json, StandardCharsets.UTF_8), product);
+    }
+
+    /**
+     * Parses the product from the response body in a single pass, the reader is not closed
+     */
+    public static <T extends IProduct> T parse(Reader json, Class<T> product) throws ParseException {
+        try {
+            JsonReader reader = new JsonReader(json);
+            T data = GSON.getAdapter(product).read(reader);
+            if (data == null) {
+                throw new ParseException("Missing data in the response");
+            }
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new ParseException("Unexpected data after the " + product.getSimpleName() + " object");
+            }
+            return data;
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            throw new ParseException("Invalid data in the response: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package cz.bankid.examples.json;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import cz.bankid.examples.entities.ConnectClaims;
+import cz.bankid.examples.entities.ConnectVerifiedClaims;
+import cz.bankid.examples.entities.IdentifyAMLClaims;
+import cz.bankid.examples.entities.IdentifyAMLVerifiedClaims;
+import cz.bankid.examples.entities.IdentifyClaims;
+import cz.bankid.examples.entities.IdentifyPlusClaims;
+import cz.bankid.examples.entities.IdentifyPlusVerifiedClaims;
+import cz.bankid.examples.entities.IdentifyVerifiedClaims;
+import cz.bankid.examples.entities.entity.Address;
+import cz.bankid.examples.entities.entity.IDCard;
+import cz.bankid.examples.entities.entity.Tokens;
+import cz.bankid.examples.entities.entity.Verification;
+import cz.bankid.examples.product.Connect;
+import cz.bankid.examples.product.Identify;
+import cz.bankid.examples.product.IdentifyAML;
+import cz.bankid.examples.product.IdentifyPlus;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Factory of the generated, reflection-free adapters of the BankID products, claims and entities
+ *
+ * Only the exact classes are matched, an application subclass of a product falls back to the reflective adapter
+ * of Gson, so its own fields are not lost.
+ */
+public final class BankIDTypeAdapterFactory implements TypeAdapterFactory {
+
+    private static final Map<Class<?>, TypeAdapter<?>> ADAPTERS = new HashMap<>();
+
+    static {
+        ADAPTERS.put(Connect.class, ProductAdapters.CONNECT);
+        ADAPTERS.put(Identify.class, ProductAdapters.IDENTIFY);
+        ADAPTERS.put(IdentifyPlus.class, ProductAdapters.IDENTIFY_PLUS);
+        ADAPTERS.put(IdentifyAML.class, ProductAdapters.IDENTIFY_AML);
+        ADAPTERS.put(LazyProduct.class, new LazyProduct.Adapter());
+
+        ADAPTERS.put(ConnectClaims.class, ClaimsAdapters.CONNECT_CLAIMS);
+        ADAPTERS.put(IdentifyClaims.class, ClaimsAdapters.IDENTIFY_CLAIMS);
+        ADAPTERS.put(IdentifyPlusClaims.class, ClaimsAdapters.IDENTIFY_PLUS_CLAIMS);
+        ADAPTERS.put(IdentifyAMLClaims.class, ClaimsAdapters.IDENTIFY_AML_CLAIMS);
+        ADAPTERS.put(ConnectVerifiedClaims.class, ClaimsAdapters.CONNECT_VERIFIED_CLAIMS);
+        ADAPTERS.put(IdentifyVerifiedClaims.class, ClaimsAdapters.IDENTIFY_VERIFIED_CLAIMS);
+        ADAPTERS.put(IdentifyPlusVerifiedClaims.class, ClaimsAdapters.IDENTIFY_PLUS_VERIFIED_CLAIMS);
+        ADAPTERS.put(IdentifyAMLVerifiedClaims.class, ClaimsAdapters.IDENTIFY_AML_VERIFIED_CLAIMS);
+
+        ADAPTERS.put(Address.class, EntityAdapters.ADDRESS);
+        ADAPTERS.put(IDCard.class, EntityAdapters.ID_CARD);
+        ADAPTERS.put(Verification.class, EntityAdapters.VERIFICATION);
+        ADAPTERS.put(Tokens.class, EntityAdapters.TOKENS);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        return (TypeAdapter<T>) ADAPTERS.get(type.getRawType());
+    }
+}
@@ -0,0 +1,398 @@
+package cz.bankid.examples.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import cz.bankid.examples.entities.ConnectClaims;
+import cz.bankid.examples.entities.ConnectVerifiedClaims;
+import cz.bankid.examples.entities.IdentifyAMLClaims;
+import cz.bankid.examples.entities.IdentifyAMLVerifiedClaims;
+import cz.bankid.examples.entities.IdentifyClaims;
+import cz.bankid.examples.entities.IdentifyPlusClaims;
+import cz.bankid.examples.entities.IdentifyPlusVerifiedClaims;
+import cz.bankid.examples.entities.IdentifyVerifiedClaims;
+
+import java.io.IOException;
+
+/**
+ * Generated adapters of the claims and verified claims classes in {@code cz.bankid.examples.entities}
+ *
+ * The properties of every class in the hierarchy are read and written by a static method, the adapter of a subclass
+ * handles its own properties and delegates the rest to the method of its superclass. The products reuse the methods
+ * the same way.
+ */
+final class ClaimsAdapters {
+
+    static final ConnectClaimsAdapter CONNECT_CLAIMS = new ConnectClaimsAdapter();
+    static final IdentifyClaimsAdapter IDENTIFY_CLAIMS = new IdentifyClaimsAdapter();
+    static final IdentifyPlusClaimsAdapter IDENTIFY_PLUS_CLAIMS = new IdentifyPlusClaimsAdapter();
+    static final IdentifyAMLClaimsAdapter IDENTIFY_AML_CLAIMS = new IdentifyAMLClaimsAdapter();
+
+    static final ConnectVerifiedClaimsAdapter CONNECT_VERIFIED_CLAIMS = new ConnectVerifiedClaimsAdapter();
+    static final IdentifyVerifiedClaimsAdapter IDENTIFY_VERIFIED_CLAIMS = new IdentifyVerifiedClaimsAdapter();
+    static final IdentifyPlusVerifiedClaimsAdapter IDENTIFY_PLUS_VERIFIED_CLAIMS = new IdentifyPlusVerifiedClaimsAdapter();
+    static final IdentifyAMLVerifiedClaimsAdapter IDENTIFY_AML_VERIFIED_CLAIMS = new IdentifyAMLVerifiedClaimsAdapter();
+
+    private ClaimsAdapters() {
+    }
+
+    static boolean readConnectClaims(JsonReader in, String name, ConnectClaims target) throws IOException {
+        switch (name) {
+            case "name":
+                target.setName(JsonValues.nextString(in));
+                return true;
+            case "given_name":
+                target.setGiven_name(JsonValues.nextString(in));
+                return true;
+            case "family_name":
+                target.setFamily_name(JsonValues.nextString(in));
+                return true;
+            case "middle_name":
+                target.setMiddle_name(JsonValues.nextString(in));
+                return true;
+            case "nickname":
+                target.setNickname(JsonValues.nextString(in));
+                return true;
+            case "preferred_username":
+                target.setPreferred_username(JsonValues.nextString(in));
+                return true;
+            case "email":
+                target.setEmail(JsonValues.nextString(in));
+                return true;
+            case "email_verified":
+                target.setEmail_verified(JsonValues.nextBoolean(in, target.isEmail_verified()));
+                return true;
+            case "gender":
+                target.setGender(EntityAdapters.GENDER.read(in));
+                return true;
+            case "birthdate":
+                target.setBirthdate(JsonValues.nextString(in));
+                return true;
+            case "zoneinfo":
+                target.setZoneinfo(JsonValues.nextString(in));
+                return true;
+            case "locale":
+                target.setLocale(JsonValues.nextString(in));
+                return true;
+            case "phone_number":
+                target.setPhone_number(JsonValues.nextString(in));
+                return true;
+            case "phone_number_verified":
+                target.setPhone_number_verified(JsonValues.nextBoolean(in, target.isPhone_number_verified()));
+                return true;
+            case "updated_at":
+                target.setUpdated_at(JsonValues.nextLong(in, target.getUpdated_at()));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static void writeConnectClaims(JsonWriter out, ConnectClaims value) throws IOException {
+        out.name("name").value(value.getName());
+        out.name("given_name").value(value.getGiven_name());
+        out.name("family_name").value(value.getFamily_name());
+        out.name("middle_name").value(value.getMiddle_name());
+        out.name("nickname").value(value.getNickname());
+        out.name("preferred_username").value(value.getPreferred_username());
+        out.name("email").value(value.getEmail());
+        out.name("email_verified").value(value.isEmail_verified());
+        out.name("gender");
+        EntityAdapters.GENDER.write(out, value.getGender());
+        out.name("birthdate").value(value.getBirthdate());
+        out.name("zoneinfo").value(value.getZoneinfo());
+        out.name("locale").value(value.getLocale());
+        out.name("phone_number").value(value.getPhone_number());
+        out.name("phone_number_verified").value(value.isPhone_number_verified());
+        out.name("updated_at").value(value.getUpdated_at());
+    }
+
+    static boolean readIdentifyClaims(JsonReader in, String name, IdentifyClaims target) throws IOException {
+        switch (name) {
+            case "title_prefix":
+                target.setTitle_prefix(JsonValues.nextString(in));
+                return true;
+            case "title_suffix":
+                target.setTitle_suffix(JsonValues.nextString(in));
+                return true;
+            case "given_name":
+                target.setGiven_name(JsonValues.nextString(in));
+                return true;
+            case "family_name":
+                target.setFamily_name(JsonValues.nextString(in));
+                return true;
+            case "middle_name":
+                target.setMiddle_name(JsonValues.nextString(in));
+                return true;
+            case "phone_number":
+                target.setPhone_number(JsonValues.nextString(in));
+                return true;
+            case "email":
+                target.setEmail(JsonValues.nextString(in));
+                return true;
+            case "addresses":
+                target.setAddresses(JsonValues.nextList(in, EntityAdapters.ADDRESS));
+                return true;
+            case "birthdate":
+                target.setBirthdate(JsonValues.nextString(in));
+                return true;
+            case "age":
+                target.setAge(JsonValues.nextInt(in, target.getAge()));
+                return true;
+            case "date_of_death":
+                target.setDate_of_death(JsonValues.nextString(in));
+                return true;
+            case "gender":
+                target.setGender(EntityAdapters.GENDER.read(in));
+                return true;
+            case "birthnumber":
+                target.setBirthnumber(JsonValues.nextString(in));
+                return true;
+            case "updated_at":
+                target.setUpdated_at(JsonValues.nextLong(in, target.getUpdated_at()));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static void writeIdentifyClaims(JsonWriter out, IdentifyClaims value) throws IOException {
+        out.name("title_prefix").value(value.getTitle_prefix());
+        out.name("title_suffix").value(value.getTitle_suffix());
+        out.name("given_name").value(value.getGiven_name());
+        out.name("family_name").value(value.getFamily_name());
+        out.name("middle_name").value(value.getMiddle_name());
+        out.name("phone_number").value(value.getPhone_number());
+        out.name("email").value(value.getEmail());
+        out.name("addresses");
+        JsonValues.writeList(out, value.getAddresses(), EntityAdapters.ADDRESS);
+        out.name("birthdate").value(value.getBirthdate());
+        out.name("age").value(value.getAge());
+        out.name("date_of_death").value(value.getDate_of_death());
+        out.name("gender");
+        EntityAdapters.GENDER.write(out, value.getGender());
+        out.name("birthnumber").value(value.getBirthnumber());
+        out.name("updated_at").value(value.getUpdated_at());
+    }
+
+    static boolean readIdentifyPlusClaims(JsonReader in, String name, IdentifyPlusClaims target) throws IOException {
+        switch (name) {
+            case "birthplace":
+                target.setBirthplace(JsonValues.nextString(in));
+                return true;
+            case "primary_nationality":
+                target.setPrimary_nationality(JsonValues.nextString(in));
+                return true;
+            case "nationalities":
+                target.setNationalities(JsonValues.nextStringArray(in));
+                return true;
+            case "maritalstatus":
+                target.setMaritalstatus(EntityAdapters.MARITAL_STATUS.read(in));
+                return true;
+            case "idcards":
+                target.setIdcards(JsonValues.nextList(in, EntityAdapters.ID_CARD));
+                return true;
+            case "majority":
+                target.setMajority(JsonValues.nextBoolean(in, target.isMajority()));
+                return true;
+            case "pep":
+                target.setPep(JsonValues.nextBoolean(in, target.isPep()));
+                return true;
+            case "limited_legal_capacity":
+                target.setLimited_legal_capacity(JsonValues.nextBoolean(in, target.isLimited_legal_capacity()));
+                return true;
+            case "paymentAccounts":
+                target.setPaymentAccounts(JsonValues.nextList(in, JsonValues.StringAdapter.INSTANCE));
+                return true;
+            default:
+                return readIdentifyClaims(in, name, target);
+        }
+    }
+
+    static void writeIdentifyPlusClaims(JsonWriter out, IdentifyPlusClaims value) throws IOException {
+        out.name("birthplace").value(value.getBirthplace());
+        out.name("primary_nationality").value(value.getPrimary_nationality());
+        out.name("nationalities");
+        JsonValues.writeStringArray(out, value.getNationalities());
+        out.name("maritalstatus");
+        EntityAdapters.MARITAL_STATUS.write(out, value.getMaritalstatus());
+        out.name("idcards");
+        JsonValues.writeList(out, value.getIdcards(), EntityAdapters.ID_CARD);
+        out.name("majority").value(value.isMajority());
+        out.name("pep").value(value.isPep());
+        out.name("limited_legal_capacity").value(value.isLimited_legal_capacity());
+        out.name("paymentAccounts");
+        JsonValues.writeList(out, value.getPaymentAccounts(), JsonValues.StringAdapter.INSTANCE);
+        writeIdentifyClaims(out, value);
+    }
+
+    static final class ConnectClaimsAdapter extends ObjectAdapter<ConnectClaims> {
+
+        @Override
+        ConnectClaims create() {
+            return new ConnectClaims();
+        }
+
+        @Override
+        boolean readProperty(JsonReader in, String name, ConnectClaims target) throws IOException {
+            return readConnectClaims(in, name, target);
+        }
+
+        @Override
+        void writeProperties(JsonWriter out, ConnectClaims value) throws IOException {
+            writeConnectClaims(out, value);
+        }
+    }
+
+    static final class IdentifyClaimsAdapter extends ObjectAdapter<IdentifyClaims> {
+
+        @Override
+        IdentifyClaims create() {
+            return new IdentifyClaims();
+        }
+
+        @Override
+        boolean readProperty(JsonReader in, String name, IdentifyClaims target) throws IOException {
+            return readIdentifyClaims(in, name, target);
+        }
+
+        @Override
+        void writeProperties(JsonWriter out, IdentifyClaims value) throws IOException {
+            writeIdentifyClaims(out, value);
+        }
+    }
+
+    static final class IdentifyPlusClaimsAdapter extends ObjectAdapter<IdentifyPlusClaims> {
+
+        @Override
+        IdentifyPlusClaims create() {
+            return new IdentifyPlusClaims();
+        }
+
+        @Override
+        boolean readProperty(JsonReader in, String name, IdentifyPlusClaims target) throws IOException {
+            return readIdentifyPlusClaims(in, name, target);
+        }
+
+        @Override
+        void writeProperties(JsonWriter out, IdentifyPlusClaims value) throws IOException {
+            writeIdentifyPlusClaims(out, value);
+        }
+    }
+
+    static final class IdentifyAMLClaimsAdapter extends ObjectAdapter<IdentifyAMLClaims> {
+
+        @Override
+        IdentifyAMLClaims create() {
+            return new IdentifyAMLClaims();
+        }
+
+        @Override
+        boolean readProperty(JsonReader in, String name, IdentifyAMLClaims target) throws IOException {
+            return readIdentifyPlusClaims(in, name, target);
+        }
+
+        @Override
+        void writeProperties(JsonWriter out, IdentifyAMLClaims value) throws IOException {
+            writeIdentifyPlusClaims(out, value);
+        }
+    }
+
+    static final class ConnectVerifiedClaimsAdapter extends ObjectAdapter<ConnectVerifiedClaims> {
+
+        @Override
+        ConnectVerifiedClaims create() {
+            return new ConnectVerifiedClaims();
+        }
+
+        @Override
+        boolean readProperty(JsonReader in, String name, ConnectVerifiedClaims target) throws IOException {
+            if ("claims".equals(name)) {
+                target.setClaims(CONNECT_CLAIMS.read(in));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        void writeProperties(JsonWriter out, ConnectVerifiedClaims value) throws IOException {
+            out.name("claims");
+            CONNECT_CLAIMS.write(out, value.getClaims());
+        }
+    }
+
+    static final class IdentifyVerifiedClaimsAdapter extends ObjectAdapter<IdentifyVerifiedClaims> {
+
+        @Override
+        IdentifyVerifiedClaims create() {
+            return new IdentifyVerifiedClaims();
+        }
+
+        @Override
+        boolean readProperty(JsonReader in, String name, IdentifyVerifiedClaims target) throws IOException {
+            if ("claims".equals(name)) {
+                target.setClaims(IDENTIFY_CLAIMS.read(in));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        void writeProperties(JsonWriter out, IdentifyVerifiedClaims value) throws IOException {
+            out.name("claims");
+            IDENTIFY_CLAIMS.write(out, value.getClaims());
+        }
+    }
+
+    static final class IdentifyPlusVerifiedClaimsAdapter extends ObjectAdapter<IdentifyPlusVerifiedClaims> {
+
+        @Override
+        IdentifyPlusVerifiedClaims create() {
+            return new IdentifyPlusVerifiedClaims();
+        }
+
+        @Override
+        boolean readProperty(JsonReader in, String name, IdentifyPlusVerifiedClaims target) throws IOException {
+            if ("claims".equals(name)) {
+                target.setClaims(IDENTIFY_PLUS_CLAIMS.read(in));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        void writeProperties(JsonWriter out, IdentifyPlusVerifiedClaims value) throws IOException {
+            out.name("claims");
+            IDENTIFY_PLUS_CLAIMS.write(out, value.getClaims());
+        }
+    }
+
+    static final class IdentifyAMLVerifiedClaimsAdapter extends ObjectAdapter<IdentifyAMLVerifiedClaims> {
+
+        @Override
+        IdentifyAMLVerifiedClaims create() {
+            return new IdentifyAMLVerifiedClaims();
+        }
+
+        @Override
+        boolean readProperty(JsonReader in, String name, IdentifyAMLVerifiedClaims target) throws IOException {
+            switch (name) {
+                case "verification":
+                    target.setVerification(EntityAdapters.VERIFICATION.read(in));
+                    return true;
+                case "claims":
+                    target.setClaims(IDENTIFY_PLUS_CLAIMS.read(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        void writeProperties(JsonWriter out, IdentifyAMLVerifiedClaims value) throws IOException {
+            out.name("verification");
+            EntityAdapters.VERIFICATION.write(out, value.getVerification());
+            out.name("claims");
+            IDENTIFY_PLUS_CLAIMS.write(out, value.getClaims());
+        }
+    }
+}
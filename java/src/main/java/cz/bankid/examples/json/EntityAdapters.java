@@ -0,0 +1,218 @@
+package cz.bankid.examples.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import cz.bankid.examples.entities.entity.Address;
+import cz.bankid.examples.entities.entity.AddressType;
+import cz.bankid.examples.entities.entity.Gender;
+import cz.bankid.examples.entities.entity.IDCard;
+import cz.bankid.examples.entities.entity.IDCardType;
+import cz.bankid.examples.entities.entity.MaritalStatus;
+import cz.bankid.examples.entities.entity.Tokens;
+import cz.bankid.examples.entities.entity.TrustFramework;
+import cz.bankid.examples.entities.entity.Verification;
+
+import java.io.IOException;
+
+/**
+ * Generated adapters of the classes in {@code cz.bankid.examples.entities.entity}
+ */
+final class EntityAdapters {
+
+    static final EnumAdapter<AddressType> ADDRESS_TYPE = new EnumAdapter<>(AddressType.class);
+    static final EnumAdapter<Gender> GENDER = new EnumAdapter<>(Gender.class);
+    static final EnumAdapter<IDCardType> ID_CARD_TYPE = new EnumAdapter<>(IDCardType.class);
+    static final EnumAdapter<MaritalStatus> MARITAL_STATUS = new EnumAdapter<>(MaritalStatus.class);
+    static final EnumAdapter<TrustFramework> TRUST_FRAMEWORK = new EnumAdapter<>(TrustFramework.class);
+
+    static final AddressAdapter ADDRESS = new AddressAdapter();
+    static final IDCardAdapter ID_CARD = new IDCardAdapter();
+    static final VerificationAdapter VERIFICATION = new VerificationAdapter();
+    static final TokensAdapter TOKENS = new TokensAdapter();
+
+    private EntityAdapters() {
+    }
+
+    static final class AddressAdapter extends ObjectAdapter<Address> {
+
+        @Override
+        Address create() {
+            return new Address();
+        }
+
+        @Override
+        boolean readProperty(JsonReader in, String name, Address target) throws IOException {
+            switch (name) {
+                case "type":
+                    target.setType(ADDRESS_TYPE.read(in));
+                    return true;
+                case "street":
+                    target.setStreet(JsonValues.nextString(in));
+                    return true;
+                case "buildingapartment":
+                    target.setBuildingapartment(JsonValues.nextString(in));
+                    return true;
+                case "streetnumber":
+                    target.setStreetnumber(JsonValues.nextString(in));
+                    return true;
+                case "city":
+                    target.setCity(JsonValues.nextString(in));
+                    return true;
+                case "zipcode":
+                    target.setZipcode(JsonValues.nextString(in));
+                    return true;
+                case "country":
+                    target.setCountry(JsonValues.nextString(in));
+                    return true;
+                case "ruian_reference":
+                    target.setRuian_reference(JsonValues.nextString(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        void writeProperties(JsonWriter out, Address value) throws IOException {
+            out.name("type");
+            ADDRESS_TYPE.write(out, value.getType());
+            out.name("street").value(value.getStreet());
+            out.name("buildingapartment").value(value.getBuildingapartment());
+            out.name("streetnumber").value(value.getStreetnumber());
+            out.name("city").value(value.getCity());
+            out.name("zipcode").value(value.getZipcode());
+            out.name("country").value(value.getCountry());
+            out.name("ruian_reference").value(value.getRuian_reference());
+        }
+    }
+
+    static final class IDCardAdapter extends ObjectAdapter<IDCard> {
+
+        @Override
+        IDCard create() {
+            return new IDCard();
+        }
+
+        @Override
+        boolean readProperty(JsonReader in, String name, IDCard target) throws IOException {
+            switch (name) {
+                case "type":
+                    target.setType(ID_CARD_TYPE.read(in));
+                    return true;
+                case "description":
+                    target.setDescription(JsonValues.nextString(in));
+                    return true;
+                case "country":
+                    target.setCountry(JsonValues.nextString(in));
+                    return true;
+                case "number":
+                    target.setNumber(JsonValues.nextString(in));
+                    return true;
+                case "valid_to":
+                    target.setValid_to(JsonValues.nextString(in));
+                    return true;
+                case "issuer":
+                    target.setIssuer(JsonValues.nextString(in));
+                    return true;
+                case "issue_date":
+                    target.setIssue_date(JsonValues.nextString(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        void writeProperties(JsonWriter out, IDCard value) throws IOException {
+            out.name("type");
+            ID_CARD_TYPE.write(out, value.getType());
+            out.name("description").value(value.getDescription());
+            out.name("country").value(value.getCountry());
+            out.name("number").value(value.getNumber());
+            out.name("valid_to").value(value.getValid_to());
+            out.name("issuer").value(value.getIssuer());
+            out.name("issue_date").value(value.getIssue_date());
+        }
+    }
+
+    static final class VerificationAdapter extends ObjectAdapter<Verification> {
+
+        @Override
+        Verification create() {
+            return new Verification();
+        }
+
+        @Override
+        boolean readProperty(JsonReader in, String name, Verification target) throws IOException {
+            switch (name) {
+                case "trust_framework":
+                    target.setTrust_framework(TRUST_FRAMEWORK.read(in));
+                    return true;
+                case "time":
+                    target.setTime(JsonValues.nextString(in));
+                    return true;
+                case "verification_process":
+                    target.setVerification_process(JsonValues.nextString(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        void writeProperties(JsonWriter out, Verification value) throws IOException {
+            out.name("trust_framework");
+            TRUST_FRAMEWORK.write(out, value.getTrust_framework());
+            out.name("time").value(value.getTime());
+            out.name("verification_process").value(value.getVerification_process());
+        }
+    }
+
+    static final class TokensAdapter extends ObjectAdapter<Tokens> {
+
+        @Override
+        Tokens create() {
+            return new Tokens();
+        }
+
+        @Override
+        boolean readProperty(JsonReader in, String name, Tokens target) throws IOException {
+            switch (name) {
+                case "access_token":
+                    target.setAccess_token(JsonValues.nextString(in));
+                    return true;
+                case "token_type":
+                    target.setToken_type(JsonValues.nextString(in));
+                    return true;
+                case "expires_in":
+                    target.setExpires_in(JsonValues.nextLong(in, target.getExpires_in()));
+                    return true;
+                case "expires_at":
+                    target.setExpires_at(JsonValues.nextLong(in, target.getExpires_at()));
+                    return true;
+                case "refresh_token":
+                    target.setRefresh_token(JsonValues.nextString(in));
+                    return true;
+                case "id_token":
+                    target.setId_token(JsonValues.nextString(in));
+                    return true;
+                case "scope":
+                    target.setScope(JsonValues.nextString(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        void writeProperties(JsonWriter out, Tokens value) throws IOException {
+            out.name("access_token").value(value.getAccess_token());
+            out.name("token_type").value(value.getToken_type());
+            out.name("expires_in").value(value.getExpires_in());
+            out.name("expires_at").value(value.getExpires_at());
+            out.name("refresh_token").value(value.getRefresh_token());
+            out.name("id_token").value(value.getId_token());
+            out.name("scope").value(value.getScope());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package cz.bankid.examples.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Adapter of the BankID enums, the JSON value is the name of the constant
+ *
+ * An unknown value is read as null, like the built-in Gson enum adapter does, so a new value added by BankID does
+ * not break the parsing of the whole product.
+ */
+final class EnumAdapter<E extends Enum<E>> extends TypeAdapter<E> {
+
+    private final Map<String, E> constants = new HashMap<>();
+
+    EnumAdapter(Class<E> type) {
+        for (E constant : type.getEnumConstants()) {
+            constants.put(constant.name(), constant);
+        }
+    }
+
+    /**
+     * The constant with the name, null when unknown
+     */
+    E constant(String name) {
+        return name == null ? null : constants.get(name);
+    }
+
+    @Override
+    public void write(JsonWriter out, E value) throws IOException {
+        out.value(value == null ? null : value.name());
+    }
+
+    @Override
+    public E read(JsonReader in) throws IOException {
+        String value = JsonValues.nextString(in);
+        return value == null ? null : constants.get(value);
+    }
+}
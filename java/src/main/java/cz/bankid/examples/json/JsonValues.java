@@ -0,0 +1,123 @@
+package cz.bankid.examples.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reading and writing of the JSON values used by the generated adapters
+ *
+ * The conversions follow the built-in Gson adapters, so the adapters accept the same input as the reflective
+ * deserialization. A JSON null leaves a primitive property at its current value.
+ */
+final class JsonValues {
+
+    private JsonValues() {
+    }
+
+    static String nextString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    static boolean nextBoolean(JsonReader in, boolean current) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return current;
+        }
+        if (token == JsonToken.STRING) {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+
+    static int nextInt(JsonReader in, int current) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return current;
+        }
+        return in.nextInt();
+    }
+
+    static long nextLong(JsonReader in, long current) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return current;
+        }
+        return in.nextLong();
+    }
+
+    static String[] nextStringArray(JsonReader in) throws IOException {
+        List<String> values = nextList(in, StringAdapter.INSTANCE);
+        return values == null ? null : values.toArray(new String[0]);
+    }
+
+    static <T> List<T> nextList(JsonReader in, TypeAdapter<T> element) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<T> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(element.read(in));
+        }
+        in.endArray();
+        return values;
+    }
+
+    static void writeStringArray(JsonWriter out, String[] values) throws IOException {
+        if (values == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (String value : values) {
+            out.value(value);
+        }
+        out.endArray();
+    }
+
+    static <T> void writeList(JsonWriter out, List<T> values, TypeAdapter<T> element) throws IOException {
+        if (values == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (T value : values) {
+            element.write(out, value);
+        }
+        out.endArray();
+    }
+
+    /**
+     * String elements of the lists
+     */
+    static final class StringAdapter extends TypeAdapter<String> {
+
+        static final StringAdapter INSTANCE = new StringAdapter();
+
+        @Override
+        public void write(JsonWriter out, String value) throws IOException {
+            out.value(value);
+        }
+
+        @Override
+        public String read(JsonReader in) throws IOException {
+            return nextString(in);
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package cz.bankid.examples.json;
+
+import com.google.gson.JsonParseException;
+import com.nimbusds.oauth2.sdk.ParseException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Read-only view of a JSON object in a UTF-8 buffer
+ *
+ * The object is scanned once when the view is created and the offsets of its members are recorded, the nested
+ * objects and arrays are only skipped. A value is decoded when it is read, a nested object gets its own view when it
+ * is read for the first time. The property names are compared as bytes and must not contain escapes, which holds for
+ * all BankID claims. When a property appears more than once, the last value wins, like in the generated adapters.
+ *
+ * The buffer is not copied and must not be changed while the view is used. A malformed value is reported by
+ * {@link JsonParseException} when it is read.
+ */
+public class LazyObject {
+
+    final byte[] buffer;
+
+    // Offsets of the names (without quotes) and of the values, in the order of the object
+    private int[] offsets;
+    private int members;
+
+    // Views of the nested objects by member, created on the first read
+    private LazyObject[] nested;
+
+    LazyObject(byte[] buffer, int start, int end) throws ParseException {
+        this.buffer = buffer;
+        this.offsets = new int[64];
+        int position = index(start, end);
+        if (skipWhitespace(position, end) != end) {
+            throw new ParseException("Unexpected data after the JSON object");
+        }
+    }
+
+    /**
+     * Whether the object has the property, also with the null value
+     */
+    public boolean has(String name) {
+        return find(name) >= 0;
+    }
+
+    /**
+     * The string value, numbers and booleans as their JSON text, null when missing or null
+     */
+    public String getString(String name) {
+        int member = find(name);
+        if (member < 0) {
+            return null;
+        }
+        int start = valueStart(member);
+        int end = valueEnd(member);
+        switch (buffer[start]) {
+            case '"':
+                return decodeString(start, end);
+            case '{':
+            case '[':
+                throw new JsonParseException("Expected a string in " + name);
+            default:
+                return isNull(start, end) ? null : new String(buffer, start, end - start, StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * The number value, {@code defaultValue} when missing or null
+     */
+    public long getLong(String name, long defaultValue) {
+        String value = getNumber(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            try {
+                return (long) Double.parseDouble(value);
+            } catch (NumberFormatException invalid) {
+                throw new JsonParseException("Expected a number in " + name, invalid);
+            }
+        }
+    }
+
+    /**
+     * The boolean value, false when missing or null
+     */
+    public boolean getBoolean(String name) {
+        int member = find(name);
+        if (member < 0) {
+            return false;
+        }
+        int start = valueStart(member);
+        int end = valueEnd(member);
+        if (buffer[start] == '"') {
+            return Boolean.parseBoolean(decodeString(start, end));
+        }
+        return end - start == 4 && buffer[start] == 't' && buffer[start + 1] == 'r' && buffer[start + 2] == 'u'
+                && buffer[start + 3] == 'e';
+    }
+
+    /**
+     * View of the nested object, null when missing or null
+     */
+    public LazyObject getObject(String name) {
+        int member = find(name);
+        if (member < 0) {
+            return null;
+        }
+        if (nested != null && nested[member] != null) {
+            return nested[member];
+        }
+        int start = valueStart(member);
+        int end = valueEnd(member);
+        if (isNull(start, end)) {
+            return null;
+        }
+        if (buffer[start] != '{') {
+            throw new JsonParseException("Expected an object in " + name);
+        }
+
+        LazyObject object;
+        try {
+            object = new LazyObject(buffer, start, end);
+        } catch (ParseException e) {
+            throw new JsonParseException("Invalid object in " + name, e);
+        }
+        if (nested == null) {
+            nested = new LazyObject[members];
+        }
+        nested[member] = object;
+        return object;
+    }
+
+    /**
+     * Names of the properties in the order of the object
+     */
+    public String[] names() {
+        String[] names = new String[members];
+        for (int i = 0; i < members; i++) {
+            names[i] = new String(buffer, offsets[4 * i], offsets[4 * i + 1] - offsets[4 * i], StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    private String getNumber(String name) {
+        int member = find(name);
+        if (member < 0) {
+            return null;
+        }
+        int start = valueStart(member);
+        int end = valueEnd(member);
+        if (buffer[start] == '"') {
+            return decodeString(start, end);
+        }
+        if (buffer[start] == '{' || buffer[start] == '[') {
+            throw new JsonParseException("Expected a number in " + name);
+        }
+        return isNull(start, end) ? null : new String(buffer, start, end - start, StandardCharsets.US_ASCII);
+    }
+
+    private int valueStart(int member) {
+        return offsets[4 * member + 2];
+    }
+
+    private int valueEnd(int member) {
+        return offsets[4 * member + 3];
+    }
+
+    /**
+     * Index of the last member with the name, -1 when there is none
+     */
+    int find(String name) {
+        int length = name.length();
+        for (int member = members - 1; member >= 0; member--) {
+            int start = offsets[4 * member];
+            if (offsets[4 * member + 1] - start != length) {
+                continue;
+            }
+            int i = 0;
+            // The ASCII names are compared without encoding them
+            while (i < length && buffer[start + i] == name.charAt(i)) {
+                i++;
+            }
+            if (i == length) {
+                return member;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isNull(int start, int end) {
+        return end - start == 4 && buffer[start] == 'n' && buffer[start + 1] == 'u' && buffer[start + 2] == 'l'
+                && buffer[start + 3] == 'l';
+    }
+
+    // Scanning
+
+    private int index(int position, int end) throws ParseException {
+        position = skipWhitespace(position, end);
+        if (position >= end || buffer[position] != '{') {
+            throw new ParseException("Expected a JSON object");
+        }
+        position = skipWhitespace(position + 1, end);
+        if (position < end && buffer[position] == '}') {
+            return position + 1;
+        }
+
+        while (true) {
+            if (position >= end || buffer[position] != '"') {
+                throw new ParseException("Expected a property name at " + position);
+            }
+            int nameStart = position + 1;
+            int nameEnd = skipString(position, end) - 1;
+
+            position = skipWhitespace(nameEnd + 1, end);
+            if (position >= end || buffer[position] != ':') {
+                throw new ParseException("Expected ':' at " + position);
+            }
+            int valueStart = skipWhitespace(position + 1, end);
+            int valueEnd = skipValue(valueStart, end);
+            add(nameStart, nameEnd, valueStart, valueEnd);
+
+            position = skipWhitespace(valueEnd, end);
+            if (position >= end) {
+                throw new ParseException("Unterminated JSON object");
+            }
+            if (buffer[position] == '}') {
+                return position + 1;
+            }
+            if (buffer[position] != ',') {
+                throw new ParseException("Expected ',' or '}' at " + position);
+            }
+            position = skipWhitespace(position + 1, end);
+        }
+    }
+
+    private void add(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        if (4 * members + 4 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        int i = 4 * members++;
+        offsets[i] = nameStart;
+        offsets[i + 1] = nameEnd;
+        offsets[i + 2] = valueStart;
+        offsets[i + 3] = valueEnd;
+    }
+
+    private int skipValue(int position, int end) throws ParseException {
+        if (position >= end) {
+            throw new ParseException("Expected a value at " + position);
+        }
+        byte b = buffer[position];
+        if (b == '"') {
+            return skipString(position, end);
+        }
+        if (b == '{' || b == '[') {
+            return skipNested(position, end);
+        }
+        // Number, true, false or null, checked when read
+        int literal = position;
+        while (literal < end) {
+            b = buffer[literal];
+            if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+                break;
+            }
+            literal++;
+        }
+        if (literal == position) {
+            throw new ParseException("Expected a value at " + position);
+        }
+        return literal;
+    }
+
+    private int skipNested(int position, int end) throws ParseException {
+        int depth = 0;
+        while (position < end) {
+            byte b = buffer[position];
+            if (b == '"') {
+                position = skipString(position, end);
+                continue;
+            }
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+                if (depth == 0) {
+                    return position + 1;
+                }
+            }
+            position++;
+        }
+        throw new ParseException("Unterminated JSON value");
+    }
+
+    /**
+     * Skips the string starting at the quote, returns the position after the closing quote
+     */
+    private int skipString(int position, int end) throws ParseException {
+        position++;
+        while (position < end) {
+            byte b = buffer[position];
+            if (b == '"') {
+                return position + 1;
+            }
+            position += b == '\\' ? 2 : 1;
+        }
+        throw new ParseException("Unterminated JSON string");
+    }
+
+    private int skipWhitespace(int position, int end) {
+        while (position < end) {
+            byte b = buffer[position];
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                break;
+            }
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Decodes the string value including the quotes
+     */
+    private String decodeString(int start, int end) {
+        int from = start + 1;
+        int to = end - 1;
+        int escape = from;
+        while (escape < to && buffer[escape] != '\\') {
+            escape++;
+        }
+        if (escape == to) {
+            return new String(buffer, from, to - from, StandardCharsets.UTF_8);
+        }
+
+        StringBuilder value = new StringBuilder(to - from);
+        value.append(new String(buffer, from, escape - from, StandardCharsets.UTF_8));
+        int position = escape;
+        while (position < to) {
+            int plain = position;
+            while (plain < to && buffer[plain] != '\\') {
+                plain++;
+            }
+            value.append(new String(buffer, position, plain - position, StandardCharsets.UTF_8));
+            if (plain == to) {
+                break;
+            }
+            if (plain + 1 >= to) {
+                throw new JsonParseException("Invalid escape in a JSON string");
+            }
+            byte escaped = buffer[plain + 1];
+            position = plain + 2;
+            switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    value.append((char) escaped);
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > to) {
+                        throw new JsonParseException("Invalid escape in a JSON string");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(
+                                new String(buffer, position, 4, StandardCharsets.US_ASCII), 16));
+                    } catch (NumberFormatException e) {
+                        throw new JsonParseException("Invalid escape in a JSON string", e);
+                    }
+                    position += 4;
+                    break;
+                default:
+                    throw new JsonParseException("Invalid escape in a JSON string");
+            }
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,176 @@
+package cz.bankid.examples.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.nimbusds.oauth2.sdk.ParseException;
+import cz.bankid.examples.entities.entity.TrustFramework;
+import cz.bankid.examples.product.IProduct;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Product read on demand from the raw UserInfo or Profile API response
+ *
+ * Most request handlers read only a few claims, for example {@code sub}, {@code family_name} or the trust framework
+ * of the verified claims. Reading the whole product creates every address, id card and payment account even when
+ * they are never used. The lazy product keeps the response bytes, indexes the offsets of the claims in one scan and
+ * decodes a claim only when it is read. The full product can still be read from the same bytes with
+ * {@link #toProduct(Class)}.
+ *
+ * The lazy product is read-only, the setters of {@link IProduct} throw {@link UnsupportedOperationException}.
+ *
+ * The shared Gson instance ({@link BankIDJson}) writes the lazy product as the JSON object of the response without
+ * the null values, like the generated adapters write the products, so the consumers working with the JSON tree of
+ * a product (the change detection, the profile diff) see its claims and not the internal buffer. The binary
+ * snapshot ({@link cz.bankid.examples.codec.ProfileCodec}) needs the full product read by {@link #toProduct(Class)}.
+ */
+public class LazyProduct extends LazyObject implements IProduct {
+
+    private final int start;
+    private final int end;
+
+    private LazyProduct(byte[] buffer, int start, int end) throws ParseException {
+        super(buffer, start, end);
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Indexes the response body
+     *
+     * @param json UTF-8 response body, it is not copied
+     * @throws ParseException when the body is not a JSON object
+     */
+    public static LazyProduct parse(byte[] json) throws ParseException {
+        return parse(json, 0, json.length);
+    }
+
+    /**
+     * Indexes the response body in a part of the array
+     */
+    public static LazyProduct parse(byte[] json, int offset, int length) throws ParseException {
+        if (json == null) {
+            throw new ParseException("Missing JSON data");
+        }
+        return new LazyProduct(json, offset, offset + length);
+    }
+
+    @Override
+    public String getSub() {
+        return getString("sub");
+    }
+
+    @Override
+    public String getTxn() {
+        return getString("txn");
+    }
+
+    @Override
+    public long getUpdated_at() {
+        return getLong("updated_at", 0);
+    }
+
+    public String getGiven_name() {
+        return getString("given_name");
+    }
+
+    public String getFamily_name() {
+        return getString("family_name");
+    }
+
+    public String getBirthdate() {
+        return getString("birthdate");
+    }
+
+    public String getEmail() {
+        return getString("email");
+    }
+
+    public boolean isPep() {
+        return getBoolean("pep");
+    }
+
+    /**
+     * The verified claims, null when the response has none
+     */
+    public LazyObject getVerified_claims() {
+        return getObject("verified_claims");
+    }
+
+    /**
+     * Trust framework of the verified claims ({@code verified_claims.verification.trust_framework}), null when the
+     * claims are not verified
+     */
+    public TrustFramework getTrust_framework() {
+        LazyObject verifiedClaims = getVerified_claims();
+        LazyObject verification = verifiedClaims == null ? null : verifiedClaims.getObject("verification");
+        return verification == null ? null : EntityAdapters.TRUST_FRAMEWORK.constant(verification.getString("trust_framework"));
+    }
+
+    /**
+     * Reads the whole product from the response bytes
+     *
+     * @param product class of the product
+     */
+    public <T extends IProduct> T toProduct(Class<T> product) throws ParseException {
+        return BankIDJson.parse(new ByteArrayInputStream(buffer, start, end - start), product);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void setSub(String sub) {
+        throw new UnsupportedOperationException("The lazy product is read-only");
+    }
+
+    @Override
+    public void setTxn(String txn) {
+        throw new UnsupportedOperationException("The lazy product is read-only");
+    }
+
+    @Override
+    public void setUpdated_at(long updated_at) {
+        throw new UnsupportedOperationException("The lazy product is read-only");
+    }
+
+    /**
+     * Writes the lazy product as its JSON object and reads it back from one
+     */
+    static final class Adapter extends TypeAdapter<LazyProduct> {
+
+        // Writes the parsed tree with the settings of the target writer, the null members are left out
+        private static final Gson PLAIN = new Gson();
+
+        @Override
+        public void write(JsonWriter out, LazyProduct value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            PLAIN.toJson(JsonParser.parseString(value.toString()), out);
+        }
+
+        @Override
+        public LazyProduct read(JsonReader in) throws IOException {
+            JsonElement json = JsonParser.parseReader(in);
+            if (json.isJsonNull()) {
+                return null;
+            }
+            try {
+                return parse(json.toString().getBytes(StandardCharsets.UTF_8));
+            } catch (ParseException e) {
+                throw new JsonParseException(e.getMessage(), e);
+            }
+        }
+    }
+}
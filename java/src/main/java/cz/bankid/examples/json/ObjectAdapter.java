@@ -0,0 +1,57 @@
+package cz.bankid.examples.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Base of the generated adapters of the BankID classes
+ *
+ * The object is created with its no-arg constructor and filled through the setters, one property at a time as the
+ * reader goes. Unknown properties are skipped.
+ */
+abstract class ObjectAdapter<T> extends TypeAdapter<T> {
+
+    abstract T create();
+
+    /**
+     * Reads the value of the property into the target
+     *
+     * @return false when the property is not known, the value is not consumed then
+     */
+    abstract boolean readProperty(JsonReader in, String name, T target) throws IOException;
+
+    abstract void writeProperties(JsonWriter out, T value) throws IOException;
+
+    @Override
+    public T read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        T target = create();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (!readProperty(in, name, target)) {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return target;
+    }
+
+    @Override
+    public void write(JsonWriter out, T value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeProperties(out, value);
+        out.endObject();
+    }
+}
@@ -0,0 +1,163 @@
+package cz.bankid.examples.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import cz.bankid.examples.entities.IdentifyAMLVerifiedClaims;
+import cz.bankid.examples.entities.IdentifyPlusVerifiedClaims;
+import cz.bankid.examples.entities.IdentifyVerifiedClaims;
+import cz.bankid.examples.product.Connect;
+import cz.bankid.examples.product.Identify;
+import cz.bankid.examples.product.IdentifyAML;
+import cz.bankid.examples.product.IdentifyPlus;
+
+import java.io.IOException;
+
+/**
+ * Generated adapters of the BankID products in {@code cz.bankid.examples.product}
+ */
+final class ProductAdapters {
+
+    static final ConnectAdapter CONNECT = new ConnectAdapter();
+    static final IdentifyAdapter IDENTIFY = new IdentifyAdapter();
+    static final IdentifyPlusAdapter IDENTIFY_PLUS = new IdentifyPlusAdapter();
+    static final IdentifyAMLAdapter IDENTIFY_AML = new IdentifyAMLAdapter();
+
+    private ProductAdapters() {
+    }
+
+    static final class ConnectAdapter extends ObjectAdapter<Connect> {
+
+        @Override
+        Connect create() {
+            return new Connect();
+        }
+
+        @Override
+        boolean readProperty(JsonReader in, String name, Connect target) throws IOException {
+            switch (name) {
+                case "sub":
+                    target.setSub(JsonValues.nextString(in));
+                    return true;
+                case "txn":
+                    target.setTxn(JsonValues.nextString(in));
+                    return true;
+                case "verified_claims":
+                    target.setVerified_claims(ClaimsAdapters.CONNECT_VERIFIED_CLAIMS.read(in));
+                    return true;
+                default:
+                    return ClaimsAdapters.readConnectClaims(in, name, target);
+            }
+        }
+
+        @Override
+        void writeProperties(JsonWriter out, Connect value) throws IOException {
+            out.name("sub").value(value.getSub());
+            out.name("txn").value(value.getTxn());
+            out.name("verified_claims");
+            ClaimsAdapters.CONNECT_VERIFIED_CLAIMS.write(out, value.getVerified_claims());
+            ClaimsAdapters.writeConnectClaims(out, value);
+        }
+    }
+
+    static final class IdentifyAdapter extends ObjectAdapter<Identify> {
+
+        @Override
+        Identify create() {
+            return new Identify();
+        }
+
+        @Override
+        boolean readProperty(JsonReader in, String name, Identify target) throws IOException {
+            switch (name) {
+                case "sub":
+                    target.setSub(JsonValues.nextString(in));
+                    return true;
+                case "txn":
+                    target.setTxn(JsonValues.nextString(in));
+                    return true;
+                case "verified_claims":
+                    target.setVerified_claims(ClaimsAdapters.IDENTIFY_VERIFIED_CLAIMS.read(in));
+                    return true;
+                default:
+                    return ClaimsAdapters.readIdentifyClaims(in, name, target);
+            }
+        }
+
+        @Override
+        void writeProperties(JsonWriter out, Identify value) throws IOException {
+            out.name("sub").value(value.getSub());
+            out.name("txn").value(value.getTxn());
+            out.name("verified_claims");
+            ClaimsAdapters.IDENTIFY_VERIFIED_CLAIMS.write(out, (IdentifyVerifiedClaims) value.getVerified_claims());
+            ClaimsAdapters.writeIdentifyClaims(out, value);
+        }
+    }
+
+    static final class IdentifyPlusAdapter extends ObjectAdapter<IdentifyPlus> {
+
+        @Override
+        IdentifyPlus create() {
+            return new IdentifyPlus();
+        }
+
+        @Override
+        boolean readProperty(JsonReader in, String name, IdentifyPlus target) throws IOException {
+            switch (name) {
+                case "sub":
+                    target.setSub(JsonValues.nextString(in));
+                    return true;
+                case "txn":
+                    target.setTxn(JsonValues.nextString(in));
+                    return true;
+                case "verified_claims":
+                    target.setVerified_claims(ClaimsAdapters.IDENTIFY_PLUS_VERIFIED_CLAIMS.read(in));
+                    return true;
+                default:
+                    return ClaimsAdapters.readIdentifyPlusClaims(in, name, target);
+            }
+        }
+
+        @Override
+        void writeProperties(JsonWriter out, IdentifyPlus value) throws IOException {
+            out.name("sub").value(value.getSub());
+            out.name("txn").value(value.getTxn());
+            out.name("verified_claims");
+            ClaimsAdapters.IDENTIFY_PLUS_VERIFIED_CLAIMS.write(out, (IdentifyPlusVerifiedClaims) value.getVerified_claims());
+            ClaimsAdapters.writeIdentifyPlusClaims(out, value);
+        }
+    }
+
+    static final class IdentifyAMLAdapter extends ObjectAdapter<IdentifyAML> {
+
+        @Override
+        IdentifyAML create() {
+            return new IdentifyAML();
+        }
+
+        @Override
+        boolean readProperty(JsonReader in, String name, IdentifyAML target) throws IOException {
+            switch (name) {
+                case "sub":
+                    target.setSub(JsonValues.nextString(in));
+                    return true;
+                case "txn":
+                    target.setTxn(JsonValues.nextString(in));
+                    return true;
+                case "verified_claims":
+                    target.setVerified_claims(ClaimsAdapters.IDENTIFY_AML_VERIFIED_CLAIMS.read(in));
+                    return true;
+                default:
+                    return ClaimsAdapters.readIdentifyPlusClaims(in, name, target);
+            }
+        }
+
+        @Override
+        void writeProperties(JsonWriter out, IdentifyAML value) throws IOException {
+            out.name("sub").value(value.getSub());
+            out.name("txn").value(value.getTxn());
+            out.name("verified_claims");
+            ClaimsAdapters.IDENTIFY_AML_VERIFIED_CLAIMS.write(out, (IdentifyAMLVerifiedClaims) value.getVerified_claims());
+            ClaimsAdapters.writeIdentifyPlusClaims(out, value);
+        }
+    }
+}
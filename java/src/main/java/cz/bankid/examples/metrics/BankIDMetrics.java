@@ -0,0 +1,44 @@
+package cz.bankid.examples.metrics;
+
+/**
+ * Receiver of the timing and the outcome of every BankID call
+ *
+ * The calls are reported by {@link cz.bankid.examples.transport.MeteredTransport}, which the BankID clients put in
+ * front of their transport. The built-in {@link MetricsRegistry} keeps the latency histograms and the counters in
+ * memory, an adapter to a monitoring library (Micrometer, Prometheus, OpenTelemetry) implements this interface.
+ * The methods are called on the threads completing the calls and must not block.
+ */
+public interface BankIDMetrics {
+
+    /**
+     * The call was sent
+     */
+    default void callStarted(Endpoint endpoint) {
+    }
+
+    /**
+     * BankID responded, also with an error status
+     *
+     * @param durationNanos time from sending the request to the response
+     * @param statusCode HTTP status of the response
+     */
+    default void callCompleted(Endpoint endpoint, long durationNanos, int statusCode) {
+    }
+
+    /**
+     * The call failed without a response, for example on a timeout or a refused connection
+     *
+     * @param durationNanos time from sending the request to the failure
+     * @param error the failure, {@link java.io.IOException} in most cases
+     */
+    default void callFailed(Endpoint endpoint, long durationNanos, Throwable error) {
+    }
+
+    /**
+     * Metrics ignoring all calls
+     */
+    static BankIDMetrics none() {
+        return new BankIDMetrics() {
+        };
+    }
+}
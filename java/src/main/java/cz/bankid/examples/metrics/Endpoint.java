@@ -0,0 +1,13 @@
+package cz.bankid.examples.metrics;
+
+/**
+ * BankID endpoints called by the examples
+ */
+public enum Endpoint {
+
+    DISCOVERY,
+    JWKS,
+    TOKEN,
+    USERINFO,
+    PROFILE
+}
@@ -0,0 +1,102 @@
+package cz.bankid.examples.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of the call durations in nanoseconds
+ *
+ * The buckets are laid out like in HdrHistogram: every power of two is split into 16 linear buckets, so a recorded
+ * value is kept with a relative error below 1/16 (6 %) over the whole range of {@code long}. Recording is one atomic
+ * increment without allocation. The percentiles are computed from the buckets when read, concurrent recording may
+ * shift them by the values recorded meanwhile.
+ */
+public class LatencyHistogram {
+
+    // Linear buckets in every power of two
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Values up to 2 * SUB_BUCKETS have a bucket each, then SUB_BUCKETS buckets for every higher power of two
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records the duration, negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(index(value));
+
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Number of the recorded values
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * The largest recorded value
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * The value below which the given percentage of the recorded values lies, 0 when nothing was recorded
+     *
+     * @param percentile 0 to 100, for example 99 for p99
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                // The highest value of the bucket, but never more than was recorded
+                return Math.min(highestValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int index(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long highestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        // For the last bucket the shift overflows to Long.MIN_VALUE, one less is Long.MAX_VALUE
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
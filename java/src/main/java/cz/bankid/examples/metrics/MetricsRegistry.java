@@ -0,0 +1,116 @@
+package cz.bankid.examples.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory metrics of the BankID calls
+ *
+ * Every endpoint has a latency histogram, the counts of the response statuses and of the failures by the exception
+ * class, and the number of the calls in flight. All of them are updated without locks, so the registry can be shared
+ * by all clients. The BankID clients created without explicit metrics report to {@link #global()}.
+ *
+ * <pre>
+ * long p99 = MetricsRegistry.global().get(Endpoint.PROFILE).getLatency().getValueAtPercentile(99);
+ * </pre>
+ */
+public class MetricsRegistry implements BankIDMetrics {
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final Map<Endpoint, EndpointMetrics> endpoints = new EnumMap<>(Endpoint.class);
+
+    public MetricsRegistry() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            endpoints.put(endpoint, new EndpointMetrics());
+        }
+    }
+
+    /**
+     * Registry used by the BankID clients by default
+     */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Metrics of the endpoint
+     */
+    public EndpointMetrics get(Endpoint endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    @Override
+    public void callStarted(Endpoint endpoint) {
+        get(endpoint).inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void callCompleted(Endpoint endpoint, long durationNanos, int statusCode) {
+        EndpointMetrics metrics = get(endpoint);
+        metrics.inFlight.decrementAndGet();
+        metrics.latency.record(durationNanos);
+        metrics.statuses.computeIfAbsent(statusCode, status -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void callFailed(Endpoint endpoint, long durationNanos, Throwable error) {
+        EndpointMetrics metrics = get(endpoint);
+        metrics.inFlight.decrementAndGet();
+        metrics.latency.record(durationNanos);
+        metrics.errors.computeIfAbsent(error.getClass().getName(), name -> new LongAdder()).increment();
+    }
+
+    /**
+     * Metrics of one endpoint
+     */
+    public static final class EndpointMetrics {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong inFlight = new AtomicLong();
+        private final ConcurrentHashMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        EndpointMetrics() {
+        }
+
+        /**
+         * Durations of the completed and the failed calls in nanoseconds
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * Number of the calls waiting for BankID
+         */
+        public long getInFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * Number of the responses by the HTTP status
+         */
+        public Map<Integer, Long> getStatusCounts() {
+            return counts(statuses);
+        }
+
+        /**
+         * Number of the calls failed without a response by the exception class
+         */
+        public Map<String, Long> getErrorCounts() {
+            return counts(errors);
+        }
+
+        private static <K> Map<K, Long> counts(Map<K, LongAdder> counters) {
+            Map<K, Long> counts = new TreeMap<>();
+            counters.forEach((key, counter) -> counts.put(key, counter.sum()));
+            return Collections.unmodifiableMap(counts);
+        }
+    }
+}
@@ -12,4 +12,7 @@ public interface IProduct {
       void setTxn(String txn);
       String getTxn();
 
+      void setUpdated_at(long updated_at);
+      long getUpdated_at();
+
 }
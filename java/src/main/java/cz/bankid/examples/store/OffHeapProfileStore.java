@@ -0,0 +1,389 @@
+package cz.bankid.examples.store;
+
+import com.nimbusds.oauth2.sdk.ParseException;
+import cz.bankid.examples.codec.ProfileCodec;
+import cz.bankid.examples.product.IProduct;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Store of the session profiles outside of the Java heap
+ *
+ * A parsed product per active session makes the old generation grow with the number of sessions. The store keeps
+ * the profiles as binary snapshots ({@link ProfileCodec}) in direct buffers keyed by {@code sub}, only a small entry
+ * per profile stays on the heap. A profile is decoded into a new product every time it is read.
+ *
+ * The memory is allocated in pages of {@value #PAGE_SIZE} bytes up to the configured capacity. Every page is cut to
+ * chunks of one size class (256 bytes to 16 kB), a snapshot takes the smallest chunk it fits in. When a size class
+ * has no free chunk and no page is left, the least recently used profile of that class is evicted. A size class
+ * without any profile takes over the page of another class with the fewest profiles, they are all evicted. The pages
+ * are never released, the footprint of the store is its capacity at most.
+ */
+public class OffHeapProfileStore {
+
+    static final int PAGE_SIZE = 1024 * 1024;
+
+    static final int MIN_CHUNK_SIZE = 256;
+    static final int MAX_CHUNK_SIZE = 16 * 1024;
+
+    private final SizeClass[] classes;
+    private final ByteBuffer[] pages;
+    private final SizeClass[] pageClasses;
+    private final int[] pageUsedChunks;
+    private int allocatedPages;
+
+    private final HashMap<String, Entry> entries = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long evictions;
+
+    /**
+     * @param capacityBytes maximum size of the stored snapshots, rounded up to whole pages
+     */
+    public OffHeapProfileStore(long capacityBytes) {
+        long pageCount = (capacityBytes + PAGE_SIZE - 1) / PAGE_SIZE;
+        if (pageCount < 1 || pageCount > Integer.MAX_VALUE / (PAGE_SIZE / MIN_CHUNK_SIZE)) {
+            throw new IllegalArgumentException("Unsupported capacity " + capacityBytes);
+        }
+        pages = new ByteBuffer[(int) pageCount];
+        pageClasses = new SizeClass[pages.length];
+        pageUsedChunks = new int[pages.length];
+
+        int count = Integer.numberOfTrailingZeros(MAX_CHUNK_SIZE) - Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE) + 1;
+        classes = new SizeClass[count];
+        for (int i = 0; i < count; i++) {
+            classes[i] = new SizeClass(MIN_CHUNK_SIZE << i);
+        }
+    }
+
+    /**
+     * Stores the profile under its sub, replaces the previous profile of the user
+     *
+     * @return false when the profile has no sub or its snapshot is larger than the largest chunk, the previous
+     *         profile of the user is kept then
+     */
+    public boolean put(IProduct product) {
+        String sub = product.getSub();
+        if (sub == null) {
+            return false;
+        }
+        byte[] snapshot = ProfileCodec.encode(product);
+        SizeClass sizeClass = sizeClass(snapshot.length);
+        if (sizeClass == null) {
+            return false;
+        }
+
+        lock.lock();
+        try {
+            Entry previous = entries.get(sub);
+            int chunk;
+            if (previous != null && previous.sizeClass == sizeClass) {
+                // Overwritten in place
+                entries.remove(sub);
+                previous.sizeClass.unlink(previous);
+                chunk = previous.chunk;
+            } else {
+                // Allocated first, the previous profile is kept when there is no room
+                chunk = allocate(sizeClass);
+                if (chunk < 0) {
+                    return false;
+                }
+                // The previous profile may have been evicted by the allocation
+                if (previous != null && entries.remove(sub, previous)) {
+                    release(previous);
+                }
+            }
+            Entry entry = new Entry(sub, sizeClass, chunk, snapshot.length);
+            write(entry, snapshot);
+            entries.put(sub, entry);
+            sizeClass.append(entry);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the profile of the user, null when it is not stored
+     *
+     * @param sub the user
+     * @param product class of the stored product
+     * @throws ParseException when the stored profile is another product
+     */
+    public <T extends IProduct> T get(String sub, Class<T> product) throws ParseException {
+        byte[] snapshot;
+        lock.lock();
+        try {
+            Entry entry = entries.get(sub);
+            if (entry == null) {
+                return null;
+            }
+            entry.sizeClass.touch(entry);
+            snapshot = read(entry);
+        } finally {
+            lock.unlock();
+        }
+        // Decoded outside of the lock
+        return ProfileCodec.decode(snapshot, product);
+    }
+
+    /**
+     * Removes the profile of the user, for example on logout
+     */
+    public void remove(String sub) {
+        lock.lock();
+        try {
+            Entry entry = entries.remove(sub);
+            if (entry != null) {
+                release(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of the stored profiles
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of the profiles evicted to make room for new ones
+     */
+    public long getEvictionCount() {
+        lock.lock();
+        try {
+            return evictions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Bytes of the allocated pages
+     */
+    public long getAllocatedBytes() {
+        lock.lock();
+        try {
+            return (long) allocatedPages * PAGE_SIZE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The smallest size class the snapshot fits in, null when it is too large
+     */
+    private SizeClass sizeClass(int length) {
+        for (SizeClass sizeClass : classes) {
+            if (length <= sizeClass.chunkSize) {
+                return sizeClass;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A free chunk of the size class, -1 when there is none and no page can be taken over
+     */
+    private int allocate(SizeClass sizeClass) {
+        if (sizeClass.freeCount == 0 && allocatedPages < pages.length) {
+            // A new page for this size class
+            int page = allocatedPages++;
+            pages[page] = ByteBuffer.allocateDirect(PAGE_SIZE);
+            assign(page, sizeClass);
+        }
+        if (sizeClass.freeCount == 0) {
+            Entry eldest = sizeClass.head;
+            if (eldest != null) {
+                // The least recently used profile of this size class makes room
+                entries.remove(eldest.sub);
+                release(eldest);
+                evictions++;
+            } else {
+                // The size class has no page, it takes over one of another class
+                int page = reclaimablePage(sizeClass);
+                if (page < 0) {
+                    return -1;
+                }
+                reclaim(page);
+                assign(page, sizeClass);
+            }
+        }
+        int chunk = sizeClass.freeChunks[--sizeClass.freeCount];
+        pageUsedChunks[page(sizeClass, chunk)]++;
+        return chunk;
+    }
+
+    private void release(Entry entry) {
+        entry.sizeClass.unlink(entry);
+        entry.sizeClass.free(entry.chunk);
+        pageUsedChunks[page(entry.sizeClass, entry.chunk)]--;
+    }
+
+    /**
+     * Cuts the page to free chunks of the size class
+     */
+    private void assign(int page, SizeClass sizeClass) {
+        pageClasses[page] = sizeClass;
+        pageUsedChunks[page] = 0;
+        int chunksPerPage = PAGE_SIZE / sizeClass.chunkSize;
+        for (int i = chunksPerPage - 1; i >= 0; i--) {
+            sizeClass.free(page * chunksPerPage + i);
+        }
+    }
+
+    /**
+     * The page of another size class with the fewest profiles, -1 when there is none
+     */
+    private int reclaimablePage(SizeClass sizeClass) {
+        int found = -1;
+        for (int page = 0; page < allocatedPages; page++) {
+            if (pageClasses[page] != sizeClass && (found < 0 || pageUsedChunks[page] < pageUsedChunks[found])) {
+                found = page;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Evicts the profiles of the page and drops its chunks from the free chunks of its size class
+     */
+    private void reclaim(int page) {
+        SizeClass owner = pageClasses[page];
+        Entry entry = owner.head;
+        while (entry != null) {
+            Entry next = entry.next;
+            if (page(owner, entry.chunk) == page) {
+                entries.remove(entry.sub);
+                release(entry);
+                evictions++;
+            }
+            entry = next;
+        }
+        int kept = 0;
+        for (int i = 0; i < owner.freeCount; i++) {
+            int chunk = owner.freeChunks[i];
+            if (page(owner, chunk) != page) {
+                owner.freeChunks[kept++] = chunk;
+            }
+        }
+        owner.freeCount = kept;
+    }
+
+    private void write(Entry entry, byte[] snapshot) {
+        ByteBuffer page = page(entry);
+        page.position(offset(entry));
+        page.put(snapshot);
+    }
+
+    private byte[] read(Entry entry) {
+        byte[] snapshot = new byte[entry.length];
+        ByteBuffer page = page(entry);
+        page.position(offset(entry));
+        page.get(snapshot);
+        return snapshot;
+    }
+
+    private ByteBuffer page(Entry entry) {
+        return pages[page(entry.sizeClass, entry.chunk)];
+    }
+
+    private static int page(SizeClass sizeClass, int chunk) {
+        return chunk / (PAGE_SIZE / sizeClass.chunkSize);
+    }
+
+    private static int offset(Entry entry) {
+        int chunkSize = entry.sizeClass.chunkSize;
+        return entry.chunk % (PAGE_SIZE / chunkSize) * chunkSize;
+    }
+
+    /**
+     * Chunks of one size, the free ones and the used ones in the order of use
+     */
+    private static final class SizeClass {
+
+        final int chunkSize;
+
+        int[] freeChunks = new int[64];
+        int freeCount;
+
+        // Least recently used first
+        Entry head;
+        Entry tail;
+
+        SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        void free(int chunk) {
+            if (freeCount == freeChunks.length) {
+                freeChunks = Arrays.copyOf(freeChunks, freeCount * 2);
+            }
+            freeChunks[freeCount++] = chunk;
+        }
+
+        void append(Entry entry) {
+            entry.prev = tail;
+            entry.next = null;
+            if (tail == null) {
+                head = entry;
+            } else {
+                tail.next = entry;
+            }
+            tail = entry;
+        }
+
+        void unlink(Entry entry) {
+            if (entry.prev == null) {
+                head = entry.next;
+            } else {
+                entry.prev.next = entry.next;
+            }
+            if (entry.next == null) {
+                tail = entry.prev;
+            } else {
+                entry.next.prev = entry.prev;
+            }
+            entry.prev = null;
+            entry.next = null;
+        }
+
+        void touch(Entry entry) {
+            if (tail != entry) {
+                unlink(entry);
+                append(entry);
+            }
+        }
+    }
+
+    /**
+     * The on-heap part of a stored profile
+     */
+    private static final class Entry {
+
+        final String sub;
+        final SizeClass sizeClass;
+        final int chunk;
+        final int length;
+
+        Entry prev;
+        Entry next;
+
+        Entry(String sub, SizeClass sizeClass, int chunk, int length) {
+            this.sub = sub;
+            this.sizeClass = sizeClass;
+            this.chunk = chunk;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package cz.bankid.examples.transport;
+
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Transport used for all calls of BankID endpoints (discovery, jwks, token, userinfo and profile)
+ *
+ * The requests are built by the Nimbus SDK as usual ({@code request.toHTTPRequest()}), only sending them is delegated
+ * to the transport. The default {@link HttpClientTransport} keeps the connections open and shares them between the
+ * calls. {@code HTTPRequest::send} can be used as a transport as well, it opens a new connection for each call.
+ */
+@FunctionalInterface
+public interface BankIDTransport {
+
+    /**
+     * Sends the request and returns the response, error statuses are returned as a response as well
+     */
+    HTTPResponse send(HTTPRequest request) throws IOException;
+
+    /**
+     * Sends the request without blocking the calling thread
+     *
+     * By default the blocking {@link #send(HTTPRequest)} runs on the given executor, transports with non-blocking I/O
+     * use the executor only to complete the returned future.
+     */
+    default CompletableFuture<HTTPResponse> sendAsync(HTTPRequest request, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return send(request);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+}
@@ -0,0 +1,109 @@
+package cz.bankid.examples.transport;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker of one endpoint
+ *
+ * After {@code failureThreshold} failed calls in a row the circuit opens and the calls are refused without reaching
+ * BankID, so the threads of a degraded endpoint do not pile up. When the open time passes, one probe call is let
+ * through (half-open), its success closes the circuit and its failure opens it again. A closed circuit is checked
+ * with a single volatile read.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoTime;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile State state = State.CLOSED;
+
+    // Failed calls in a row, changed under the lock
+    private volatile int failures;
+    private long openedAt;
+    private boolean probing;
+
+    /**
+     * @param failureThreshold failed calls in a row opening the circuit
+     * @param openNanos how long the open circuit refuses the calls before the probe
+     */
+    public CircuitBreaker(int failureThreshold, long openNanos) {
+        this(failureThreshold, openNanos, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, long openNanos, LongSupplier nanoTime) {
+        if (failureThreshold < 1 || openNanos <= 0) {
+            throw new IllegalArgumentException("The threshold and the open time must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Whether the call may be sent, false while the circuit is open
+     */
+    public boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        lock.lock();
+        try {
+            if (state == State.OPEN && nanoTime.getAsLong() - openedAt >= openNanos) {
+                state = State.HALF_OPEN;
+                probing = false;
+            }
+            if (state == State.HALF_OPEN && !probing) {
+                probing = true;
+                return true;
+            }
+            return state == State.CLOSED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The call succeeded, closes the circuit
+     */
+    public void onSuccess() {
+        if (state == State.CLOSED && failures == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            failures = 0;
+            state = State.CLOSED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The call failed, opens the circuit after too many failures in a row or after a failed probe
+     */
+    public void onFailure() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN || (state == State.CLOSED && ++failures >= failureThreshold)) {
+                state = State.OPEN;
+                openedAt = nanoTime.getAsLong();
+                failures = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,15 @@
+package cz.bankid.examples.transport;
+
+import java.io.IOException;
+
+/**
+ * The call was refused without reaching BankID, the circuit of the endpoint is open
+ */
+public class CircuitOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
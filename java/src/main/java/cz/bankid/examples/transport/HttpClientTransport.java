@@ -0,0 +1,145 @@
+package cz.bankid.examples.transport;
+
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Pooled transport built on {@link HttpClient}
+ *
+ * One client keeps the TLS connections to BankID open (keep-alive) and reuses them for subsequent calls, over
+ * HTTP/2 the calls are multiplexed over a single connection. This saves the TCP and TLS handshake that
+ * {@code HTTPRequest.send()} makes for every call. The instance is thread-safe and should be shared, see
+ * {@link #shared()}.
+ */
+public class HttpClientTransport implements BankIDTransport {
+
+    // Default timeouts
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    public static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(10);
+
+    // Headers managed by HttpClient itself
+    private static final Set<String> RESTRICTED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        RESTRICTED_HEADERS.addAll(List.of("connection", "content-length", "expect", "host", "upgrade"));
+    }
+
+    private static final HttpClientTransport SHARED = new HttpClientTransport(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+
+    private final HttpClient client;
+    private final Duration readTimeout;
+
+    public HttpClientTransport(Duration connectTimeout, Duration readTimeout) {
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build(), readTimeout);
+    }
+
+    public HttpClientTransport(HttpClient client, Duration readTimeout) {
+        this.client = client;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Transport shared by all examples, with the default timeouts
+     */
+    public static HttpClientTransport shared() {
+        return SHARED;
+    }
+
+    @Override
+    public HTTPResponse send(HTTPRequest request) throws IOException {
+        try {
+            return toHTTPResponse(client.send(toHttpRequest(request), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while calling " + request.getURL());
+        }
+    }
+
+    @Override
+    public CompletableFuture<HTTPResponse> sendAsync(HTTPRequest request, Executor executor) {
+        HttpRequest httpRequest;
+        try {
+            httpRequest = toHttpRequest(request);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        // Non-blocking call, no thread waits for the response
+        return client.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenApplyAsync(HttpClientTransport::toHTTPResponse, executor);
+    }
+
+    HttpRequest toHttpRequest(HTTPRequest request) throws IOException {
+        HTTPRequest.Method method = request.getMethod();
+        String query = request.getQuery();
+
+        // The query goes to the URL for GET and DELETE, otherwise it is the (form) body
+        boolean queryInURL = method == HTTPRequest.Method.GET || method == HTTPRequest.Method.DELETE;
+        URI uri;
+        try {
+            String url = request.getURL().toString();
+            if (queryInURL && query != null && !query.isEmpty()) {
+                url += (url.contains("?") ? "&" : "?") + query;
+            }
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid request URL: " + e.getMessage(), e);
+        }
+
+        HttpRequest.BodyPublisher body = queryInURL || query == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(query, StandardCharsets.UTF_8);
+
+        int timeout = request.getReadTimeout();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .method(method.name(), body)
+                .timeout(timeout > 0 ? Duration.ofMillis(timeout) : readTimeout);
+
+        for (Map.Entry<String, List<String>> header : request.getHeaderMap().entrySet()) {
+            if (RESTRICTED_HEADERS.contains(header.getKey())) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                builder.header(header.getKey(), value);
+            }
+        }
+        return builder.build();
+    }
+
+    static HTTPResponse toHTTPResponse(HttpResponse<String> response) {
+        HTTPResponse httpResponse = new HTTPResponse(response.statusCode());
+
+        HttpHeaders headers = response.headers();
+        for (Map.Entry<String, List<String>> header : headers.map().entrySet()) {
+            if (!header.getKey().startsWith(":")) {
+                httpResponse.setHeader(header.getKey(), header.getValue().toArray(new String[0]));
+            }
+        }
+
+        String content = response.body();
+        if (content != null && !content.isEmpty()) {
+            httpResponse.setContent(content);
+        }
+        return httpResponse;
+    }
+}
@@ -0,0 +1,98 @@
+package cz.bankid.examples.transport;
+
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import cz.bankid.examples.metrics.BankIDMetrics;
+import cz.bankid.examples.metrics.Endpoint;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transport reporting the duration and the outcome of every call of one BankID endpoint
+ *
+ * The duration is measured from sending the request to the response or the failure. An asynchronous call runs its
+ * tasks on the given executor (the blocking send of the default {@link BankIDTransport#sendAsync}, the conversion of
+ * the response of {@link HttpClientTransport}), the time these tasks wait in the queue of the executor is subtracted,
+ * so a saturated pool is not reported as the latency of BankID.
+ */
+public class MeteredTransport implements BankIDTransport {
+
+    private final BankIDTransport transport;
+    private final Endpoint endpoint;
+    private final BankIDMetrics metrics;
+
+    /**
+     * @param transport transport making the calls
+     * @param endpoint the endpoint called through this transport
+     * @param metrics receiver of the measurements
+     */
+    public MeteredTransport(BankIDTransport transport, Endpoint endpoint, BankIDMetrics metrics) {
+        this.transport = transport;
+        this.endpoint = endpoint;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public HTTPResponse send(HTTPRequest request) throws IOException {
+        metrics.callStarted(endpoint);
+        long start = System.nanoTime();
+        HTTPResponse response;
+        try {
+            response = transport.send(request);
+        } catch (IOException | RuntimeException e) {
+            metrics.callFailed(endpoint, System.nanoTime() - start, e);
+            throw e;
+        }
+        metrics.callCompleted(endpoint, System.nanoTime() - start, response.getStatusCode());
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<HTTPResponse> sendAsync(HTTPRequest request, Executor executor) {
+        metrics.callStarted(endpoint);
+        long start = System.nanoTime();
+        QueueTimingExecutor timing = new QueueTimingExecutor(executor);
+        CompletableFuture<HTTPResponse> response;
+        try {
+            response = transport.sendAsync(request, timing);
+        } catch (RuntimeException e) {
+            metrics.callFailed(endpoint, System.nanoTime() - start, e);
+            throw e;
+        }
+        return response.whenComplete((result, error) -> {
+            long duration = System.nanoTime() - start - timing.queued.get();
+            if (error == null) {
+                metrics.callCompleted(endpoint, duration, result.getStatusCode());
+            } else {
+                metrics.callFailed(endpoint, duration,
+                        error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+        });
+    }
+
+    /**
+     * Executor of one call summing the time its tasks waited in the queue
+     */
+    private static final class QueueTimingExecutor implements Executor {
+
+        final Executor executor;
+        final AtomicLong queued = new AtomicLong();
+
+        QueueTimingExecutor(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            long submitted = System.nanoTime();
+            executor.execute(() -> {
+                queued.addAndGet(System.nanoTime() - submitted);
+                task.run();
+            });
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package cz.bankid.examples.transport;
+
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport limiting the rate of the calls to every host
+ *
+ * Every host gets its own {@link RateLimiter}. A blocking call sleeps until its slot, an asynchronous call is
+ * delayed without occupying a thread. Intended for the batch jobs, so they stay within the rate agreed with BankID.
+ */
+public class RateLimitedTransport implements BankIDTransport {
+
+    private final BankIDTransport transport;
+    private final double requestsPerSecond;
+    private final int burst;
+
+    private final ConcurrentHashMap<String, RateLimiter> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * @param transport transport making the calls
+     * @param requestsPerSecond sustained rate of the calls to one host
+     * @param burst number of calls to one host allowed at once
+     */
+    public RateLimitedTransport(BankIDTransport transport, double requestsPerSecond, int burst) {
+        this.transport = transport;
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+    }
+
+    @Override
+    public HTTPResponse send(HTTPRequest request) throws IOException {
+        long wait = limiter(request).reserve();
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to call " + request.getURL());
+            }
+        }
+        return transport.send(request);
+    }
+
+    @Override
+    public CompletableFuture<HTTPResponse> sendAsync(HTTPRequest request, Executor executor) {
+        long wait = limiter(request).reserve();
+        if (wait == 0) {
+            return transport.sendAsync(request, executor);
+        }
+        Executor delayed = CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS, executor);
+        return CompletableFuture.runAsync(() -> { }, delayed)
+                .thenCompose(ignored -> transport.sendAsync(request, executor));
+    }
+
+    private RateLimiter limiter(HTTPRequest request) {
+        return hosts.computeIfAbsent(request.getURL().getHost(), host -> new RateLimiter(requestsPerSecond, burst));
+    }
+}
@@ -0,0 +1,56 @@
+package cz.bankid.examples.transport;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket rate limiter
+ *
+ * Allows {@code burst} calls at once and then the configured rate. A call reserves its slot and gets the time it
+ * has to wait for it, the limiter itself never blocks. The bucket is kept as the theoretical arrival time of the
+ * next call (GCRA), updated with compare-and-set.
+ */
+public class RateLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final LongSupplier nanoTime;
+
+    // Theoretical arrival time of the next call
+    private final AtomicLong next;
+
+    /**
+     * @param permitsPerSecond sustained rate of the calls
+     * @param burst number of calls allowed at once
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    RateLimiter(double permitsPerSecond, int burst, LongSupplier nanoTime) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("The rate and the burst must be positive");
+        }
+        this.intervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.burstNanos = (burst - 1) * intervalNanos;
+        this.nanoTime = nanoTime;
+        this.next = new AtomicLong(nanoTime.getAsLong());
+    }
+
+    /**
+     * Reserves the slot for one call
+     *
+     * @return nanoseconds the call has to wait for its slot, 0 when it can go now
+     */
+    public long reserve() {
+        long now = nanoTime.getAsLong();
+        while (true) {
+            long current = next.get();
+            long start = current - now > 0 ? current : now;
+            if (next.compareAndSet(current, start + intervalNanos)) {
+                long wait = start - burstNanos - now;
+                return wait > 0 ? wait : 0;
+            }
+        }
+    }
+}
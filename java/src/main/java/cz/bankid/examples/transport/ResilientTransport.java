@@ -0,0 +1,278 @@
+package cz.bankid.examples.transport;
+
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import cz.bankid.examples.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Transport keeping the tail latency of the UserInfo and Profile API calls low when BankID degrades
+ *
+ * Every endpoint (the URL without the query) has its own {@link CircuitBreaker}, an open circuit fails the call at
+ * once with {@link CircuitOpenException}. A failure is an exception or a 5xx or 429 response.
+ *
+ * The idempotent GET calls are also hedged and retried. When the response does not come within the
+ * {@code hedgePercentile} of the latencies of the endpoint, the same request is sent once more and the first
+ * response wins. A failed call is retried once. Both take a token of the shared {@link RetryBudget}, so under load
+ * the additional calls are limited to a fraction of the traffic. Hedging needs {@link #sendAsync}, the blocking
+ * {@link #send} only retries.
+ *
+ * The transport is opt-in, it is passed to {@link cz.bankid.examples.auth.BankIDProducts} instead of the plain one.
+ */
+public class ResilientTransport implements BankIDTransport {
+
+    // Latencies recorded before the percentile is used for the hedge delay
+    static final int MIN_SAMPLES = 20;
+
+    // The hedge delay is recomputed after this number of latencies
+    static final int DELAY_UPDATE_INTERVAL = 64;
+
+    private final BankIDTransport transport;
+    private final double hedgePercentile;
+    private final long minHedgeDelayNanos;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final RetryBudget budget;
+    private final LongSupplier nanoTime;
+
+    private final ConcurrentHashMap<String, EndpointState> endpoints = new ConcurrentHashMap<>();
+
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Hedges after p95 (at least 50 ms), opens the circuit after 5 failures for 10 s, allows 10 % additional calls
+     */
+    public ResilientTransport(BankIDTransport transport) {
+        this(transport, 95, Duration.ofMillis(50), 5, Duration.ofSeconds(10), new RetryBudget(0.1, 10));
+    }
+
+    /**
+     * @param transport transport making the calls
+     * @param hedgePercentile percentile of the latencies of the endpoint after which a call is hedged
+     * @param minHedgeDelay the shortest hedge delay, also used until enough latencies are recorded
+     * @param failureThreshold failed calls in a row opening the circuit of the endpoint
+     * @param openDuration how long the open circuit refuses the calls
+     * @param budget budget of the hedged and retried calls
+     */
+    public ResilientTransport(BankIDTransport transport, double hedgePercentile, Duration minHedgeDelay,
+                              int failureThreshold, Duration openDuration, RetryBudget budget) {
+        this(transport, hedgePercentile, minHedgeDelay, failureThreshold, openDuration, budget, System::nanoTime);
+    }
+
+    ResilientTransport(BankIDTransport transport, double hedgePercentile, Duration minHedgeDelay,
+                       int failureThreshold, Duration openDuration, RetryBudget budget, LongSupplier nanoTime) {
+        this.transport = transport;
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeDelayNanos = minHedgeDelay.toNanos();
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.budget = budget;
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public HTTPResponse send(HTTPRequest request) throws IOException {
+        EndpointState endpoint = acquire(request);
+        budget.onRequest();
+
+        boolean retry = request.getMethod() == HTTPRequest.Method.GET;
+        while (true) {
+            long start = nanoTime.getAsLong();
+            HTTPResponse response;
+            try {
+                response = transport.send(request);
+            } catch (IOException | RuntimeException e) {
+                endpoint.breaker.onFailure();
+                if (retry && retryAllowed(endpoint)) {
+                    retry = false;
+                    continue;
+                }
+                throw e;
+            }
+            if (!isFailure(response)) {
+                endpoint.succeeded(nanoTime.getAsLong() - start);
+                return response;
+            }
+            endpoint.breaker.onFailure();
+            if (retry && retryAllowed(endpoint)) {
+                retry = false;
+                continue;
+            }
+            return response;
+        }
+    }
+
+    @Override
+    public CompletableFuture<HTTPResponse> sendAsync(HTTPRequest request, Executor executor) {
+        EndpointState endpoint;
+        try {
+            endpoint = acquire(request);
+        } catch (CircuitOpenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        budget.onRequest();
+
+        Call call = new Call(request, executor, endpoint);
+        call.attempt(call.idempotent);
+        if (call.idempotent) {
+            Executor delayed = CompletableFuture.delayedExecutor(endpoint.hedgeDelay, TimeUnit.NANOSECONDS, executor);
+            delayed.execute(call::hedge);
+        }
+        return call.result;
+    }
+
+    /**
+     * Number of the hedged calls sent
+     */
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * Number of the retried calls
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * Number of the calls refused by an open circuit
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * State of the circuit of the endpoint, CLOSED when it was not called yet
+     *
+     * @param url endpoint URL without the query
+     */
+    public CircuitBreaker.State getCircuitState(String url) {
+        EndpointState endpoint = endpoints.get(url);
+        return endpoint == null ? CircuitBreaker.State.CLOSED : endpoint.breaker.getState();
+    }
+
+    private EndpointState acquire(HTTPRequest request) throws CircuitOpenException {
+        String url = request.getURL().toString();
+        int query = url.indexOf('?');
+        String key = query < 0 ? url : url.substring(0, query);
+
+        EndpointState endpoint = endpoints.computeIfAbsent(key, ignored -> new EndpointState());
+        if (!endpoint.breaker.tryAcquire()) {
+            rejected.increment();
+            throw new CircuitOpenException("The circuit of " + key + " is open");
+        }
+        return endpoint;
+    }
+
+    private boolean retryAllowed(EndpointState endpoint) {
+        if (endpoint.breaker.getState() != CircuitBreaker.State.CLOSED || !budget.tryWithdraw()) {
+            return false;
+        }
+        retries.increment();
+        return true;
+    }
+
+    private static boolean isFailure(HTTPResponse response) {
+        return response.getStatusCode() >= 500 || response.getStatusCode() == 429;
+    }
+
+    /**
+     * One call with its hedged and retried attempts, the first successful response completes it
+     */
+    private class Call {
+
+        final HTTPRequest request;
+        final Executor executor;
+        final EndpointState endpoint;
+        final boolean idempotent;
+
+        final CompletableFuture<HTTPResponse> result = new CompletableFuture<>();
+
+        // Attempts still running
+        final AtomicInteger running = new AtomicInteger();
+
+        Call(HTTPRequest request, Executor executor, EndpointState endpoint) {
+            this.request = request;
+            this.executor = executor;
+            this.endpoint = endpoint;
+            this.idempotent = request.getMethod() == HTTPRequest.Method.GET;
+        }
+
+        void hedge() {
+            if (!result.isDone() && endpoint.breaker.getState() == CircuitBreaker.State.CLOSED
+                    && budget.tryWithdraw()) {
+                hedges.increment();
+                attempt(false);
+            }
+        }
+
+        void attempt(boolean retry) {
+            running.incrementAndGet();
+            long start = nanoTime.getAsLong();
+            CompletableFuture<HTTPResponse> response;
+            try {
+                response = transport.sendAsync(request, executor);
+            } catch (RuntimeException e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            response.whenComplete((value, error) -> {
+                if (error == null && !isFailure(value)) {
+                    endpoint.succeeded(nanoTime.getAsLong() - start);
+                    result.complete(value);
+                    running.decrementAndGet();
+                    return;
+                }
+                endpoint.breaker.onFailure();
+                if (retry && !result.isDone() && retryAllowed(endpoint)) {
+                    attempt(false);
+                }
+                if (running.decrementAndGet() == 0) {
+                    // The last attempt failed, its outcome is the outcome of the call
+                    if (error != null) {
+                        result.completeExceptionally(
+                                error instanceof CompletionException && error.getCause() != null
+                                        ? error.getCause() : error);
+                    } else {
+                        result.complete(value);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Circuit and latencies of one endpoint
+     */
+    private class EndpointState {
+
+        final CircuitBreaker breaker = new CircuitBreaker(failureThreshold, openNanos, nanoTime);
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong samples = new AtomicLong();
+
+        volatile long hedgeDelay = minHedgeDelayNanos;
+
+        void succeeded(long durationNanos) {
+            breaker.onSuccess();
+            latency.record(durationNanos);
+            long count = samples.incrementAndGet();
+            if (count >= MIN_SAMPLES && (count == MIN_SAMPLES || count % DELAY_UPDATE_INTERVAL == 0)) {
+                // Reading the percentile walks the buckets, it is done only now and then
+                hedgeDelay = Math.max(minHedgeDelayNanos, latency.getValueAtPercentile(hedgePercentile));
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package cz.bankid.examples.transport;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limit of the additional calls (retries and hedged calls) relative to the traffic
+ *
+ * Every call deposits {@code ratio} of a token, every additional call takes one whole token. The additional calls
+ * are then at most the ratio of the calls, plus the initial balance of {@code maxRetries} tokens for the quiet
+ * periods. When BankID degrades, the retries stop when the budget is spent instead of multiplying the load.
+ */
+public class RetryBudget {
+
+    // Tokens are kept in thousandths
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    /**
+     * @param ratio additional calls allowed per call, for example 0.1 for 10 %
+     * @param maxRetries additional calls allowed at once, also the initial balance
+     */
+    public RetryBudget(double ratio, int maxRetries) {
+        if (ratio < 0 || maxRetries < 1) {
+            throw new IllegalArgumentException("Unsupported ratio or retries");
+        }
+        this.deposit = Math.round(ratio * TOKEN);
+        this.maxBalance = maxRetries * TOKEN;
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    /**
+     * Deposits the share of a call
+     */
+    public void onRequest() {
+        while (true) {
+            long current = balance.get();
+            if (current >= maxBalance || balance.compareAndSet(current, Math.min(maxBalance, current + deposit))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes a token for an additional call
+     *
+     * @return false when the budget is spent
+     */
+    public boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+}
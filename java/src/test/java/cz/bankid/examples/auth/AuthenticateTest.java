@@ -1,10 +1,11 @@
 package cz.bankid.examples.auth;
 
-import com.google.gson.Gson;
+import com.nimbusds.oauth2.sdk.ParseException;
 import cz.bankid.examples.entities.IdentifyAMLVerifiedClaims;
 import cz.bankid.examples.entities.IdentifyPlusVerifiedClaims;
 import cz.bankid.examples.entities.entity.MaritalStatus;
 import cz.bankid.examples.entities.entity.TrustFramework;
+import cz.bankid.examples.json.BankIDJson;
 import cz.bankid.examples.product.IdentifyAML;
 import cz.bankid.examples.product.Connect;
 import cz.bankid.examples.product.IdentifyPlus;
@@ -23,25 +24,22 @@ public class AuthenticateTest {
     private final String testProfile = getFileContent("profile.json");
 
     @Test
-    public void testGetConnect() {
-        Gson gson = new Gson();
-        Connect connect = gson.fromJson(testUserInfo, Connect.class);
+    public void testGetConnect() throws ParseException {
+        Connect connect = BankIDJson.parse(testUserInfo, Connect.class);
         assertEquals("Fantomas", connect.getNickname());
         assertEquals("Jan Novák", (connect.getVerified_claims()).getClaims().getName());
     }
 
     @Test
-    public void testKYCPlus() {
-        Gson gson = new Gson();
-        IdentifyPlus identifyPlus = gson.fromJson(testProfile, IdentifyPlus.class);
+    public void testKYCPlus() throws ParseException {
+        IdentifyPlus identifyPlus = BankIDJson.parse(testProfile, IdentifyPlus.class);
         assertEquals("CZ0708000000001019382023", identifyPlus.getPaymentAccounts().get(0));
         assertEquals(MaritalStatus.MARRIED, ((IdentifyPlusVerifiedClaims) identifyPlus.getVerified_claims()).getClaims().getMaritalstatus());
     }
 
     @Test
-    public void testAML() {
-        Gson gson = new Gson();
-        IdentifyAML identifyAml = gson.fromJson(testProfile, IdentifyAML.class);
+    public void testAML() throws ParseException {
+        IdentifyAML identifyAml = BankIDJson.parse(testProfile, IdentifyAML.class);
         assertEquals("CZ0708000000001019382023", identifyAml.getPaymentAccounts().get(0));
         assertEquals(MaritalStatus.MARRIED, ((IdentifyAMLVerifiedClaims) identifyAml.getVerified_claims()).getClaims().getMaritalstatus());
         assertEquals(TrustFramework.cz_aml, ((IdentifyAMLVerifiedClaims) identifyAml.getVerified_claims()).getVerification().getTrust_framework());
@@ -0,0 +1,187 @@
+package cz.bankid.examples.auth;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.nimbusds.oauth2.sdk.GeneralException;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import cz.bankid.examples.product.Connect;
+import cz.bankid.examples.product.IdentifyAML;
+import cz.bankid.examples.transport.BankIDTransport;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BankIDProductsTest {
+
+    private final BearerAccessToken token = new BearerAccessToken("valid-access-token");
+
+    private final BankIDTransport transport = request -> {
+        if (!"Bearer valid-access-token".equals(request.getAuthorization())) {
+            HTTPResponse unauthorized = new HTTPResponse(401);
+            unauthorized.setWWWAuthenticate("Bearer error=\"invalid_token\"");
+            return unauthorized;
+        }
+        String path = request.getURL().getPath();
+        return Fixtures.json(200, Fixtures.read(path.endsWith("/profile") ? "profile.json" : "userinfo.json"));
+    };
+
+    private final BankIDProducts products =
+            new BankIDProducts(Fixtures.discovery(Clock.systemUTC()), transport, Runnable::run);
+
+    @Test
+    public void testFetchProfile() {
+        IdentifyAML identifyAML = products.fetchProfile(token, IdentifyAML.class).join();
+        assertEquals("Novák", identifyAML.getFamily_name());
+        assertEquals("CZ0708000000001019382023", identifyAML.getPaymentAccounts().get(0));
+    }
+
+    @Test
+    public void testFetchConnectFromUserInfo() {
+        Connect connect = products.fetchProfile(token, Connect.class).join();
+        assertEquals("Fantomas", connect.getNickname());
+    }
+
+    @Test
+    public void testReadProduct() throws ParseException {
+        IdentifyAML identifyAML = BankIDProducts.readProduct(Fixtures.read("profile.json"), IdentifyAML.class);
+        assertEquals("Novák", identifyAML.getFamily_name());
+
+        try {
+            BankIDProducts.readProduct("{\"sub\": ", IdentifyAML.class);
+            fail();
+        } catch (ParseException e) {
+            // expected, truncated body
+        }
+    }
+
+    @Test
+    public void testConcurrentFetchShared() {
+        CompletableFuture<HTTPResponse> response = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+        BankIDTransport pending = new BankIDTransport() {
+            @Override
+            public HTTPResponse send(HTTPRequest request) {
+                return new HTTPResponse(503);
+            }
+
+            @Override
+            public CompletableFuture<HTTPResponse> sendAsync(HTTPRequest request, Executor executor) {
+                calls.incrementAndGet();
+                return response;
+            }
+        };
+        BankIDProducts products = new BankIDProducts(Fixtures.discovery(Clock.systemUTC()), pending, Runnable::run);
+
+        CompletableFuture<IdentifyAML> first = products.fetchProfile(token, IdentifyAML.class);
+        CompletableFuture<IdentifyAML> second = products.fetchProfile(token, IdentifyAML.class);
+        products.fetchProfile(new BearerAccessToken("other-access-token"), IdentifyAML.class);
+        assertEquals(2, calls.get());
+
+        response.complete(Fixtures.json(200, Fixtures.read("profile.json")));
+        assertEquals("Novák", first.join().getFamily_name());
+        assertEquals("Novák", second.join().getFamily_name());
+    }
+
+    @Test
+    public void testErrorResponse() {
+        try {
+            products.fetchProfile(new BearerAccessToken("expired"), IdentifyAML.class).join();
+            fail();
+        } catch (CompletionException e) {
+            Throwable cause = Futures.unwrap(e);
+            assertTrue(cause instanceof GeneralException);
+            assertEquals("invalid_token", ((GeneralException) cause).getErrorObject().getCode());
+        }
+    }
+
+    @Test
+    public void testErrorResponseWithoutErrorCode() {
+        BankIDProducts products = new BankIDProducts(Fixtures.discovery(Clock.systemUTC()),
+                request -> new HTTPResponse(503), Runnable::run);
+        try {
+            products.fetchProfile(token, IdentifyAML.class).join();
+            fail();
+        } catch (CompletionException e) {
+            Throwable cause = Futures.unwrap(e);
+            assertTrue(cause instanceof GeneralException);
+            assertEquals("Data request failed: HTTP 503", cause.getMessage());
+        }
+    }
+
+    @Test
+    public void testFetchProfileWithUserInfo() {
+        // Profile without the email claim
+        JsonObject profile = JsonParser.parseString(Fixtures.read("profile.json")).getAsJsonObject();
+        profile.remove("email");
+        BankIDTransport partialProfile = request -> request.getURL().getPath().endsWith("/profile")
+                ? Fixtures.json(200, profile.toString())
+                : transport.send(request);
+
+        BankIDProducts products = new BankIDProducts(Fixtures.discovery(Clock.systemUTC()), partialProfile, Runnable::run);
+        IdentifyAML identifyAML = products.fetchProfileWithUserInfo(token, IdentifyAML.class).join();
+
+        assertEquals("j.novak@email.com", identifyAML.getEmail());
+        assertEquals("+420123456789", identifyAML.getPhone_number());
+    }
+
+    @Test
+    public void testCachedProfileNotChangedByMerge() {
+        JsonObject profile = JsonParser.parseString(Fixtures.read("profile.json")).getAsJsonObject();
+        profile.remove("email");
+        BankIDTransport partialProfile = request -> request.getURL().getPath().endsWith("/profile")
+                ? Fixtures.json(200, profile.toString())
+                : transport.send(request);
+
+        ProfileCache cache = new ProfileCache(10, Duration.ofMinutes(5));
+        BankIDProducts products = new BankIDProducts(Fixtures.discovery(Clock.systemUTC()), partialProfile,
+                Runnable::run, cache);
+        IdentifyAML cached = products.fetchProfile(token, IdentifyAML.class).join();
+
+        IdentifyAML merged = products.fetchProfileWithUserInfo(token, IdentifyAML.class).join();
+        assertEquals("j.novak@email.com", merged.getEmail());
+        assertNotSame(cached, merged);
+        assertNull(cached.getEmail());
+        assertSame(cached, cache.get(token, IdentifyAML.class));
+    }
+
+    @Test
+    public void testFetchProfileWithUserInfoFailsFast() {
+        // The Profile API never answers, the UserInfo call fails
+        CompletableFuture<HTTPResponse> pendingProfile = new CompletableFuture<>();
+        BankIDTransport hangingProfile = new BankIDTransport() {
+            @Override
+            public HTTPResponse send(HTTPRequest request) {
+                return new HTTPResponse(503);
+            }
+
+            @Override
+            public CompletableFuture<HTTPResponse> sendAsync(HTTPRequest request, Executor executor) {
+                return request.getURL().getPath().endsWith("/profile")
+                        ? pendingProfile
+                        : CompletableFuture.completedFuture(send(request));
+            }
+        };
+
+        BankIDProducts products = new BankIDProducts(Fixtures.discovery(Clock.systemUTC()), hangingProfile, Runnable::run);
+        CompletableFuture<IdentifyAML> result = products.fetchProfileWithUserInfo(token, IdentifyAML.class);
+
+        assertTrue(result.isCompletedExceptionally());
+        assertFalse(pendingProfile.isDone());
+    }
+}
@@ -0,0 +1,44 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.jose.util.Base64URL;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchedRandomValuesTest {
+
+    @Test
+    public void testEncode() {
+        Random random = new Random(1);
+        char[] out = new char[64];
+        for (int length = 0; length <= 40; length++) {
+            byte[] bytes = new byte[length + 2];
+            random.nextBytes(bytes);
+
+            byte[] value = new byte[length];
+            System.arraycopy(bytes, 1, value, 0, length);
+            int written = BatchedRandomValues.encode(bytes, 1, length, out);
+            assertEquals(Base64URL.encode(value).toString(), new String(out, 0, written));
+        }
+    }
+
+    @Test
+    public void testValues() {
+        // A small batch is refilled several times
+        RandomValues random = new BatchedRandomValues(3, 64);
+        Set<String> values = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            String state = random.state().getValue();
+            assertEquals(43, state.length());
+            assertTrue(values.add(state));
+            assertTrue(values.add(random.nonce().getValue()));
+            assertTrue(values.add(random.codeVerifier().getValue()));
+        }
+        assertEquals(32, Base64URL.from(random.nextValue(RandomValues.BYTE_LENGTH)).decode().length);
+    }
+}
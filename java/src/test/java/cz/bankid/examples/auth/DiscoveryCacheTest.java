@@ -0,0 +1,91 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class DiscoveryCacheTest {
+
+    private final MutableClock clock = new MutableClock();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final List<Runnable> refreshTasks = new ArrayList<>();
+
+    @Test
+    public void testServedFromCache() throws Exception {
+        DiscoveryCache cache = new DiscoveryCache(issuer(), request -> response("max-age=600"), Runnable::run, clock);
+
+        OIDCProviderMetadata first = cache.get();
+        clock.advance(60_000);
+        OIDCProviderMetadata second = cache.get();
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(URI.create("https://oidc.sandbox.bankid.cz/token"), second.getTokenEndpointURI());
+        assertEquals(URI.create("https://oidc.sandbox.bankid.cz/profile"), cache.getProfileEndpointURI());
+    }
+
+    @Test
+    public void testRefreshAheadIsCollapsed() throws Exception {
+        DiscoveryCache cache = new DiscoveryCache(issuer(), request -> response("max-age=600"), refreshTasks::add, clock);
+
+        // The first call waits for the load
+        cache.refresh();
+        refreshTasks.remove(0).run();
+        OIDCProviderMetadata first = cache.get();
+
+        // Past 80 % of the lifetime the cached copy is served and only one refresh is queued
+        clock.advance(500_000);
+        assertSame(first, cache.get());
+        assertSame(first, cache.get());
+        assertEquals(1, refreshTasks.size());
+
+        refreshTasks.remove(0).run();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testTtlFromCacheHeaders() {
+        HTTPResponse maxAge = new HTTPResponse(200);
+        maxAge.setCacheControl("public, max-age=300");
+        maxAge.setHeader("Age", "100");
+        assertEquals(200_000, DiscoveryCache.ttlMillis(maxAge, 0));
+
+        HTTPResponse noStore = new HTTPResponse(200);
+        noStore.setCacheControl("no-store");
+        assertEquals(DiscoveryCache.MIN_TTL_MILLIS, DiscoveryCache.ttlMillis(noStore, 0));
+
+        HTTPResponse expires = new HTTPResponse(200);
+        expires.setHeader("Date", "Wed, 21 Oct 2020 07:28:00 GMT");
+        expires.setHeader("Expires", "Wed, 21 Oct 2020 09:28:00 GMT");
+        assertEquals(2 * 60 * 60 * 1000L, DiscoveryCache.ttlMillis(expires, 0));
+
+        assertEquals(DiscoveryCache.DEFAULT_TTL_MILLIS, DiscoveryCache.ttlMillis(new HTTPResponse(200), 0));
+    }
+
+    private Issuer issuer() {
+        return new Issuer("https://oidc.sandbox.bankid.cz/");
+    }
+
+    private HTTPResponse response(String cacheControl) throws IOException {
+        loads.incrementAndGet();
+        HTTPResponse response = new HTTPResponse(200);
+        response.setHeader("Content-Type", "application/json");
+        response.setCacheControl(cacheControl);
+        response.setContent(Files.readString(Path.of("src/test/resources/io/openid-configuration.json")));
+        return response;
+    }
+}
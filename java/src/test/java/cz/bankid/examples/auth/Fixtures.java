@@ -0,0 +1,45 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import cz.bankid.examples.transport.BankIDTransport;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+
+/**
+ * Shared test data of the auth examples
+ */
+final class Fixtures {
+
+    static final String ISSUER = "https://oidc.sandbox.bankid.cz/";
+
+    private Fixtures() {
+    }
+
+    static String read(String fileName) {
+        try {
+            return Files.readString(Path.of("src/test/resources/io/" + fileName));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static HTTPResponse json(int status, String content) {
+        HTTPResponse response = new HTTPResponse(status);
+        response.setHeader("Content-Type", "application/json");
+        response.setContent(content);
+        return response;
+    }
+
+    /**
+     * Discovery cache loading the sandbox configuration from the test resources
+     */
+    static DiscoveryCache discovery(Clock clock) {
+        BankIDTransport transport = request -> json(200, read("openid-configuration.json"));
+        return new DiscoveryCache(new Issuer(ISSUER), transport, Runnable::run, clock);
+    }
+}
@@ -0,0 +1,161 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.BadJWTException;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.openid.connect.sdk.Nonce;
+import com.nimbusds.openid.connect.sdk.claims.IDTokenClaimsSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class IDTokenVerifierTest {
+
+    private static final String ISSUER = "https://oidc.sandbox.bankid.cz/";
+
+    private static final ClientID CLIENT_ID = new ClientID("b7a8ac4d-bc25-4c0b-8ebf-2ec3eb7fb0b5");
+
+    private final Clock clock = Clock.fixed(Instant.parse("2020-10-21T07:28:00Z"), ZoneOffset.UTC);
+
+    private final AtomicInteger jwksLoads = new AtomicInteger();
+
+    private RSAKey signingKey;
+
+    private JWKSCache keys;
+
+    private IDTokenVerifier verifier;
+
+    @Before
+    public void setUp() throws Exception {
+        signingKey = new RSAKeyGenerator(2048).keyID("rp-signing-1").generate();
+        DiscoveryCache discovery = new DiscoveryCache(new Issuer(ISSUER), this::load, Runnable::run, clock);
+        keys = new JWKSCache(discovery, this::load, clock);
+        verifier = new IDTokenVerifier(discovery, keys, CLIENT_ID, clock);
+    }
+
+    @Test
+    public void testValidToken() throws Exception {
+        Nonce nonce = new Nonce();
+        IDTokenClaimsSet claims = verifier.verify(sign(signingKey, claims(nonce)), nonce);
+
+        assertEquals("23f1ac00-5d54-4169-a288-794ae2ead0c4", claims.getSubject().getValue());
+        assertEquals(1, jwksLoads.get());
+
+        // The second token is checked with the cached verifier
+        verifier.verify(sign(signingKey, claims(nonce)), nonce);
+        assertSame(keys.getVerifier("rp-signing-1"), keys.getVerifier("rp-signing-1"));
+        assertEquals(1, jwksLoads.get());
+    }
+
+    @Test
+    public void testUnknownKidIsRateLimited() throws Exception {
+        keys.getVerifier("rp-signing-1");
+
+        // Unknown kid right after the download does not cause another download
+        assertNull(keys.getVerifier("rotated-key"));
+        assertNull(keys.getVerifier("rotated-key"));
+        assertEquals(1, jwksLoads.get());
+    }
+
+    @Test
+    public void testFailedDownloadRetried() throws Exception {
+        MutableClock clock = new MutableClock();
+        AtomicInteger failures = new AtomicInteger();
+        DiscoveryCache discovery = new DiscoveryCache(new Issuer(ISSUER), this::load, Runnable::run, clock);
+        JWKSCache keys = new JWKSCache(discovery, request -> {
+            if (request.getURL().getPath().endsWith("jwks") && failures.incrementAndGet() == 1) {
+                throw new IOException("Connection reset");
+            }
+            return load(request);
+        }, clock);
+
+        // The error is reported, not an unknown key, and BankID is not called again at once
+        assertDownloadFails(keys);
+        assertDownloadFails(keys);
+        assertEquals(1, failures.get());
+
+        clock.advance(JWKSCache.FAILED_FETCH_BACKOFF_MILLIS);
+        assertNotNull(keys.getVerifier("rp-signing-1"));
+        assertEquals(1, jwksLoads.get());
+    }
+
+    @Test(expected = BadJWTException.class)
+    public void testForeignAudience() throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder(claims(null)).audience("another-client").build();
+        verifier.verify(sign(signingKey, claims), null);
+    }
+
+    @Test(expected = BadJWTException.class)
+    public void testInvalidSignature() throws Exception {
+        RSAKey foreignKey = new RSAKeyGenerator(2048).keyID("rp-signing-1").generate();
+        verifier.verify(sign(foreignKey, claims(null)), null);
+    }
+
+    @Test(expected = BadJWTException.class)
+    public void testUnexpectedNonce() throws Exception {
+        verifier.verify(sign(signingKey, claims(new Nonce())), new Nonce());
+    }
+
+    private static void assertDownloadFails(JWKSCache keys) throws Exception {
+        try {
+            keys.getVerifier("rp-signing-1");
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private JWTClaimsSet claims(Nonce nonce) {
+        Date now = Date.from(clock.instant());
+        return new JWTClaimsSet.Builder()
+                .issuer(ISSUER)
+                .subject("23f1ac00-5d54-4169-a288-794ae2ead0c4")
+                .audience(CLIENT_ID.getValue())
+                .issueTime(now)
+                .expirationTime(new Date(now.getTime() + 600_000))
+                .claim("nonce", nonce != null ? nonce.getValue() : null)
+                .build();
+    }
+
+    private SignedJWT sign(RSAKey key, JWTClaimsSet claims) throws Exception {
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.PS512).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt;
+    }
+
+    private HTTPResponse load(HTTPRequest request) throws IOException {
+        HTTPResponse response = new HTTPResponse(200);
+        response.setHeader("Content-Type", "application/json");
+        if (request.getURL().getPath().endsWith("jwks")) {
+            jwksLoads.incrementAndGet();
+            response.setContent(new JWKSet(signingKey.toPublicJWK()).toString());
+        } else {
+            response.setContent(Files.readString(Path.of("src/test/resources/io/openid-configuration.json")));
+        }
+        return response;
+    }
+}
@@ -0,0 +1,166 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.oauth2.sdk.AuthorizationCode;
+import com.nimbusds.oauth2.sdk.GeneralException;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.openid.connect.sdk.Nonce;
+import cz.bankid.examples.product.IdentifyAML;
+import cz.bankid.examples.transport.BankIDTransport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.time.Clock;
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LoginCallbackTest {
+
+    private static final ClientID CLIENT_ID = new ClientID("b7a8ac4d-bc25-4c0b-8ebf-2ec3eb7fb0b5");
+
+    private final Nonce nonce = new Nonce();
+
+    // Threads the BankID calls were sent from
+    private final Queue<String> callThreads = new ConcurrentLinkedQueue<>();
+
+    private RSAKey signingKey;
+
+    private ExecutorService executor;
+
+    // Serves the discovery, the keys, the token endpoint (code "bad" is rejected), UserInfo and the Profile API
+    private final BankIDTransport transport = this::serve;
+
+    @Before
+    public void setUp() throws Exception {
+        signingKey = new RSAKeyGenerator(2048).keyID("rp-signing-1").generate();
+    }
+
+    @After
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPlatformThreads() {
+        executor = LoginExecutors.platformThreads(2);
+        LoginCallback.Result<IdentifyAML> result = callback(executor)
+                .handle(new AuthorizationCode("code"), nonce, IdentifyAML.class).join();
+
+        assertEquals("Novák", result.getProduct().getFamily_name());
+        assertEquals("access-code", result.getTokens().getAccessToken().getValue());
+
+        // The callback waited for the calls on the login pool
+        assertEquals(3, callThreads.size());
+        assertTrue(callThreads.stream().allMatch(name -> name.startsWith("bankid-login-")));
+    }
+
+    @Test
+    public void testVirtualThreads() {
+        if (!LoginExecutors.virtualThreadsSupported()) {
+            try {
+                LoginExecutors.virtualThreads();
+                fail();
+            } catch (UnsupportedOperationException e) {
+                // expected before Java 21
+            }
+            return;
+        }
+        executor = LoginExecutors.virtualThreads();
+        LoginCallback.Result<IdentifyAML> result = callback(executor)
+                .handle(new AuthorizationCode("code"), nonce, IdentifyAML.class).join();
+        assertEquals("Novák", result.getProduct().getFamily_name());
+    }
+
+    @Test
+    public void testFromSystemProperties() {
+        executor = LoginExecutors.fromSystemProperties(1);
+        assertFalse(executor.isShutdown());
+    }
+
+    @Test
+    public void testFailedExchange() throws Exception {
+        executor = LoginExecutors.platformThreads(1);
+        try {
+            callback(executor).handle(new AuthorizationCode("bad"), nonce, IdentifyAML.class).join();
+            fail();
+        } catch (CompletionException e) {
+            Throwable cause = Futures.unwrap(e);
+            assertTrue(cause instanceof GeneralException);
+            assertEquals("invalid_grant", ((GeneralException) cause).getErrorObject().getCode());
+        }
+
+        // No data call after the failed exchange, the pool is free for the next callback
+        assertEquals(1, callThreads.size());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    private LoginCallback callback(ExecutorService executor) {
+        DiscoveryCache discovery = Fixtures.discovery(Clock.systemUTC());
+        TokenExchange tokenExchange = new TokenExchange(CLIENT_ID, new Secret("secret"),
+                URI.create("https://application.my/callback"), discovery, new JWKSCache(discovery, transport),
+                transport, Runnable::run);
+        BankIDProducts products = new BankIDProducts(discovery, transport, Runnable::run);
+        return new LoginCallback(tokenExchange, products, executor);
+    }
+
+    private HTTPResponse serve(HTTPRequest request) {
+        String path = request.getURL().getPath();
+        if (path.endsWith("/jwks")) {
+            return Fixtures.json(200, new JWKSet(signingKey.toPublicJWK()).toString());
+        }
+        callThreads.add(Thread.currentThread().getName());
+        if (path.endsWith("/token")) {
+            String code = request.getQueryParameters().get("code").get(0);
+            if (code.equals("bad")) {
+                return Fixtures.json(400, "{\"error\":\"invalid_grant\"}");
+            }
+            return Fixtures.json(200, "{\"access_token\":\"access-" + code + "\",\"token_type\":\"Bearer\","
+                    + "\"expires_in\":300,\"id_token\":\"" + idToken() + "\"}");
+        }
+        return Fixtures.json(200, Fixtures.read(path.endsWith("/profile") ? "profile.json" : "userinfo.json"));
+    }
+
+    private String idToken() {
+        Date now = new Date();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(Fixtures.ISSUER)
+                .subject("23f1ac00-5d54-4169-a288-794ae2ead0c4")
+                .audience(CLIENT_ID.getValue())
+                .issueTime(now)
+                .expirationTime(new Date(now.getTime() + 600_000))
+                .claim("nonce", nonce.getValue())
+                .build();
+        try {
+            SignedJWT jwt = new SignedJWT(
+                    new JWSHeader.Builder(JWSAlgorithm.PS512).keyID(signingKey.getKeyID()).build(), claims);
+            jwt.sign(new RSASSASigner(signingKey));
+            return jwt.serialize();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
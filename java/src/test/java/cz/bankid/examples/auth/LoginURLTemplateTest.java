@@ -0,0 +1,57 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.oauth2.sdk.Scope;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.State;
+import com.nimbusds.oauth2.sdk.pkce.CodeChallenge;
+import com.nimbusds.oauth2.sdk.pkce.CodeChallengeMethod;
+import com.nimbusds.oauth2.sdk.pkce.CodeVerifier;
+import com.nimbusds.oauth2.sdk.util.URLUtils;
+import com.nimbusds.openid.connect.sdk.Nonce;
+import org.junit.Test;
+
+import java.net.URI;
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class LoginURLTemplateTest {
+
+    private final LoginURL loginURL = new LoginURL(new Scope("openid", "profile.name", "offline_access"),
+            new ClientID("client"), URI.create("https://application.my/callback?tenant=a%20b"),
+            Fixtures.discovery(Clock.systemUTC()));
+
+    @Test
+    public void testSameAsBuilder() throws Exception {
+        State state = new State("state-1");
+        Nonce nonce = new Nonce("nonce 1/+");
+
+        URI expected = loginURL.buildLoginURI(state, nonce);
+        URI uri = loginURL.template().buildLoginURI(state, nonce);
+
+        assertEquals(expected.getScheme() + "://" + expected.getHost() + expected.getPath(),
+                uri.getScheme() + "://" + uri.getHost() + uri.getPath());
+        assertEquals(URLUtils.parseParameters(expected.getRawQuery()), URLUtils.parseParameters(uri.getRawQuery()));
+        assertNull(URLUtils.parseParameters(uri.getRawQuery()).get("code_challenge"));
+    }
+
+    @Test
+    public void testCodeChallenge() throws Exception {
+        CodeVerifier codeVerifier = new CodeVerifier();
+        URI uri = loginURL.template().buildLoginURI(new State(), new Nonce(), codeVerifier);
+
+        Map<String, List<String>> params = URLUtils.parseParameters(uri.getRawQuery());
+        assertEquals(CodeChallenge.compute(CodeChallengeMethod.S256, codeVerifier).getValue(),
+                params.get("code_challenge").get(0));
+        assertEquals("S256", params.get("code_challenge_method").get(0));
+    }
+
+    @Test
+    public void testTemplateReused() throws Exception {
+        assertSame(loginURL.template(), loginURL.template());
+    }
+}
@@ -0,0 +1,36 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.oauth2.sdk.Scope;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.State;
+import com.nimbusds.oauth2.sdk.util.URLUtils;
+import com.nimbusds.openid.connect.sdk.Nonce;
+import org.junit.Test;
+
+import java.net.URI;
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class LoginURLTest {
+
+    @Test
+    public void testBuildLoginURI() throws Exception {
+        LoginURL loginURL = new LoginURL(new Scope("openid", "profile.name"), new ClientID("client"),
+                URI.create("https://application.my/callback"), Fixtures.discovery(Clock.systemUTC()));
+
+        URI uri = loginURL.buildLoginURI(new State("state-1"), new Nonce("nonce-1"));
+        assertEquals("https://oidc.sandbox.bankid.cz/auth", uri.getScheme() + "://" + uri.getHost() + uri.getPath());
+
+        Map<String, List<String>> params = URLUtils.parseParameters(uri.getRawQuery());
+        assertEquals("code", params.get("response_type").get(0));
+        assertEquals("openid profile.name", params.get("scope").get(0));
+        assertEquals("client", params.get("client_id").get(0));
+        assertEquals("https://application.my/callback", params.get("redirect_uri").get(0));
+        assertEquals("state-1", params.get("state").get(0));
+        assertEquals("nonce-1", params.get("nonce").get(0));
+        assertEquals("consent", params.get("prompt").get(0));
+    }
+}
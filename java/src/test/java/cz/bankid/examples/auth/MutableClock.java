@@ -0,0 +1,38 @@
+package cz.bankid.examples.auth;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Clock moved forward by the tests
+ */
+class MutableClock extends Clock {
+
+    private volatile long millis = 1_600_000_000_000L;
+
+    void advance(long delta) {
+        millis += delta;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return this;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+}
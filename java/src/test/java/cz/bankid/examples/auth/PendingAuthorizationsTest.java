@@ -0,0 +1,90 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.oauth2.sdk.AuthorizationCode;
+import com.nimbusds.oauth2.sdk.GeneralException;
+import com.nimbusds.oauth2.sdk.id.State;
+import com.nimbusds.openid.connect.sdk.Nonce;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PendingAuthorizationsTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final PendingAuthorizations pending = new PendingAuthorizations(Duration.ofMinutes(10), 64,
+            BatchedRandomValues.shared(), 4, clock);
+
+    @Test
+    public void testConsumeOnce() {
+        PendingAuthorizations.Authorization authorization = pending.create();
+        assertNotNull(authorization.getCodeVerifier());
+        assertEquals(1, pending.size());
+
+        assertSame(authorization, pending.consume(new State(authorization.getState().getValue())));
+        assertNull(pending.consume(authorization.getState()));
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    public void testExpiry() {
+        PendingAuthorizations.Authorization first = pending.create();
+        clock.advance(Duration.ofMinutes(5).toMillis());
+        PendingAuthorizations.Authorization second = pending.create();
+
+        clock.advance(Duration.ofMinutes(5).toMillis());
+        assertNull(pending.consume(first.getState()));
+
+        // The wheel dropped the expired authorization without a lookup
+        clock.advance(Duration.ofMinutes(1).toMillis());
+        assertNull(pending.consume(new State()));
+        assertSame(second, pending.consume(second.getState()));
+
+        // Idle longer than the wheel
+        PendingAuthorizations.Authorization idle = pending.create();
+        clock.advance(Duration.ofHours(1).toMillis());
+        assertNull(pending.consume(idle.getState()));
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    public void testCapacity() {
+        // Every stripe takes a quarter of the capacity
+        int added = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (pending.create() != null) {
+                added++;
+            }
+        }
+        assertEquals(64, added);
+        assertFalse(pending.add(new PendingAuthorizations.Authorization(new State(), new Nonce(), null)));
+
+        clock.advance(Duration.ofMinutes(11).toMillis());
+        assertTrue(pending.add(new PendingAuthorizations.Authorization(new State(), new Nonce(), null)));
+    }
+
+    @Test
+    public void testDuplicateState() {
+        State state = new State();
+        assertTrue(pending.add(new PendingAuthorizations.Authorization(state, new Nonce(), null)));
+        assertFalse(pending.add(new PendingAuthorizations.Authorization(state, new Nonce(), null)));
+    }
+
+    @Test
+    public void testUnknownStateRejected() throws Exception {
+        try {
+            new TokenExchange().exchangeCode(new AuthorizationCode("code"), new State(), pending).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof GeneralException);
+        }
+    }
+}
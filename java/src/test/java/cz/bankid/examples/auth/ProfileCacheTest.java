@@ -0,0 +1,189 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import cz.bankid.examples.entities.entity.Tokens;
+import cz.bankid.examples.product.Connect;
+import cz.bankid.examples.product.IdentifyAML;
+import cz.bankid.examples.transport.BankIDTransport;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ProfileCacheTest {
+
+    private final MutableClock clock = new MutableClock();
+
+    private final ProfileCache cache = new ProfileCache(2, Duration.ofMinutes(5), clock);
+
+    @Test
+    public void testHitAndMiss() {
+        BearerAccessToken token = new BearerAccessToken("token-1");
+        IdentifyAML data = new IdentifyAML();
+
+        assertNull(cache.get(token, IdentifyAML.class));
+        cache.put(token, IdentifyAML.class, data);
+
+        assertSame(data, cache.get(new BearerAccessToken("token-1"), IdentifyAML.class));
+        assertNull(cache.get(token, Connect.class));
+        assertNull(cache.get(new BearerAccessToken("token-2"), IdentifyAML.class));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    public void testLifetimeBoundedByToken() {
+        // The token expires sooner than the maximum lifetime of the entries
+        BearerAccessToken token = new BearerAccessToken("token-1", 60, null);
+        cache.put(token, IdentifyAML.class, new IdentifyAML());
+
+        clock.advance(59_000);
+        assertEquals(IdentifyAML.class, cache.get(token, IdentifyAML.class).getClass());
+
+        clock.advance(1_000);
+        assertNull(cache.get(token, IdentifyAML.class));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testExpirationOfSessionToken() {
+        AtomicInteger calls = new AtomicInteger();
+        BankIDTransport transport = request -> {
+            calls.incrementAndGet();
+            return Fixtures.json(200, Fixtures.read("profile.json"));
+        };
+        BankIDProducts products = new BankIDProducts(Fixtures.discovery(clock), transport, Runnable::run, cache);
+
+        // Issued 290 s ago with expires_in 300, the data are cached only until the token expires
+        Tokens tokens = new Tokens();
+        tokens.setAccess_token("token-1");
+        tokens.setExpires_in(300);
+        tokens.setExpires_at(clock.millis() / 1000 + 10);
+
+        products.fetchProfile(tokens, IdentifyAML.class).join();
+        clock.advance(9_000);
+        products.fetchProfile(tokens, IdentifyAML.class).join();
+        assertEquals(1, calls.get());
+
+        clock.advance(1_000);
+        assertNull(cache.get(new BearerAccessToken("token-1", 300, null), IdentifyAML.class));
+    }
+
+    @Test
+    public void testMaximumLifetime() {
+        BearerAccessToken token = new BearerAccessToken("token-1", 3600, null);
+        cache.put(token, IdentifyAML.class, new IdentifyAML());
+
+        clock.advance(Duration.ofMinutes(5).toMillis());
+        assertNull(cache.get(token, IdentifyAML.class));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedTokenEvicted() {
+        BearerAccessToken first = new BearerAccessToken("token-1");
+        BearerAccessToken second = new BearerAccessToken("token-2");
+        BearerAccessToken third = new BearerAccessToken("token-3");
+
+        cache.put(first, IdentifyAML.class, new IdentifyAML());
+        cache.put(first, Connect.class, new Connect());
+        cache.put(second, IdentifyAML.class, new IdentifyAML());
+
+        // The first token is used again, the second one becomes the eldest
+        cache.get(first, IdentifyAML.class);
+        cache.put(third, IdentifyAML.class, new IdentifyAML());
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get(second, IdentifyAML.class));
+        assertEquals(Connect.class, cache.get(first, Connect.class).getClass());
+    }
+
+    @Test
+    public void testInvalidateOnLogout() {
+        BearerAccessToken token = new BearerAccessToken("token-1");
+        cache.put(token, IdentifyAML.class, new IdentifyAML());
+        cache.put(token, Connect.class, new Connect());
+
+        cache.invalidate(token);
+
+        assertNull(cache.get(token, IdentifyAML.class));
+        assertNull(cache.get(token, Connect.class));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testRepeatedFetchServedFromCache() {
+        AtomicInteger calls = new AtomicInteger();
+        BankIDTransport transport = request -> {
+            calls.incrementAndGet();
+            return Fixtures.json(200, Fixtures.read("profile.json"));
+        };
+        BankIDProducts products = new BankIDProducts(Fixtures.discovery(clock), transport, Runnable::run, cache);
+        BearerAccessToken token = new BearerAccessToken("token-1", 300, null);
+
+        IdentifyAML first = products.fetchProfile(token, IdentifyAML.class).join();
+        IdentifyAML second = products.fetchProfile(token, IdentifyAML.class).join();
+
+        assertSame(first, second);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testInvalidateDuringFetch() {
+        CompletableFuture<HTTPResponse> response = new CompletableFuture<>();
+        BankIDTransport pending = new BankIDTransport() {
+            @Override
+            public HTTPResponse send(HTTPRequest request) {
+                return new HTTPResponse(503);
+            }
+
+            @Override
+            public CompletableFuture<HTTPResponse> sendAsync(HTTPRequest request, Executor executor) {
+                return response;
+            }
+        };
+        BankIDProducts products = new BankIDProducts(Fixtures.discovery(clock), pending, Runnable::run, cache);
+        BearerAccessToken token = new BearerAccessToken("token-1", 300, null);
+
+        CompletableFuture<IdentifyAML> fetch = products.fetchProfile(token, IdentifyAML.class);
+        cache.invalidate(token);
+        response.complete(Fixtures.json(200, Fixtures.read("profile.json")));
+
+        assertEquals("Novák", fetch.join().getFamily_name());
+        assertNull(cache.get(token, IdentifyAML.class));
+        assertEquals(0, cache.size());
+
+        // A fetch started after the logout is cached again
+        long stamp = cache.stamp();
+        cache.put(token, IdentifyAML.class, fetch.join(), stamp);
+        assertNotNull(cache.get(token, IdentifyAML.class));
+    }
+
+    @Test
+    public void testInvalidationStampsBounded() throws Exception {
+        IdentifyAML profile = BankIDProducts.readProduct(Fixtures.read("profile.json"), IdentifyAML.class);
+        BearerAccessToken token = new BearerAccessToken("token-1", 300, null);
+        long stamp = cache.stamp();
+
+        // The stamp of token-1 is dropped, the older fetches of any token are not cached
+        cache.invalidate(token);
+        cache.invalidate(new BearerAccessToken("token-2"));
+        cache.invalidate(new BearerAccessToken("token-3"));
+        cache.put(new BearerAccessToken("token-4", 300, null), IdentifyAML.class, profile, stamp);
+        assertEquals(0, cache.size());
+
+        cache.put(token, IdentifyAML.class, profile, cache.stamp());
+        assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,91 @@
+package cz.bankid.examples.auth;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    public void testConcurrentCallsShared() {
+        CompletableFuture<String> response = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute("session", () -> call(response));
+        CompletableFuture<String> second = singleFlight.execute("session", () -> call(response));
+        CompletableFuture<String> other = singleFlight.execute("other", () -> call(new CompletableFuture<>()));
+        assertEquals(2, calls.get());
+
+        response.complete("tokens");
+        assertEquals("tokens", first.join());
+        assertEquals("tokens", second.join());
+        assertFalse(other.isDone());
+        assertEquals(1, singleFlight.size());
+
+        // The key is released, the next caller makes a new call
+        singleFlight.execute("session", () -> call(CompletableFuture.completedFuture("new tokens")));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testFailureShared() {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        CompletableFuture<String> first = singleFlight.execute("session", () -> call(response));
+        CompletableFuture<String> second = singleFlight.execute("session", () -> call(response));
+
+        IllegalStateException error = new IllegalStateException("invalid_grant");
+        response.completeExceptionally(error);
+
+        for (CompletableFuture<String> result : List.of(first, second)) {
+            try {
+                result.join();
+                fail();
+            } catch (CompletionException e) {
+                assertSame(error, Futures.unwrap(e));
+            }
+        }
+        assertEquals(0, singleFlight.size());
+    }
+
+    @Test
+    public void testCompletedRightAway() {
+        assertEquals("tokens", singleFlight.execute("session", () -> call(CompletableFuture.completedFuture("tokens"))).join());
+        assertEquals(0, singleFlight.size());
+
+        // The supplier failing is reported by the future
+        CompletableFuture<String> failed = singleFlight.execute("session", () -> {
+            throw new IllegalStateException();
+        });
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(0, singleFlight.size());
+    }
+
+    @Test
+    public void testCancelledCallerDoesNotAffectOthers() {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        CompletableFuture<String> first = singleFlight.execute("session", () -> call(response));
+        CompletableFuture<String> second = singleFlight.execute("session", () -> call(response));
+
+        first.cancel(false);
+        response.complete("tokens");
+
+        assertEquals("tokens", second.join());
+    }
+
+    private CompletableFuture<String> call(CompletableFuture<String> response) {
+        calls.incrementAndGet();
+        return response;
+    }
+}
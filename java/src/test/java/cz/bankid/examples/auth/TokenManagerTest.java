@@ -0,0 +1,242 @@
+package cz.bankid.examples.auth;
+
+import com.nimbusds.oauth2.sdk.GeneralException;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import com.nimbusds.oauth2.sdk.token.RefreshToken;
+import cz.bankid.examples.entities.entity.Tokens;
+import cz.bankid.examples.transport.BankIDTransport;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TokenManagerTest {
+
+    private final MutableClock clock = new MutableClock();
+
+    private final RecordingScheduler scheduler = new RecordingScheduler();
+
+    private final AtomicInteger refreshes = new AtomicInteger();
+
+    // Pending responses of the token endpoint, completed by the tests
+    private final List<CompletableFuture<HTTPResponse>> pending = new ArrayList<>();
+
+    private final BankIDTransport transport = new BankIDTransport() {
+        @Override
+        public HTTPResponse send(HTTPRequest request) {
+            assertTrue(request.getQuery().contains("grant_type=refresh_token"));
+            int refresh = refreshes.incrementAndGet();
+            return Fixtures.json(200, "{\"access_token\":\"access-" + refresh + "\",\"token_type\":\"Bearer\","
+                    + "\"expires_in\":300,\"refresh_token\":\"refresh-" + refresh + "\"}");
+        }
+
+        @Override
+        public CompletableFuture<HTTPResponse> sendAsync(HTTPRequest request, Executor executor) {
+            CompletableFuture<HTTPResponse> response = new CompletableFuture<>();
+            pending.add(response);
+            return response.thenApply(ignored -> send(request));
+        }
+    };
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testRefreshScheduledBeforeExpiry() {
+        TokenManager manager = manager(Duration.ZERO);
+        manager.register("session", issued());
+        assertEquals(240_000L, scheduler.lastDelay());
+
+        // The scheduled refresh replaces the tokens and schedules the next one
+        scheduler.runLast();
+        respond();
+
+        Tokens tokens = manager.getTokens("session");
+        assertEquals("access-1", tokens.getAccess_token());
+        assertEquals("refresh-1", tokens.getRefresh_token());
+        assertEquals(clock.millis() / 1000 + 300, tokens.getExpires_at());
+        assertEquals(2, scheduler.delays.size());
+        assertEquals(240_000L, scheduler.lastDelay());
+    }
+
+    @Test
+    public void testJitter() {
+        TokenManager manager = manager(Duration.ofSeconds(15));
+        for (int i = 0; i < 20; i++) {
+            manager.register("session-" + i, issued());
+            long delay = scheduler.lastDelay();
+            assertTrue(delay >= 225_000L && delay <= 240_000L);
+        }
+    }
+
+    @Test
+    public void testShortLifetime() {
+        // The defaults, margin and jitter longer than the token lifetime
+        TokenManager manager = new TokenManager(tokenExchange(transport), scheduler,
+                TokenManager.DEFAULT_REFRESH_MARGIN, TokenManager.DEFAULT_JITTER, clock);
+        for (int i = 0; i < 20; i++) {
+            manager.register("session-" + i, issued(60));
+            long delay = scheduler.lastDelay();
+            assertTrue(delay >= 15_000L && delay <= 30_000L);
+        }
+
+        // Already expired, still not refreshed in a loop
+        manager.register("expired", issued(1));
+        clock.advance(5_000);
+        assertEquals(TokenManager.MIN_REFRESH_DELAY_MILLIS, manager.refreshDelay(manager.getTokens("expired")));
+    }
+
+    @Test
+    public void testConcurrentRefreshDeduplicated() {
+        TokenManager manager = manager(Duration.ZERO);
+        manager.register("session", issued());
+
+        CompletableFuture<Tokens> first = manager.refresh("session");
+        CompletableFuture<Tokens> second = manager.refresh("session");
+        assertSame(first, second);
+        assertEquals(1, pending.size());
+
+        respond();
+        assertEquals("access-1", first.join().getAccess_token());
+
+        // The next refresh is a new call
+        manager.refresh("session");
+        assertEquals(2, pending.size());
+    }
+
+    @Test
+    public void testExpiredTokenDoesNotBlock() {
+        TokenManager manager = manager(Duration.ZERO);
+        manager.register("session", issued());
+        assertEquals("access-0", manager.accessToken("session").join().getValue());
+
+        clock.advance(300_000);
+        CompletableFuture<BearerAccessToken> accessToken = manager.accessToken("session");
+        assertFalse(accessToken.isDone());
+        assertEquals("access-0", manager.getTokens("session").getAccess_token());
+
+        respond();
+        assertEquals("access-1", accessToken.join().getValue());
+        assertEquals(300, accessToken.join().getLifetime());
+    }
+
+    @Test
+    public void testRejectedRefreshToken() {
+        AtomicInteger calls = new AtomicInteger();
+        BankIDTransport rejecting = request -> {
+            calls.incrementAndGet();
+            HTTPResponse response = Fixtures.json(400, "{\"error\":\"invalid_grant\"}");
+            return response;
+        };
+        TokenManager manager = new TokenManager(tokenExchange(rejecting), scheduler, Duration.ofSeconds(60),
+                Duration.ZERO, clock);
+        manager.register("session", issued());
+
+        try {
+            manager.refresh("session").join();
+            fail();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof GeneralException);
+        }
+
+        // Not retried, only the initial refresh is scheduled
+        assertEquals(1, scheduler.delays.size());
+        assertEquals(1, calls.get());
+
+        // The session fails without calling the token endpoint until it is registered again
+        clock.advance(300_000);
+        assertTrue(manager.tokens("session").isCompletedExceptionally());
+        assertTrue(manager.refresh("session").isCompletedExceptionally());
+        assertEquals(1, calls.get());
+
+        manager.register("session", issued());
+        assertEquals("access-0", manager.tokens("session").join().getAccess_token());
+    }
+
+    @Test
+    public void testRemove() {
+        TokenManager manager = manager(Duration.ZERO);
+        manager.register("session", issued());
+        manager.remove("session");
+
+        assertEquals(0, manager.size());
+        assertTrue(scheduler.futures.get(0).isCancelled());
+        assertTrue(manager.tokens("session").isCompletedExceptionally());
+    }
+
+    private TokenManager manager(Duration jitter) {
+        return new TokenManager(tokenExchange(transport), scheduler, Duration.ofSeconds(60), jitter, clock);
+    }
+
+    private TokenExchange tokenExchange(BankIDTransport transport) {
+        DiscoveryCache discovery = Fixtures.discovery(clock);
+        return new TokenExchange(new ClientID("client"), new Secret("secret"), URI.create("https://application.my/callback"),
+                discovery, new JWKSCache(discovery, transport), transport, Runnable::run);
+    }
+
+    private static com.nimbusds.oauth2.sdk.token.Tokens issued() {
+        return issued(300);
+    }
+
+    private static com.nimbusds.oauth2.sdk.token.Tokens issued(long lifetime) {
+        return new com.nimbusds.oauth2.sdk.token.Tokens(new BearerAccessToken("access-0", lifetime, null),
+                new RefreshToken("refresh-0"));
+    }
+
+    private void respond() {
+        pending.get(pending.size() - 1).complete(null);
+    }
+
+    /**
+     * Records the scheduled refreshes, the tests run them
+     */
+    private static class RecordingScheduler extends ScheduledThreadPoolExecutor {
+
+        final List<Long> delays = new ArrayList<>();
+        final List<Runnable> commands = new ArrayList<>();
+        final List<ScheduledFuture<?>> futures = new ArrayList<>();
+
+        RecordingScheduler() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            delays.add(unit.toMillis(delay));
+            commands.add(command);
+            ScheduledFuture<?> future = super.schedule(command, 1, TimeUnit.DAYS);
+            futures.add(future);
+            return future;
+        }
+
+        long lastDelay() {
+            return delays.get(delays.size() - 1);
+        }
+
+        void runLast() {
+            commands.get(commands.size() - 1).run();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package cz.bankid.examples.batch;
+
+import com.nimbusds.oauth2.sdk.ParseException;
+import cz.bankid.examples.json.BankIDJson;
+import cz.bankid.examples.json.LazyProduct;
+import cz.bankid.examples.product.IdentifyAML;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeDetectorTest {
+
+    private final ChangeDetector detector = new ChangeDetector();
+
+    @Test
+    public void testUnchangedProfileSkipped() throws Exception {
+        ChangeDetector.Change<IdentifyAML> change = detector.detect(profile());
+        assertNotNull(change);
+        assertTrue(change.isNew());
+
+        // Not committed yet, still reported
+        assertNotNull(detector.detect(profile()));
+        detector.commit(change);
+
+        // The txn differs in every response
+        IdentifyAML again = profile();
+        again.setTxn("another-transaction");
+        assertNull(detector.detect(again));
+    }
+
+    @Test
+    public void testChangedProfileReported() throws Exception {
+        detector.commit(detector.detect(profile()));
+
+        // Changed content with the same updated_at
+        IdentifyAML moved = profile();
+        moved.getAddresses().get(0).setCity("Brno");
+        ChangeDetector.Change<IdentifyAML> change = detector.detect(moved);
+        assertNotNull(change);
+        assertFalse(change.isNew());
+        assertEquals(change.getPrevious().getUpdatedAt(), change.getSnapshot().getUpdatedAt());
+
+        // Newer updated_at
+        IdentifyAML updated = profile();
+        updated.setUpdated_at(updated.getUpdated_at() + 1);
+        assertNotNull(detector.detect(updated));
+    }
+
+    @Test
+    public void testHashOfContent() throws Exception {
+        IdentifyAML otherTransaction = profile();
+        otherTransaction.setTxn("other");
+        assertEquals(ChangeDetector.hash(profile()), ChangeDetector.hash(otherTransaction));
+
+        IdentifyAML renamed = profile();
+        renamed.setFamily_name("Nováková");
+        assertNotEquals(ChangeDetector.hash(profile()), ChangeDetector.hash(renamed));
+    }
+
+    @Test
+    public void testLazyProduct() throws Exception {
+        String json = read("profile.json");
+        ChangeDetector.Change<LazyProduct> change = detector.detect(lazy(json));
+        assertNotNull(change);
+        detector.commit(change);
+
+        // The claims are hashed, not the bytes of the response with the txn
+        assertNull(detector.detect(lazy(json.replace("6941683f", "00000000").replace("{", "{ "))));
+        assertNotNull(detector.detect(lazy(json.replace("Novák", "Nováková"))));
+    }
+
+    private static IdentifyAML profile() throws IOException, ParseException {
+        return BankIDJson.parse(read("profile.json"), IdentifyAML.class);
+    }
+
+    private static String read(String fileName) throws IOException {
+        return Files.readString(Path.of("src/test/resources/io/" + fileName));
+    }
+
+    private static LazyProduct lazy(String json) throws ParseException {
+        return LazyProduct.parse(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,167 @@
+package cz.bankid.examples.batch;
+
+import com.nimbusds.oauth2.sdk.GeneralException;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.token.RefreshToken;
+import cz.bankid.examples.auth.BankIDProducts;
+import cz.bankid.examples.auth.DiscoveryCache;
+import cz.bankid.examples.auth.JWKSCache;
+import cz.bankid.examples.auth.TokenExchange;
+import cz.bankid.examples.product.IdentifyAML;
+import cz.bankid.examples.transport.BankIDTransport;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProfileBatchTest {
+
+    private static final String ISSUER = "https://oidc.sandbox.bankid.cz/";
+
+    // Serves the discovery, the token endpoint (refresh-bad is rejected) and the Profile API
+    private final BankIDTransport transport = request -> {
+        String path = request.getURL().getPath();
+        if (path.endsWith("/openid-configuration")) {
+            return json(200, read("openid-configuration.json"));
+        }
+        if (path.endsWith("/token")) {
+            String refreshToken = request.getQueryParameters().get("refresh_token").get(0);
+            if (refreshToken.equals("refresh-bad")) {
+                return json(400, "{\"error\":\"invalid_grant\"}");
+            }
+            return json(200, "{\"access_token\":\"access-" + refreshToken + "\",\"token_type\":\"Bearer\","
+                    + "\"expires_in\":300,\"refresh_token\":\"rotated-" + refreshToken + "\"}");
+        }
+        return json(200, read("profile.json"));
+    };
+
+    @Test
+    public void testRefresh() {
+        ProfileBatch batch = batch(transport, 2);
+        Stream<RefreshToken> refreshTokens = Stream.of("refresh-1", "refresh-bad", "refresh-2").map(RefreshToken::new);
+
+        List<ProfileBatch.Result<IdentifyAML>> results =
+                batch.refresh(refreshTokens, IdentifyAML.class).collect(Collectors.toList());
+        assertEquals(3, results.size());
+
+        for (ProfileBatch.Result<IdentifyAML> result : results) {
+            String refreshToken = result.getRefreshToken().getValue();
+            if (refreshToken.equals("refresh-bad")) {
+                // The failure is reported by the result, the batch goes on
+                assertFalse(result.isSuccess());
+                assertTrue(result.getError() instanceof GeneralException);
+            } else {
+                assertTrue(result.isSuccess());
+                assertEquals("Novák", result.getProduct().getFamily_name());
+                assertEquals("rotated-" + refreshToken, result.getTokens().getRefreshToken().getValue());
+            }
+        }
+    }
+
+    @Test
+    public void testRotatedTokenKeptOnProfileFailure() {
+        BankIDTransport profileDown = request -> request.getURL().getPath().endsWith("/profile")
+                ? json(503, "{}") : transport.send(request);
+
+        List<ProfileBatch.Result<IdentifyAML>> results = batch(profileDown, 1)
+                .refresh(Stream.of(new RefreshToken("refresh-1")), IdentifyAML.class)
+                .collect(Collectors.toList());
+
+        ProfileBatch.Result<IdentifyAML> result = results.get(0);
+        assertFalse(result.isSuccess());
+        assertTrue(result.getError() instanceof GeneralException);
+        assertEquals("rotated-refresh-1", result.getTokens().getRefreshToken().getValue());
+    }
+
+    @Test
+    public void testBoundedConcurrency() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maximum = new AtomicInteger();
+        BankIDTransport slowTokens = new BankIDTransport() {
+            @Override
+            public HTTPResponse send(HTTPRequest request) throws IOException {
+                return transport.send(request);
+            }
+
+            @Override
+            public CompletableFuture<HTTPResponse> sendAsync(HTTPRequest request, Executor executor) {
+                if (!request.getURL().getPath().endsWith("/token")) {
+                    return BankIDTransport.super.sendAsync(request, executor);
+                }
+                maximum.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Executor delayed = CompletableFuture.delayedExecutor(5, TimeUnit.MILLISECONDS);
+                return CompletableFuture.runAsync(running::decrementAndGet, delayed)
+                        .thenCompose(ignored -> BankIDTransport.super.sendAsync(request, executor));
+            }
+        };
+
+        AtomicInteger pulled = new AtomicInteger();
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<RefreshToken> refreshTokens = IntStream.range(0, 20)
+                .mapToObj(i -> new RefreshToken("refresh-" + i))
+                .peek(token -> pulled.incrementAndGet())
+                .onClose(() -> closed.set(true));
+
+        try (Stream<ProfileBatch.Result<IdentifyAML>> results = batch(slowTokens, 3).refresh(refreshTokens, IdentifyAML.class)) {
+            Iterator<ProfileBatch.Result<IdentifyAML>> iterator = results.iterator();
+
+            // Only the tokens being processed are pulled from the input
+            assertTrue(iterator.next().isSuccess());
+            assertEquals(3, pulled.get());
+
+            int count = 1;
+            while (iterator.hasNext()) {
+                assertTrue(iterator.next().isSuccess());
+                count++;
+            }
+            assertEquals(20, count);
+        }
+        assertTrue(maximum.get() <= 3);
+        assertTrue(closed.get());
+    }
+
+    private static ProfileBatch batch(BankIDTransport transport, int maxConcurrency) {
+        DiscoveryCache discovery = new DiscoveryCache(new Issuer(ISSUER), transport);
+        TokenExchange tokenExchange = new TokenExchange(new ClientID("client"), new Secret("secret"),
+                URI.create("https://application.my/callback"), discovery, new JWKSCache(discovery, transport),
+                transport, Runnable::run);
+        BankIDProducts products = new BankIDProducts(discovery, transport, Runnable::run);
+        return new ProfileBatch(tokenExchange, products, maxConcurrency);
+    }
+
+    private static String read(String fileName) {
+        try {
+            return Files.readString(Path.of("src/test/resources/io/" + fileName));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static HTTPResponse json(int status, String content) {
+        HTTPResponse response = new HTTPResponse(status);
+        response.setHeader("Content-Type", "application/json");
+        response.setContent(content);
+        return response;
+    }
+}
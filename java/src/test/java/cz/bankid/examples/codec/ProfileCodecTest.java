@@ -0,0 +1,87 @@
+package cz.bankid.examples.codec;
+
+import com.nimbusds.oauth2.sdk.ParseException;
+import cz.bankid.examples.json.BankIDJson;
+import cz.bankid.examples.product.Connect;
+import cz.bankid.examples.product.IProduct;
+import cz.bankid.examples.product.Identify;
+import cz.bankid.examples.product.IdentifyAML;
+import cz.bankid.examples.product.IdentifyPlus;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProfileCodecTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        assertRoundTrip(Connect.class, "userinfo.json");
+        assertRoundTrip(Identify.class, "profile.json");
+        assertRoundTrip(IdentifyPlus.class, "profile.json");
+        assertRoundTrip(IdentifyAML.class, "profile.json");
+    }
+
+    @Test
+    public void testAbsentFields() throws Exception {
+        IdentifyAML empty = new IdentifyAML();
+        IdentifyAML decoded = ProfileCodec.decode(ProfileCodec.encode(empty), IdentifyAML.class);
+        assertNull(decoded.getSub());
+        assertNull(decoded.getIdcards());
+        assertNull(decoded.getVerified_claims());
+
+        // Version, product and the bitmap of 26 fields
+        assertEquals(2 + 4, ProfileCodec.encode(empty).length);
+    }
+
+    @Test
+    public void testSmallerThanJson() throws Exception {
+        String json = read("profile.json");
+        byte[] snapshot = ProfileCodec.encode(BankIDJson.parse(json, IdentifyAML.class));
+        assertTrue(snapshot.length < json.getBytes(StandardCharsets.UTF_8).length / 2);
+    }
+
+    @Test
+    public void testInvalidSnapshot() throws Exception {
+        byte[] snapshot = ProfileCodec.encode(BankIDJson.parse(read("profile.json"), IdentifyAML.class));
+
+        assertInvalid(Arrays.copyOf(snapshot, snapshot.length - 3), IdentifyAML.class);
+        assertInvalid(Arrays.copyOf(snapshot, snapshot.length + 1), IdentifyAML.class);
+        assertInvalid(snapshot, Identify.class);
+
+        byte[] newer = snapshot.clone();
+        newer[0] = ProfileCodec.VERSION + 1;
+        assertInvalid(newer, IdentifyAML.class);
+
+        byte[] older = snapshot.clone();
+        older[0] = ProfileCodec.VERSION - 1;
+        assertInvalid(older, IdentifyAML.class);
+    }
+
+    private static <T extends IProduct> void assertRoundTrip(Class<T> product, String fileName) throws Exception {
+        T original = BankIDJson.parse(read(fileName), product);
+        T decoded = ProfileCodec.decode(ProfileCodec.encode(original), product);
+        assertEquals(BankIDJson.gson().toJson(original), BankIDJson.gson().toJson(decoded));
+    }
+
+    private static void assertInvalid(byte[] snapshot, Class<? extends IProduct> product) {
+        try {
+            ProfileCodec.decode(snapshot, product);
+            fail();
+        } catch (ParseException e) {
+            // expected
+        }
+    }
+
+    private static String read(String fileName) throws IOException {
+        return Files.readString(Path.of("src/test/resources/io/" + fileName));
+    }
+}
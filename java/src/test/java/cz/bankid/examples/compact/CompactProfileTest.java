@@ -0,0 +1,63 @@
+package cz.bankid.examples.compact;
+
+import cz.bankid.examples.json.BankIDJson;
+import cz.bankid.examples.product.IdentifyAML;
+import cz.bankid.examples.product.IdentifyPlus;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class CompactProfileTest {
+
+    private final StringPool pool = new StringPool();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        String json = Files.readString(Path.of("src/test/resources/io/profile.json"));
+
+        IdentifyAML identifyAML = BankIDJson.parse(json, IdentifyAML.class);
+        CompactProfile compact = CompactProfile.of(identifyAML, pool);
+        assertEquals(BankIDJson.gson().toJson(identifyAML), BankIDJson.gson().toJson(compact.toIdentifyAML()));
+        assertEquals("CZ0708000000001019382023", compact.getPaymentAccounts()[0]);
+        assertEquals("45244782", compact.getVerification_process());
+
+        IdentifyPlus identifyPlus = BankIDJson.parse(json, IdentifyPlus.class);
+        assertEquals(BankIDJson.gson().toJson(identifyPlus),
+                BankIDJson.gson().toJson(CompactProfile.of(identifyPlus, pool).toIdentifyPlus()));
+    }
+
+    @Test
+    public void testAbsentValues() {
+        CompactProfile compact = CompactProfile.of(new IdentifyAML(), pool);
+        assertNull(compact.getAddresses());
+        assertNull(compact.getPaymentAccounts());
+        assertNull(compact.getVerifiedClaims());
+        assertNull(compact.toIdentifyAML().getVerified_claims());
+    }
+
+    @Test
+    public void testPooledValues() throws Exception {
+        String json = Files.readString(Path.of("src/test/resources/io/profile.json"));
+        CompactProfile first = CompactProfile.of(BankIDJson.parse(json, IdentifyAML.class), pool);
+        CompactProfile second = CompactProfile.of(BankIDJson.parse(json, IdentifyAML.class), pool);
+
+        assertSame(first.getIdcards()[0].getIssuer(), second.getIdcards()[0].getIssuer());
+        assertSame(first.getAddresses()[0].getCity(), second.getAddresses()[0].getCity());
+        assertSame(first.getNationalities()[1], second.getNationalities()[1]);
+    }
+
+    @Test
+    public void testPoolBounded() {
+        StringPool small = new StringPool(1);
+        assertSame(small.get(new String("CZ")), small.get(new String("CZ")));
+
+        String other = new String("SK");
+        assertSame(other, small.get(other));
+        assertEquals(1, small.size());
+    }
+}
@@ -0,0 +1,117 @@
+package cz.bankid.examples.diff;
+
+import com.nimbusds.oauth2.sdk.ParseException;
+import cz.bankid.examples.entities.IdentifyAMLVerifiedClaims;
+import cz.bankid.examples.entities.entity.IDCard;
+import cz.bankid.examples.json.BankIDJson;
+import cz.bankid.examples.json.LazyProduct;
+import cz.bankid.examples.product.IdentifyAML;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProfileDiffTest {
+
+    @Test
+    public void testEqualProfiles() throws Exception {
+        IdentifyAML after = profile();
+        after.setTxn("another-transaction");
+        assertTrue(ProfileDiff.diff(profile(), after).isEmpty());
+    }
+
+    @Test
+    public void testNestedChanges() throws Exception {
+        IdentifyAML after = profile();
+        after.setPep(true);
+        after.getIdcards().get(0).setValid_to("2033-10-11");
+        after.getAddresses().get(0).setRuian_reference(null);
+        after.getPaymentAccounts().add("CZ6508000000192000145399");
+        ((IdentifyAMLVerifiedClaims) after.getVerified_claims()).getClaims().setFamily_name("Nováková");
+
+        List<FieldChange> changes = ProfileDiff.diff(profile(), after);
+        assertEquals(List.of(
+                "CHANGED verified_claims.claims.family_name",
+                "CHANGED idcards[0].valid_to",
+                "CHANGED pep",
+                "ADDED paymentAccounts[1]",
+                "REMOVED addresses[0].ruian_reference"),
+                changes.stream().map(FieldChange::toString).collect(Collectors.toList()));
+
+        FieldChange validTo = changes.get(1);
+        assertEquals("2023-10-11", validTo.getOldValue().getAsString());
+        assertEquals("2033-10-11", validTo.getNewValue().getAsString());
+    }
+
+    @Test
+    public void testListItemsPairedByKey() throws Exception {
+        IdentifyAML before = profile();
+        IDCard passport = new IDCard();
+        passport.setNumber("987654321");
+        passport.setValid_to("2030-01-01");
+        before.setIdcards(new ArrayList<>(List.of(passport, before.getIdcards().get(0))));
+
+        // The first id card removed, the valid_to of the other one is the same
+        List<FieldChange> changes = ProfileDiff.diff(before, profile());
+        assertEquals(List.of("REMOVED idcards[0]"),
+                changes.stream().map(FieldChange::toString).collect(Collectors.toList()));
+        assertFalse(changes.stream().anyMatch(change -> change.getPath().endsWith("valid_to")));
+
+        // Reordered
+        IdentifyAML reordered = profile();
+        reordered.setIdcards(List.of(before.getIdcards().get(1), passport));
+        assertTrue(ProfileDiff.diff(before, reordered).isEmpty());
+    }
+
+    @Test
+    public void testLazyProducts() throws Exception {
+        String json = Files.readString(Path.of("src/test/resources/io/profile.json"));
+        LazyProduct before = LazyProduct.parse(json.getBytes(StandardCharsets.UTF_8));
+        LazyProduct after = LazyProduct.parse(json.replace("\"pep\": false", "\"pep\": true")
+                .getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(List.of("CHANGED pep"),
+                ProfileDiff.diff(before, after).stream().map(FieldChange::toString).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testNewProfile() throws Exception {
+        List<FieldChange> changes = ProfileDiff.diff(null, profile());
+        assertTrue(changes.stream().allMatch(change -> change.getType() == FieldChange.Type.ADDED));
+        assertTrue(changes.stream().anyMatch(change -> change.getPath().equals("idcards")));
+    }
+
+    @Test
+    public void testFieldMatcher() throws Exception {
+        FieldMatcher matcher = FieldMatcher.of("pep", "idcards[].valid_to");
+        assertTrue(matcher.matches("pep"));
+        assertTrue(matcher.matches("idcards[2].valid_to"));
+        assertTrue(matcher.matches("idcards[1]"));
+        assertTrue(matcher.matches("idcards"));
+        assertFalse(matcher.matches("idcards[0].number"));
+        assertFalse(matcher.matches("pep_reason"));
+        assertFalse(matcher.matches("verified_claims.claims.idcards[0].valid_to"));
+
+        // An added id card needs the review, a changed e-mail does not
+        IdentifyAML after = profile();
+        after.setEmail("jan.novak@email.com");
+        assertFalse(FieldMatcher.AML_REVIEW.matchesAny(ProfileDiff.diff(profile(), after)));
+        List<IDCard> idcards = new ArrayList<>(after.getIdcards());
+        idcards.add(new IDCard());
+        after.setIdcards(idcards);
+        assertTrue(FieldMatcher.AML_REVIEW.matchesAny(ProfileDiff.diff(profile(), after)));
+    }
+
+    private static IdentifyAML profile() throws IOException, ParseException {
+        return BankIDJson.parse(Files.readString(Path.of("src/test/resources/io/profile.json")), IdentifyAML.class);
+    }
+}
@@ -0,0 +1,115 @@
+package cz.bankid.examples.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.nimbusds.oauth2.sdk.ParseException;
+import cz.bankid.examples.entities.IdentifyAMLVerifiedClaims;
+import cz.bankid.examples.entities.entity.AddressType;
+import cz.bankid.examples.entities.entity.Gender;
+import cz.bankid.examples.entities.entity.IDCardType;
+import cz.bankid.examples.entities.entity.TrustFramework;
+import cz.bankid.examples.product.Connect;
+import cz.bankid.examples.product.IProduct;
+import cz.bankid.examples.product.Identify;
+import cz.bankid.examples.product.IdentifyAML;
+import cz.bankid.examples.product.IdentifyPlus;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BankIDJsonTest {
+
+    // Reflective Gson as the reference
+    private final Gson reflective = new Gson();
+
+    @Test
+    public void testGeneratedAdaptersAreUsed() {
+        assertTrue(BankIDJson.gson().getAdapter(Connect.class) instanceof ProductAdapters.ConnectAdapter);
+        assertTrue(BankIDJson.gson().getAdapter(IdentifyAML.class) instanceof ProductAdapters.IdentifyAMLAdapter);
+        assertSame(EntityAdapters.GENDER, BankIDJson.gson().getAdapter(Gender.class));
+    }
+
+    @Test
+    public void testParse() throws IOException, ParseException {
+        String profile = read("profile.json");
+        byte[] bytes = profile.getBytes(StandardCharsets.UTF_8);
+
+        assertEquals("Novák", BankIDJson.parse(profile, IdentifyAML.class).getFamily_name());
+        assertEquals("Novák", BankIDJson.parse(new ByteArrayInputStream(bytes), IdentifyAML.class).getFamily_name());
+    }
+
+    @Test
+    public void testParseInvalid() {
+        String[] invalid = {null, "", "null", "[]", "{\"sub\": ", "{\"sub\": \"abc\"} {}"};
+        for (String json : invalid) {
+            try {
+                BankIDJson.parse(json, Connect.class);
+                fail("Parsed " + json);
+            } catch (ParseException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testSameAsReflective() throws IOException {
+        assertSameAsReflective(read("userinfo.json"), Connect.class);
+
+        String profile = read("profile.json");
+        assertSameAsReflective(profile, Connect.class);
+        assertSameAsReflective(profile, Identify.class);
+        assertSameAsReflective(profile, IdentifyPlus.class);
+        assertSameAsReflective(profile, IdentifyAML.class);
+    }
+
+    @Test
+    public void testReadIdentifyAML() throws IOException {
+        IdentifyAML identifyAML = BankIDJson.gson().fromJson(read("profile.json"), IdentifyAML.class);
+
+        assertEquals(50, identifyAML.getAge());
+        assertEquals(1568188433000L, identifyAML.getUpdated_at());
+        assertEquals("SK", identifyAML.getNationalities()[2]);
+        assertEquals(AddressType.PERMANENT_RESIDENCE, identifyAML.getAddresses().get(0).getType());
+        assertEquals(IDCardType.ID, identifyAML.getIdcards().get(0).getType());
+
+        IdentifyAMLVerifiedClaims verifiedClaims = (IdentifyAMLVerifiedClaims) identifyAML.getVerified_claims();
+        assertEquals(TrustFramework.cz_aml, verifiedClaims.getVerification().getTrust_framework());
+        assertEquals("Novák", verifiedClaims.getClaims().getFamily_name());
+    }
+
+    @Test
+    public void testUnknownPropertiesAndValues() {
+        String json = "{\"sub\": \"abc\", \"unknown\": {\"nested\": [1, {}]}, \"gender\": \"unknown\", \"age\": null}";
+        Identify identify = BankIDJson.gson().fromJson(json, Identify.class);
+
+        assertEquals("abc", identify.getSub());
+        assertNull(identify.getGender());
+        assertEquals(0, identify.getAge());
+    }
+
+    private <T extends IProduct> void assertSameAsReflective(String json, Class<T> product) {
+        JsonElement expected = JsonParser.parseString(reflective.toJson(reflective.fromJson(json, product)));
+        T generated = BankIDJson.gson().fromJson(json, product);
+
+        // Read by the generated adapter
+        assertEquals(expected, JsonParser.parseString(reflective.toJson(generated)));
+
+        // Written by the generated adapter
+        assertEquals(expected, JsonParser.parseString(BankIDJson.gson().toJson(generated)));
+    }
+
+    private static String read(String fileName) throws IOException {
+        return Files.readString(Path.of("src/test/resources/io/" + fileName));
+    }
+}
@@ -0,0 +1,82 @@
+package cz.bankid.examples.json;
+
+import com.google.gson.JsonParseException;
+import com.nimbusds.oauth2.sdk.ParseException;
+import cz.bankid.examples.entities.entity.TrustFramework;
+import cz.bankid.examples.product.IdentifyAML;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LazyProductTest {
+
+    @Test
+    public void testNarrowRead() throws Exception {
+        LazyProduct product = LazyProduct.parse(Files.readAllBytes(Path.of("src/test/resources/io/profile.json")));
+
+        assertEquals("23f1ac00-5d54-4169-a288-794ae2ead0c4", product.getSub());
+        assertEquals("Novák", product.getFamily_name());
+        assertEquals(TrustFramework.cz_aml, product.getTrust_framework());
+        assertEquals(1568188433000L, product.getUpdated_at());
+        assertEquals(50, product.getLong("age", 0));
+        assertFalse(product.isPep());
+        assertTrue(product.getBoolean("majority"));
+        assertTrue(product.has("date_of_death"));
+        assertNull(product.getString("date_of_death"));
+        assertNull(product.getString("nickname"));
+        assertSame(product.getVerified_claims(), product.getVerified_claims());
+
+        // The whole product from the same bytes
+        IdentifyAML identifyAML = product.toProduct(IdentifyAML.class);
+        assertEquals("CZ0708000000001019382023", identifyAML.getPaymentAccounts().get(0));
+    }
+
+    @Test
+    public void testEscapes() throws Exception {
+        LazyProduct product = parse("{\"sub\": \"a\\\"b\\\\c\\u00e1\\/\", \"nested\": {\"s\": \"}\"}, \"list\": [\"]\", {}],"
+                + " \"name\": \"ok\", \"name\": \"last\"}");
+        assertEquals("a\"b\\cá/", product.getSub());
+        assertEquals("}", product.getObject("nested").getString("s"));
+        assertEquals("last", product.getString("name"));
+        assertEquals(5, product.names().length);
+    }
+
+    @Test
+    public void testInvalid() throws Exception {
+        assertInvalid("[]");
+        assertInvalid("{\"sub\": \"unterminated}");
+        assertInvalid("{\"sub\": {\"a\": 1}");
+        assertInvalid("{\"sub\": 1} {}");
+
+        // Values are checked when read
+        LazyProduct product = parse("{\"updated_at\": \"soon\"}");
+        try {
+            product.getUpdated_at();
+            fail();
+        } catch (JsonParseException e) {
+            // expected
+        }
+    }
+
+    private static LazyProduct parse(String json) throws ParseException {
+        return LazyProduct.parse(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertInvalid(String json) {
+        try {
+            parse(json);
+            fail(json);
+        } catch (ParseException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package cz.bankid.examples.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        long previous = -1;
+        for (int index = 0; index < 960; index++) {
+            long highest = LatencyHistogram.highestValue(index);
+            assertTrue(highest > previous);
+            assertEquals(index, LatencyHistogram.index(previous + 1));
+            assertEquals(index, LatencyHistogram.index(highest));
+            previous = highest;
+        }
+        assertEquals(Long.MAX_VALUE, previous);
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+
+        // 1 to 1000 ms
+        for (long millis = 1; millis <= 1000; millis++) {
+            histogram.record(millis * 1_000_000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000_000, histogram.getMax());
+        assertEquals(1_000_000_000, histogram.getValueAtPercentile(100));
+
+        assertWithin(500_000_000, histogram.getValueAtPercentile(50));
+        assertWithin(990_000_000, histogram.getValueAtPercentile(99));
+        assertWithin(1_000_000, histogram.getValueAtPercentile(0));
+    }
+
+    private static void assertWithin(long expected, long value) {
+        assertTrue(value + " is not close to " + expected, value >= expected && value <= expected + expected / 16);
+    }
+}
@@ -0,0 +1,110 @@
+package cz.bankid.examples.metrics;
+
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import cz.bankid.examples.transport.BankIDTransport;
+import cz.bankid.examples.transport.MeteredTransport;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MetricsRegistryTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @Test
+    public void testStatusesAndErrors() throws Exception {
+        int[] status = {200};
+        BankIDTransport transport = new MeteredTransport(request -> {
+            if (status[0] == 0) {
+                throw new ConnectException("refused");
+            }
+            return new HTTPResponse(status[0]);
+        }, Endpoint.PROFILE, registry);
+
+        HTTPRequest request = new HTTPRequest(HTTPRequest.Method.GET, new URL("https://bankid.cz/profile"));
+        transport.send(request);
+        transport.send(request);
+        status[0] = 401;
+        transport.sendAsync(request, Runnable::run).join();
+        status[0] = 0;
+        try {
+            transport.send(request);
+            fail();
+        } catch (IOException expected) {
+            // Counted as an error
+        }
+        try {
+            transport.sendAsync(request, Runnable::run).join();
+            fail();
+        } catch (CompletionException expected) {
+            // Counted as an error
+        }
+
+        MetricsRegistry.EndpointMetrics profile = registry.get(Endpoint.PROFILE);
+        assertEquals(Map.of(200, 2L, 401, 1L), profile.getStatusCounts());
+        assertEquals(Map.of(ConnectException.class.getName(), 2L), profile.getErrorCounts());
+        assertEquals(5, profile.getLatency().getCount());
+        assertEquals(0, profile.getInFlight());
+        assertEquals(0, registry.get(Endpoint.USERINFO).getLatency().getCount());
+    }
+
+    @Test
+    public void testInFlight() throws Exception {
+        CompletableFuture<HTTPResponse> pending = new CompletableFuture<>();
+        BankIDTransport transport = new MeteredTransport(new BankIDTransport() {
+            @Override
+            public HTTPResponse send(HTTPRequest request) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<HTTPResponse> sendAsync(HTTPRequest request, Executor executor) {
+                return pending;
+            }
+        }, Endpoint.TOKEN, registry);
+
+        CompletableFuture<HTTPResponse> response = transport.sendAsync(
+                new HTTPRequest(HTTPRequest.Method.POST, new URL("https://bankid.cz/token")), Runnable::run);
+        assertEquals(1, registry.get(Endpoint.TOKEN).getInFlight());
+
+        pending.complete(new HTTPResponse(200));
+        assertTrue(response.isDone());
+        assertEquals(0, registry.get(Endpoint.TOKEN).getInFlight());
+    }
+
+    @Test
+    public void testExecutorQueueNotMeasured() throws Exception {
+        long[] duration = new long[1];
+        BankIDMetrics metrics = new BankIDMetrics() {
+            @Override
+            public void callCompleted(Endpoint endpoint, long durationNanos, int statusCode) {
+                duration[0] = durationNanos;
+            }
+        };
+        BankIDTransport transport = new MeteredTransport(request -> new HTTPResponse(200), Endpoint.PROFILE, metrics);
+
+        // A saturated executor, the blocking send waits in its queue
+        Queue<Runnable> queue = new ArrayDeque<>();
+        CompletableFuture<HTTPResponse> response = transport.sendAsync(
+                new HTTPRequest(HTTPRequest.Method.GET, new URL("https://bankid.cz/profile")), queue::add);
+        Thread.sleep(200);
+        queue.remove().run();
+
+        assertEquals(200, response.join().getStatusCode());
+        assertTrue(duration[0] < TimeUnit.MILLISECONDS.toNanos(100));
+    }
+}
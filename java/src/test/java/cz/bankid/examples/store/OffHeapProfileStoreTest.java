@@ -0,0 +1,108 @@
+package cz.bankid.examples.store;
+
+import cz.bankid.examples.json.BankIDJson;
+import cz.bankid.examples.product.Connect;
+import cz.bankid.examples.product.IdentifyAML;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapProfileStoreTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        String json = Files.readString(Path.of("src/test/resources/io/profile.json"));
+        IdentifyAML profile = BankIDJson.parse(json, IdentifyAML.class);
+
+        OffHeapProfileStore store = new OffHeapProfileStore(OffHeapProfileStore.PAGE_SIZE);
+        assertTrue(store.put(profile));
+        assertEquals(1, store.size());
+        assertEquals(OffHeapProfileStore.PAGE_SIZE, store.getAllocatedBytes());
+
+        IdentifyAML stored = store.get(profile.getSub(), IdentifyAML.class);
+        assertEquals(BankIDJson.gson().toJson(profile), BankIDJson.gson().toJson(stored));
+
+        store.remove(profile.getSub());
+        assertNull(store.get(profile.getSub(), IdentifyAML.class));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testReplace() throws Exception {
+        OffHeapProfileStore store = new OffHeapProfileStore(OffHeapProfileStore.PAGE_SIZE);
+        store.put(connect("user", "Jan"));
+        store.put(connect("user", "Petr"));
+
+        assertEquals(1, store.size());
+        assertEquals("Petr", store.get("user", Connect.class).getName());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws Exception {
+        // One page of the smallest chunks
+        OffHeapProfileStore store = new OffHeapProfileStore(OffHeapProfileStore.PAGE_SIZE);
+        int chunks = OffHeapProfileStore.PAGE_SIZE / OffHeapProfileStore.MIN_CHUNK_SIZE;
+        for (int i = 0; i < chunks; i++) {
+            assertTrue(store.put(connect("user" + i, "Jan")));
+        }
+        assertEquals(0, store.getEvictionCount());
+
+        // user0 was read, user1 is the least recently used
+        assertNotNull(store.get("user0", Connect.class));
+        assertTrue(store.put(connect("new", "Jan")));
+
+        assertEquals(1, store.getEvictionCount());
+        assertEquals(chunks, store.size());
+        assertNotNull(store.get("user0", Connect.class));
+        assertNull(store.get("user1", Connect.class));
+        assertNotNull(store.get("new", Connect.class));
+    }
+
+    @Test
+    public void testPageTakenOverByAnotherSizeClass() throws Exception {
+        String json = Files.readString(Path.of("src/test/resources/io/profile.json"));
+        IdentifyAML profile = BankIDJson.parse(json, IdentifyAML.class);
+
+        // The only page is cut to the smallest chunks, the larger profile of the same user takes it over
+        OffHeapProfileStore store = new OffHeapProfileStore(OffHeapProfileStore.PAGE_SIZE);
+        assertTrue(store.put(connect("other", "Jan")));
+        assertTrue(store.put(connect(profile.getSub(), "Jan")));
+        assertTrue(store.put(profile));
+
+        // Both small profiles were in the page
+        assertEquals(1, store.size());
+        assertEquals(2, store.getEvictionCount());
+        assertNull(store.get("other", Connect.class));
+        assertEquals(BankIDJson.gson().toJson(profile),
+                BankIDJson.gson().toJson(store.get(profile.getSub(), IdentifyAML.class)));
+        assertEquals(OffHeapProfileStore.PAGE_SIZE, store.getAllocatedBytes());
+
+        // And back
+        assertTrue(store.put(connect("other", "Petr")));
+        assertEquals("Petr", store.get("other", Connect.class).getName());
+        assertNull(store.get(profile.getSub(), IdentifyAML.class));
+        assertEquals(3, store.getEvictionCount());
+    }
+
+    @Test
+    public void testRejected() {
+        OffHeapProfileStore store = new OffHeapProfileStore(OffHeapProfileStore.PAGE_SIZE);
+        assertFalse(store.put(new Connect()));
+        assertFalse(store.put(connect("user", "J".repeat(OffHeapProfileStore.MAX_CHUNK_SIZE))));
+        assertEquals(0, store.size());
+    }
+
+    private static Connect connect(String sub, String name) {
+        Connect connect = new Connect();
+        connect.setSub(sub);
+        connect.setName(name);
+        return connect;
+    }
+}
@@ -0,0 +1,103 @@
+package cz.bankid.examples.transport;
+
+import com.nimbusds.oauth2.sdk.RefreshTokenGrant;
+import com.nimbusds.oauth2.sdk.TokenRequest;
+import com.nimbusds.oauth2.sdk.auth.ClientSecretPost;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import com.nimbusds.oauth2.sdk.token.RefreshToken;
+import com.nimbusds.openid.connect.sdk.UserInfoRequest;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class HttpClientTransportTest {
+
+    private HttpServer server;
+
+    private URI baseURI;
+
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<>());
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/userinfo", exchange -> {
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            respond(exchange, 200, "{\"sub\":\"23f1ac00-5d54-4169-a288-794ae2ead0c4\",\"auth\":\"" + authorization + "\"}");
+        });
+        server.createContext("/token", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            respond(exchange, 400, "{\"error\":\"invalid_grant\",\"error_description\":\"" + body.contains("refresh_token=rt") + "\"}");
+        });
+        server.start();
+        baseURI = URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testGetWithBearerToken() throws Exception {
+        HttpClientTransport transport = new HttpClientTransport(Duration.ofSeconds(1), Duration.ofSeconds(2));
+
+        HTTPResponse response = transport.send(
+                new UserInfoRequest(baseURI.resolve("/userinfo"), new BearerAccessToken("abc")).toHTTPRequest());
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals("application/json; charset=UTF-8", response.getEntityContentType().toString());
+        assertEquals("Bearer abc", response.getContentAsJSONObject().getAsString("auth"));
+    }
+
+    @Test
+    public void testPostFormAndErrorStatus() throws Exception {
+        HttpClientTransport transport = new HttpClientTransport(Duration.ofSeconds(1), Duration.ofSeconds(2));
+
+        TokenRequest request = new TokenRequest(baseURI.resolve("/token"),
+                new ClientSecretPost(new ClientID("client"), new Secret("secret")),
+                new RefreshTokenGrant(new RefreshToken("rt")));
+        HTTPResponse response = transport.send(request.toHTTPRequest());
+
+        assertEquals(400, response.getStatusCode());
+        assertEquals("true", response.getContentAsJSONObject().getAsString("error_description"));
+    }
+
+    @Test
+    public void testConnectionIsReused() throws Exception {
+        HttpClientTransport transport = new HttpClientTransport(Duration.ofSeconds(1), Duration.ofSeconds(2));
+
+        for (int i = 0; i < 5; i++) {
+            transport.send(new UserInfoRequest(baseURI.resolve("/userinfo"), new BearerAccessToken("abc")).toHTTPRequest());
+        }
+
+        assertEquals(1, clientPorts.size());
+    }
+
+    private void respond(HttpExchange exchange, int status, String content) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        byte[] body = content.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package cz.bankid.examples.transport;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+public class RateLimiterTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    private final AtomicLong now = new AtomicLong(1000 * MILLIS);
+
+    @Test
+    public void testBurstThenRate() {
+        RateLimiter limiter = new RateLimiter(10, 3, now::get);
+
+        // The burst goes at once
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.reserve());
+
+        // Then one call every 100 ms
+        assertEquals(100 * MILLIS, limiter.reserve());
+        assertEquals(200 * MILLIS, limiter.reserve());
+
+        now.addAndGet(200 * MILLIS);
+        assertEquals(100 * MILLIS, limiter.reserve());
+    }
+
+    @Test
+    public void testBurstRestoredWhenIdle() {
+        RateLimiter limiter = new RateLimiter(10, 2, now::get);
+        limiter.reserve();
+        limiter.reserve();
+        assertEquals(100 * MILLIS, limiter.reserve());
+
+        now.addAndGet(10_000 * MILLIS);
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.reserve());
+        assertEquals(100 * MILLIS, limiter.reserve());
+    }
+}
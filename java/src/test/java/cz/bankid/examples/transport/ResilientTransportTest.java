@@ -0,0 +1,129 @@
+package cz.bankid.examples.transport;
+
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResilientTransportTest {
+
+    private static final String PROFILE = "https://bankid.cz/profile";
+
+    // Responses of the calls in the order they were sent, completed by the test
+    private final List<CompletableFuture<HTTPResponse>> calls = new ArrayList<>();
+
+    private final BankIDTransport bankID = new BankIDTransport() {
+        @Override
+        public HTTPResponse send(HTTPRequest request) {
+            return new HTTPResponse(503);
+        }
+
+        @Override
+        public synchronized CompletableFuture<HTTPResponse> sendAsync(HTTPRequest request, Executor executor) {
+            CompletableFuture<HTTPResponse> response = new CompletableFuture<>();
+            calls.add(response);
+            return response;
+        }
+    };
+
+    private final ResilientTransport transport = new ResilientTransport(bankID, 95, Duration.ofMillis(20), 3,
+            Duration.ofMinutes(1), new RetryBudget(0.1, 10));
+
+    @Test
+    public void testHedgedCall() throws Exception {
+        CompletableFuture<HTTPResponse> response = transport.sendAsync(get(), Runnable::run);
+
+        // The hedge goes after the delay, the first response wins
+        waitForCalls(2);
+        assertEquals(1, transport.getHedgeCount());
+        HTTPResponse hedged = new HTTPResponse(200);
+        calls.get(1).complete(hedged);
+        assertSame(hedged, response.get(1, TimeUnit.SECONDS));
+
+        calls.get(0).complete(new HTTPResponse(200));
+        assertSame(hedged, response.get());
+    }
+
+    @Test
+    public void testRetriedCall() throws Exception {
+        CompletableFuture<HTTPResponse> response = transport.sendAsync(get(), Runnable::run);
+        calls.get(0).complete(new HTTPResponse(503));
+
+        assertEquals(2, calls.size());
+        assertEquals(1, transport.getRetryCount());
+        calls.get(1).complete(new HTTPResponse(200));
+        assertEquals(200, response.get().getStatusCode());
+    }
+
+    @Test
+    public void testOpenCircuitFailsFast() throws Exception {
+        // Three failures in a row, each retried once
+        for (int i = 0; i < 2; i++) {
+            try {
+                transport.send(get());
+            } catch (CircuitOpenException e) {
+                fail();
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, transport.getCircuitState(PROFILE));
+
+        try {
+            transport.send(get());
+            fail();
+        } catch (CircuitOpenException expected) {
+            // Refused without a call
+        }
+        try {
+            transport.sendAsync(get(), Runnable::run).join();
+            fail();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof CircuitOpenException);
+        }
+        assertEquals(2, transport.getRejectedCount());
+        assertFalse(calls.size() > 0);
+    }
+
+    @Test
+    public void testPostNotHedged() throws Exception {
+        HTTPRequest post = new HTTPRequest(HTTPRequest.Method.POST, new URL(PROFILE));
+        CompletableFuture<HTTPResponse> response = transport.sendAsync(post, Runnable::run);
+        calls.get(0).complete(new HTTPResponse(503));
+
+        assertEquals(503, response.get().getStatusCode());
+        Thread.sleep(50);
+        assertEquals(1, calls.size());
+    }
+
+    private void waitForCalls(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, size());
+    }
+
+    private int size() {
+        synchronized (bankID) {
+            return calls.size();
+        }
+    }
+
+    private static HTTPRequest get() throws IOException {
+        return new HTTPRequest(HTTPRequest.Method.GET, new URL(PROFILE));
+    }
+}